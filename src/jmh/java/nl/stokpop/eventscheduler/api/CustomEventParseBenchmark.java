@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Parse a schedule script of 1M lines with the single pass line parser and with the
+ * split and regex based parser it replaces.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomEventParseBenchmark {
+
+    private static final int LINE_COUNT = 1_000_000;
+    private static final Pattern NON_ALPHA_NUMS = Pattern.compile("[^A-Za-z0-9\\- %+=:]");
+
+    private String[] lines;
+
+    @Setup
+    public void createScript() {
+        lines = new String[LINE_COUNT];
+        for (int i = 0; i < LINE_COUNT; i++) {
+            switch (i % 3) {
+                case 0: lines[i] = "PT" + i + "S|restart(restart with 2 replicas)|{ server:'myserver' replicas:2 }"; break;
+                case 1: lines[i] = "  PT" + (i / 60) + "M" + (i % 60) + ".5S | scale-down  "; break;
+                default: lines[i] = "PT" + (i / 3600) + "H|heapdump(port 1567)|server=myserver.example.com;port=1567"; break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void singlePassParser(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(CustomEvent.createFromLine(line));
+        }
+    }
+
+    @Benchmark
+    public void splitAndRegexParser(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(splitAndRegexCreateFromLine(line));
+        }
+    }
+
+    private static CustomEvent splitAndRegexCreateFromLine(String line) {
+        if (line == null || line.trim().isEmpty() || !line.contains("|")) {
+            throw new CustomEvent.ScheduleEventWrongFormat("wrong line: [" + line + "]");
+        }
+        List<String> elements = Arrays.stream(line.split("\\|"))
+            .map(String::trim)
+            .collect(Collectors.toList());
+        if (!(elements.size() == 2 || elements.size() == 3)) {
+            throw new CustomEvent.ScheduleEventWrongFormat("Wrong number of elements in line: [" + line + "]");
+        }
+        String nameWithDescription = elements.get(1).trim();
+        String name = nameWithDescription;
+        String description = "";
+        if (nameWithDescription.contains("(")) {
+            int indexOpen = nameWithDescription.indexOf("(");
+            int indexClose = nameWithDescription.lastIndexOf(")");
+            if (indexClose == -1) {
+                throw new EventSchedulerRuntimeException("closing parentheses ')' is missing in '" + nameWithDescription + "'");
+            }
+            name = NON_ALPHA_NUMS.matcher(nameWithDescription.substring(0, indexOpen).trim()).replaceAll("_");
+            description = NON_ALPHA_NUMS.matcher(nameWithDescription.substring(indexOpen + 1, indexClose).trim()).replaceAll("_");
+        }
+        Duration duration = Duration.parse(elements.get(0).split(";", 2)[0].trim());
+        return new CustomEvent(duration, name, description, elements.size() == 3 ? elements.get(2) : null);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
+import nl.stokpop.eventscheduler.log.EventLoggerDevNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse a schedule script of 1M lines (about 40 MB) sequentially with the default generator
+ * and in chunks on the common fork-join pool. The parallel parse scales with the number of cores.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleScriptParseBenchmark {
+
+    private static final int LINE_COUNT = 1_000_000;
+
+    private String script;
+    private EventGeneratorDefault sequentialGenerator;
+
+    @Setup
+    public void createScript() {
+        StringBuilder text = new StringBuilder(LINE_COUNT * 40);
+        for (int i = 0; i < LINE_COUNT; i++) {
+            text.append("PT").append(i).append("S|restart(restart with 2 replicas)|replicas=2\n");
+        }
+        script = text.toString();
+
+        Map<String, String> properties = new HashMap<>();
+        properties.put(EventGeneratorDefault.EVENT_SCHEDULE_TAG, script);
+        sequentialGenerator = new EventGeneratorDefault(new EventGeneratorProperties(properties), EventLoggerDevNull.INSTANCE);
+    }
+
+    @Benchmark
+    public Object sequential() {
+        return sequentialGenerator.generate();
+    }
+
+    @Benchmark
+    public Object parallelChunks() {
+        return ScheduleScriptParser.parse(script);
+    }
+}
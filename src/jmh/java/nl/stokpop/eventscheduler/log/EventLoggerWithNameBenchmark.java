@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.log;
+
+import nl.stokpop.eventscheduler.api.EventLogger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the cost of debug calls on an EventLoggerWithName when debug is disabled.
+ *
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventLoggerWithNameBenchmark {
+
+    private final EventLogger logger =
+        new EventLoggerWithName("myEvent", "nl.stokpop.eventscheduler.event.EventFactoryDefault", EventLoggerDevNull.INSTANCE);
+
+    private final String eventName = "myEvent";
+    private final String className = EventLoggerWithNameBenchmark.class.getName();
+
+    @Benchmark
+    public void debugEagerFormat() {
+        logger.debug(String.format("[%s] [%s] keepAlive (not implemented)", eventName, className));
+    }
+
+    @Benchmark
+    public void debugParameterized() {
+        logger.debug("[%s] [%s] keepAlive (not implemented)", eventName, className);
+    }
+
+    @Benchmark
+    public void debugSupplier() {
+        logger.debug(() -> String.format("[%s] [%s] keepAlive (not implemented)", eventName, className));
+    }
+
+}
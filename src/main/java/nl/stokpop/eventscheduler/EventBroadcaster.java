@@ -17,11 +17,16 @@ package nl.stokpop.eventscheduler;
 
 import nl.stokpop.eventscheduler.api.CustomEvent;
 import nl.stokpop.eventscheduler.api.EventCheck;
+import nl.stokpop.eventscheduler.api.EventStatus;
 import nl.stokpop.eventscheduler.exception.handler.AbortSchedulerException;
 import nl.stokpop.eventscheduler.exception.handler.KillSwitchException;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
+import java.util.function.Consumer;
 
 public interface EventBroadcaster {
 
@@ -37,8 +42,78 @@ public interface EventBroadcaster {
 
     void broadcastCustomEvent(CustomEvent event);
 
+    /**
+     * Broadcast the custom event and wait until all events have processed it, used for virtual time.
+     *
+     * This default implementation assumes broadcastCustomEvent is synchronous.
+     *
+     * @param event the custom event
+     */
+    default void broadcastCustomEventAndWait(CustomEvent event) {
+        broadcastCustomEvent(event);
+    }
+
+    /**
+     * Broadcast custom events that are due at the same instant: each event receives them in one customEvents call.
+     *
+     * This default implementation broadcasts the custom events one by one.
+     *
+     * @param events the custom events in schedule order
+     */
+    default void broadcastCustomEvents(List<CustomEvent> events) {
+        events.forEach(this::broadcastCustomEvent);
+    }
+
+    /**
+     * Broadcast custom events that are due at the same instant and wait until all events have processed them,
+     * used for virtual time.
+     *
+     * This default implementation broadcasts the custom events one by one.
+     *
+     * @param events the custom events in schedule order
+     */
+    default void broadcastCustomEventsAndWait(List<CustomEvent> events) {
+        events.forEach(this::broadcastCustomEventAndWait);
+    }
+
     List<EventCheck> broadcastCheck();
 
+    /**
+     * Wait for in-flight keep-alive and custom event calls to finish, at most for the given timeout.
+     *
+     * This default implementation has nothing in flight, it assumes all broadcasts are synchronous.
+     *
+     * @param timeout maximum time to wait for in-flight calls
+     * @return descriptions of the calls that were still running at the deadline and are cut off
+     */
+    default List<String> drain(Duration timeout) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Streaming check: event checks are given to the consumer as they complete.
+     *
+     * This default implementation waits for all event checks via broadcastCheck() first,
+     * implementations that call events in parallel should deliver each check as soon as it is done
+     * and report checks that miss the timeout as UNKNOWN.
+     *
+     * @param timeout maximum time to wait for all event checks
+     * @param failFast stop at the first event check with a FAILURE
+     * @param eventCheckConsumer receives each event check when it is available
+     * @return the delivered event checks, in order of delivery
+     */
+    default List<EventCheck> broadcastCheck(Duration timeout, boolean failFast, Consumer<EventCheck> eventCheckConsumer) {
+        List<EventCheck> eventChecks = new ArrayList<>();
+        for (EventCheck eventCheck : broadcastCheck()) {
+            eventChecks.add(eventCheck);
+            eventCheckConsumer.accept(eventCheck);
+            if (failFast && eventCheck.getEventStatus() == EventStatus.FAILURE) {
+                break;
+            }
+        }
+        return eventChecks;
+    }
+
     void shutdownAndWaitAllTasksDone(long timeoutSeconds);
 
     default void throwAbortOrKillWitchException(Queue<Throwable> exceptions) {
@@ -20,9 +20,13 @@ import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
 import nl.stokpop.eventscheduler.exception.handler.SchedulerHandlerException;
 import nl.stokpop.eventscheduler.log.EventLoggerDevNull;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -33,22 +37,67 @@ import java.util.stream.Stream;
 public class EventBroadcasterAsync implements EventBroadcaster {
 
     protected static final int ALL_CALLS_TIME_OUT_SECONDS = 300;
-    private final ExecutorService executor;
+    // recreated when a drained broadcaster is used again, only when this broadcaster created it
+    private volatile ExecutorService executor;
+    private final boolean ownsExecutor;
+    // in-flight keep-alive and custom event calls with a description, used to drain on stop
+    private final Map<CompletableFuture<?>, Supplier<String>> inFlightCalls = new ConcurrentHashMap<>();
+    // separate lane for the tear down calls, so these never wait behind slow keep-alive or custom event calls
+    private final ExecutorService priorityExecutor;
     private final List<Event> events;
     private final EventLogger logger;
 
-    EventBroadcasterAsync(Collection<Event> events, EventLogger logger, ExecutorService executor) {
+    EventBroadcasterAsync(Collection<Event> events, EventLogger logger, ExecutorService executor, ExecutorService priorityExecutor) {
         this.events = events == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(events));
         this.logger = logger == null ? EventLoggerDevNull.INSTANCE : logger;
+        this.ownsExecutor = executor == null;
         this.executor = executor == null ? Executors.newCachedThreadPool() : executor;
+        this.priorityExecutor = priorityExecutor == null ? createPriorityExecutor() : priorityExecutor;
+    }
+
+    /**
+     * A given executor is used for the priority calls as well, so tests keep control over all calls.
+     */
+    EventBroadcasterAsync(Collection<Event> events, EventLogger logger, ExecutorService executor) {
+        this(events, logger, executor, executor);
     }
 
     public EventBroadcasterAsync(Collection<Event> events, EventLogger logger) {
-        this(events, logger, null);
+        this(events, logger, null, null);
     }
 
     public EventBroadcasterAsync(Collection<Event> events) {
-        this(events, null, null);
+        this(events, null, null, null);
+    }
+
+    private static ExecutorService createPriorityExecutor() {
+        AtomicInteger threadCount = new AtomicInteger(0);
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "Event-Priority-Thread-" + threadCount.incrementAndGet());
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private ExecutorService normalLane() {
+        ExecutorService current = executor;
+        if (ownsExecutor && current.isShutdown()) {
+            synchronized (this) {
+                if (executor.isShutdown()) {
+                    executor = Executors.newCachedThreadPool();
+                }
+                current = executor;
+            }
+        }
+        return current;
+    }
+
+    private CompletableFuture<Void> runTracked(Runnable call, Supplier<String> description) {
+        CompletableFuture<Void> future = CompletableFuture.runAsync(call, normalLane());
+        inFlightCalls.put(future, description);
+        future.whenComplete((r, t) -> inFlightCalls.remove(future));
+        return future;
     }
 
     /**
@@ -63,7 +112,7 @@ public class EventBroadcasterAsync implements EventBroadcaster {
         logger.info("broadcast before test event");
 
         CompletableFuture<?>[] cfs = this.events.stream()
-                .map(e -> CompletableFuture.runAsync(e::beforeTest, executor)
+                .map(e -> CompletableFuture.runAsync(e::beforeTest, normalLane())
                         .exceptionally(printError(e)))
                 .toArray(CompletableFuture<?>[]::new);
 
@@ -93,7 +142,7 @@ public class EventBroadcasterAsync implements EventBroadcaster {
         logger.info("broadcast start test event");
 
         Stream<CompletableFuture<Void>> cfs = this.events.stream()
-            .map(e -> CompletableFuture.runAsync(e::startTest, executor)
+            .map(e -> CompletableFuture.runAsync(e::startTest, normalLane())
                 .exceptionally(printError(e)));
 
         CompletableFuture<Void> allStartTests = CompletableFuture.allOf(cfs.toArray(CompletableFuture[]::new))
@@ -123,13 +172,15 @@ public class EventBroadcasterAsync implements EventBroadcaster {
      *
      * This is to make sure all needed activities after the test have finished before the
      * test will finish.
+     *
+     * Runs on the priority lane, so it does not wait behind slow keep-alive or custom event calls.
      */
     @Override
     public void broadcastAfterTest() {
         logger.info("broadcast after test event");
         
         Stream<CompletableFuture<Void>> cfs = this.events.stream()
-                .map(e -> CompletableFuture.runAsync(e::afterTest, executor)
+                .map(e -> CompletableFuture.runAsync(e::afterTest, priorityExecutor)
                         .exceptionally(printError(e)));
 
         CompletableFuture<Void> allAfterTests = CompletableFuture.allOf(cfs.toArray(CompletableFuture[]::new))
@@ -160,7 +211,7 @@ public class EventBroadcasterAsync implements EventBroadcaster {
         Queue<Throwable> exceptions = new ConcurrentLinkedQueue<>();
 
         Stream<CompletableFuture<Void>> cfs = this.events.stream()
-                .map(e -> CompletableFuture.runAsync(e::keepAlive, executor)
+                .map(e -> runTracked(e::keepAlive, () -> e.getName() + " keep alive")
                         .exceptionally(printError(e, exceptions)));
 
         CompletableFuture<Void> allKeepAlives = CompletableFuture.allOf(cfs.toArray(CompletableFuture[]::new));
@@ -178,20 +229,22 @@ public class EventBroadcasterAsync implements EventBroadcaster {
             logger.warn("waited for " + ALL_CALLS_TIME_OUT_SECONDS + " seconds, got timeout waiting for " +
                     "'keep alive' tasks");
         }
-        logger.debug("Keep Alive found exceptions: " + exceptions);
+        logger.debug(() -> "Keep Alive found exceptions: " + exceptions);
         throwAbortOrKillWitchException(exceptions);
     }
 
     /**
      * Blocks for all abort tasks to be finished to try to make sure they get called
      * before jvm shutdown.
+     *
+     * Runs on the priority lane, so it does not wait behind slow keep-alive or custom event calls.
      */
     @Override
     public void broadcastAbortTest() {
         logger.debug("broadcast abort test event");
 
         Stream<CompletableFuture<Void>> cfs = this.events.stream()
-                .map(e -> CompletableFuture.runAsync(e::abortTest, executor)
+                .map(e -> CompletableFuture.runAsync(e::abortTest, priorityExecutor)
                         .exceptionally(printError(e)));
 
         CompletableFuture<Void> allAbortTests = CompletableFuture.allOf(cfs.toArray(CompletableFuture[]::new))
@@ -215,19 +268,94 @@ public class EventBroadcasterAsync implements EventBroadcaster {
         }
     }
 
+    /**
+     * Waits for in-flight keep-alive and custom event calls until the timeout. Calls still running
+     * after the timeout are reported and interrupted by shutting down the executor of this broadcaster.
+     * A given executor is not shut down, so calls on it are only reported.
+     */
+    @Override
+    public List<String> drain(Duration timeout) {
+        CompletableFuture<?>[] running = inFlightCalls.keySet().stream()
+            .map(f -> f.handle((r, t) -> null))
+            .toArray(CompletableFuture<?>[]::new);
+
+        if (running.length > 0) {
+            logger.info("drain: wait up to " + timeout + " for " + running.length + " in-flight calls");
+            try {
+                CompletableFuture.allOf(running).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("interrupted while draining in-flight calls");
+            } catch (ExecutionException | TimeoutException e) {
+                // cut off calls are reported below
+            }
+        }
+
+        List<String> cutOff = inFlightCalls.entrySet().stream()
+            .filter(call -> !call.getKey().isDone())
+            .map(call -> call.getValue().get())
+            .sorted()
+            .collect(Collectors.toList());
+
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+        return cutOff;
+    }
+
     @Override
     public void broadcastCustomEvent(CustomEvent scheduleEvent) {
         logger.info("broadcast " + scheduleEvent.getName() + " custom event");
-        this.events.forEach(e -> CompletableFuture.runAsync(() -> e.customEvent(scheduleEvent), executor)
+        this.events.forEach(e -> runTracked(() -> e.customEvent(scheduleEvent), () -> e.getName() + " custom event " + scheduleEvent.getName())
+                .exceptionally(printError(e)));
+    }
+
+    @Override
+    public void broadcastCustomEventAndWait(CustomEvent scheduleEvent) {
+        logger.info("broadcast " + scheduleEvent.getName() + " custom event and wait");
+        CompletableFuture<?>[] cfs = this.events.stream()
+                .map(e -> runTracked(() -> e.customEvent(scheduleEvent), () -> e.getName() + " custom event " + scheduleEvent.getName())
+                        .exceptionally(printError(e)))
+                .toArray(CompletableFuture<?>[]::new);
+        waitForCustomEventCalls(cfs, "custom event " + scheduleEvent.getName());
+    }
+
+    @Override
+    public void broadcastCustomEvents(List<CustomEvent> scheduleEvents) {
+        logger.info("broadcast " + scheduleEvents.size() + " custom events");
+        this.events.forEach(e -> runTracked(() -> e.customEvents(scheduleEvents), () -> e.getName() + " custom events " + EventSchedulerUtils.customEventNames(scheduleEvents))
                 .exceptionally(printError(e)));
     }
 
+    @Override
+    public void broadcastCustomEventsAndWait(List<CustomEvent> scheduleEvents) {
+        logger.info("broadcast " + scheduleEvents.size() + " custom events and wait");
+        CompletableFuture<?>[] cfs = this.events.stream()
+                .map(e -> runTracked(() -> e.customEvents(scheduleEvents), () -> e.getName() + " custom events " + EventSchedulerUtils.customEventNames(scheduleEvents))
+                        .exceptionally(printError(e)))
+                .toArray(CompletableFuture<?>[]::new);
+        waitForCustomEventCalls(cfs, scheduleEvents.size() + " custom events");
+    }
+
+    private void waitForCustomEventCalls(CompletableFuture<?>[] cfs, String description) {
+        try {
+            CompletableFuture.allOf(cfs).get(ALL_CALLS_TIME_OUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("interrupted while waiting for " + description);
+        } catch (ExecutionException e) {
+            logger.error(description + " failed", e);
+        } catch (TimeoutException e) {
+            logger.warn("waited for " + ALL_CALLS_TIME_OUT_SECONDS + " seconds, got timeout waiting for " + description);
+        }
+    }
+
     @Override
     public List<EventCheck> broadcastCheck() {
         logger.info("broadcast check test");
 
         List<CompletableFuture<EventCheck>> eventChecks = events.stream()
-                .map(e -> CompletableFuture.supplyAsync(e::check, executor).exceptionally(getFailureEventCheck(e)))
+                .map(e -> CompletableFuture.supplyAsync(e::check, priorityExecutor).exceptionally(getFailureEventCheck(e)))
                 .collect(Collectors.toList());
 
         CompletableFuture<?>[] cfs = eventChecks.toArray(new CompletableFuture<?>[0]);
@@ -250,17 +378,90 @@ public class EventBroadcasterAsync implements EventBroadcaster {
 
     }
 
+    /**
+     * Event checks run in parallel and are delivered as soon as each one is done.
+     * A check that throws an exception is reported as FAILURE, a check that is not done
+     * within the timeout is reported as UNKNOWN.
+     *
+     * On fail fast or timeout this method stops waiting, it does not stop the checks that are still running:
+     * they run on to completion on the executor and their results are ignored.
+     *
+     * The timeout is in real time, like the waiting for the checks, because the Events do real work.
+     */
+    @Override
+    public List<EventCheck> broadcastCheck(Duration timeout, boolean failFast, Consumer<EventCheck> eventCheckConsumer) {
+        logger.info("broadcast streaming check test, timeout " + timeout + ", fail fast: " + failFast);
+
+        BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+
+        List<CompletableFuture<EventCheck>> futures = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            Event e = events.get(i);
+            final int index = i;
+            CompletableFuture<EventCheck> future = CompletableFuture.supplyAsync(e::check, priorityExecutor)
+                .exceptionally(getFailureEventCheck(e));
+            future.thenRun(() -> completed.add(index));
+            futures.add(future);
+        }
+
+        List<EventCheck> eventChecks = new ArrayList<>(events.size());
+        boolean[] delivered = new boolean[events.size()];
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        try {
+            while (eventChecks.size() < events.size()) {
+                long remainingNanos = deadline - System.nanoTime();
+                Integer index = remainingNanos > 0
+                    ? completed.poll(remainingNanos, TimeUnit.NANOSECONDS)
+                    : completed.poll();
+                if (index == null) {
+                    break;
+                }
+                EventCheck eventCheck = futures.get(index).join();
+                delivered[index] = true;
+                eventChecks.add(eventCheck);
+                eventCheckConsumer.accept(eventCheck);
+                if (failFast && eventCheck.getEventStatus() == EventStatus.FAILURE) {
+                    // the remaining checks are not stopped, only not waited for
+                    logger.info("fail fast: stop waiting for remaining event checks after failure of " + eventCheck.getEventId());
+                    return eventChecks;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.warn("got interrupt waiting for event checks, remaining checks are reported as unknown");
+            Thread.currentThread().interrupt();
+        }
+
+        for (int i = 0; i < events.size(); i++) {
+            if (!delivered[i]) {
+                Event e = events.get(i);
+                EventCheck eventCheck = new EventCheck(e.getName(), EventWrapper.eventClassName(e), EventStatus.UNKNOWN,
+                    "No event check received within " + timeout);
+                logger.warn("Event check not done in time: " + eventCheck);
+                eventChecks.add(eventCheck);
+                eventCheckConsumer.accept(eventCheck);
+            }
+        }
+        return eventChecks;
+    }
+
     @Override
     public void shutdownAndWaitAllTasksDone(long timeoutSeconds) {
         logger.info("shutdown broadcaster, waiting up to " + timeoutSeconds + " seconds for tasks to finish");
         executor.shutdown();
+        priorityExecutor.shutdown();
         try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
             if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
                 executor.shutdownNow();
             }
+            if (!priorityExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                priorityExecutor.shutdownNow();
+            }
         } catch (InterruptedException ex) {
             logger.warn("forced shutdown broadcaster, some tasks might not have been finished");
             executor.shutdownNow();
+            priorityExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
         logger.info("shutdown broadcaster done.");
@@ -268,7 +469,7 @@ public class EventBroadcasterAsync implements EventBroadcaster {
 
     private Function<Throwable, EventCheck> getFailureEventCheck(Event e) {
         return t -> {
-            EventCheck eventCheck = new EventCheck(e.getName(), e.getClass().getSimpleName(), EventStatus.FAILURE, "Failed to produce an event check! " + t.getMessage());
+            EventCheck eventCheck = new EventCheck(e.getName(), EventWrapper.eventClassName(e), EventStatus.FAILURE, "Failed to produce an event check! " + t.getMessage());
             logger.error("Error during check: " + eventCheck, t);
             return eventCheck;
         };
@@ -19,9 +19,11 @@ import nl.stokpop.eventscheduler.api.CustomEvent;
 import nl.stokpop.eventscheduler.api.Event;
 import nl.stokpop.eventscheduler.api.EventCheck;
 import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.EventStatus;
 import nl.stokpop.eventscheduler.exception.handler.SchedulerHandlerException;
 import nl.stokpop.eventscheduler.log.EventLoggerDevNull;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
@@ -64,7 +66,7 @@ public class EventBroadcasterDefault implements EventBroadcaster {
         logger.debug("broadcast keep alive event");
         Queue<Throwable> exceptions = new ConcurrentLinkedQueue<>();
         events.forEach(catchExceptionWrapper(Event::keepAlive, exceptions));
-        logger.debug("Keep Alive found exceptions: " + exceptions);
+        logger.debug(() -> "Keep Alive found exceptions: " + exceptions);
         throwAbortOrKillWitchException(exceptions);
     }
 
@@ -81,12 +83,39 @@ public class EventBroadcasterDefault implements EventBroadcaster {
         events.forEach(catchExceptionWrapper(event -> event.customEvent(scheduleEvent)));
     }
 
+    @Override
+    public void broadcastCustomEvents(List<CustomEvent> scheduleEvents) {
+        logger.info("broadcast " + EventSchedulerUtils.customEventNames(scheduleEvents) + " custom events");
+        events.forEach(catchExceptionWrapper(event -> event.customEvents(scheduleEvents)));
+    }
+
     @Override
     public List<EventCheck> broadcastCheck() {
         logger.info("broadcast check test");
         return events.stream().map(Event::check).collect(Collectors.toList());
     }
 
+    /**
+     * Calls the event checks one by one, so checks are delivered as they complete
+     * and later events are not called after a failure in fail fast mode.
+     * The timeout cannot be enforced here: a slow check blocks the calling thread.
+     */
+    @Override
+    public List<EventCheck> broadcastCheck(Duration timeout, boolean failFast, Consumer<EventCheck> eventCheckConsumer) {
+        logger.info("broadcast streaming check test, fail fast: " + failFast);
+        List<EventCheck> eventChecks = new ArrayList<>();
+        for (Event event : events) {
+            EventCheck eventCheck = event.check();
+            eventChecks.add(eventCheck);
+            eventCheckConsumer.accept(eventCheck);
+            if (failFast && eventCheck.getEventStatus() == EventStatus.FAILURE) {
+                logger.info("fail fast: skip remaining event checks after failure of " + event.getName());
+                break;
+            }
+        }
+        return eventChecks;
+    }
+
     @Override
     public void shutdownAndWaitAllTasksDone(long timeoutSeconds) {
         logger.debug("shutdown broadcaster called, is noop in this implementation.");
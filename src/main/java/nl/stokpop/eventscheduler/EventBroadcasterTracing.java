@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.EventCheck;
+import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.TraceRecorder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static nl.stokpop.eventscheduler.api.TraceRecordType.*;
+
+/**
+ * Records start and end of each broadcast of the wrapped EventBroadcaster.
+ *
+ * The trace is flushed after the check, after test and abort test broadcasts, so the trace is readable
+ * when a session is done. The recorder stays open for the checks after the session, it is closed when
+ * the broadcaster shuts down. Failures to flush or close are logged: tracing does not fail the test.
+ */
+class EventBroadcasterTracing implements EventBroadcaster {
+
+    private final EventBroadcaster broadcaster;
+    private final TraceRecorder recorder;
+    private final EventLogger logger;
+
+    EventBroadcasterTracing(EventBroadcaster broadcaster, TraceRecorder recorder, EventLogger logger) {
+        this.broadcaster = broadcaster;
+        this.recorder = recorder;
+        this.logger = logger;
+    }
+
+    @Override
+    public void broadcastBeforeTest() {
+        trace("beforeTest", broadcaster::broadcastBeforeTest);
+    }
+
+    @Override
+    public void broadcastStartTest() {
+        trace("startTest", broadcaster::broadcastStartTest);
+    }
+
+    @Override
+    public void broadcastAfterTest() {
+        try {
+            trace("afterTest", broadcaster::broadcastAfterTest);
+        } finally {
+            safely("flush", recorder::flush);
+        }
+    }
+
+    @Override
+    public void broadcastKeepAlive() {
+        trace("keepAlive", broadcaster::broadcastKeepAlive);
+    }
+
+    @Override
+    public void broadcastAbortTest() {
+        try {
+            trace("abortTest", broadcaster::broadcastAbortTest);
+        } finally {
+            safely("flush", recorder::flush);
+        }
+    }
+
+    @Override
+    public void broadcastCustomEvent(CustomEvent event) {
+        recorder.record(CUSTOM_EVENT, null, event.getName(), event.getDuration().toMillis());
+        trace("customEvent", () -> broadcaster.broadcastCustomEvent(event));
+    }
+
+    @Override
+    public void broadcastCustomEventAndWait(CustomEvent event) {
+        recorder.record(CUSTOM_EVENT, null, event.getName(), event.getDuration().toMillis());
+        trace("customEvent", () -> broadcaster.broadcastCustomEventAndWait(event));
+    }
+
+    @Override
+    public void broadcastCustomEvents(List<CustomEvent> events) {
+        events.forEach(event -> recorder.record(CUSTOM_EVENT, null, event.getName(), event.getDuration().toMillis()));
+        trace("customEvents", () -> broadcaster.broadcastCustomEvents(events));
+    }
+
+    @Override
+    public void broadcastCustomEventsAndWait(List<CustomEvent> events) {
+        events.forEach(event -> recorder.record(CUSTOM_EVENT, null, event.getName(), event.getDuration().toMillis()));
+        trace("customEvents", () -> broadcaster.broadcastCustomEventsAndWait(events));
+    }
+
+    @Override
+    public List<EventCheck> broadcastCheck() {
+        List<EventCheck> eventChecks = trace("check", () -> broadcaster.broadcastCheck());
+        safely("flush", recorder::flush);
+        return eventChecks;
+    }
+
+    @Override
+    public List<EventCheck> broadcastCheck(Duration timeout, boolean failFast, Consumer<EventCheck> eventCheckConsumer) {
+        List<EventCheck> eventChecks = trace("check", () -> broadcaster.broadcastCheck(timeout, failFast, eventCheckConsumer));
+        safely("flush", recorder::flush);
+        return eventChecks;
+    }
+
+    @Override
+    public List<String> drain(Duration timeout) {
+        return broadcaster.drain(timeout);
+    }
+
+    @Override
+    public void shutdownAndWaitAllTasksDone(long timeoutSeconds) {
+        broadcaster.shutdownAndWaitAllTasksDone(timeoutSeconds);
+        safely("close", recorder::close);
+    }
+
+    private void safely(String action, Runnable recorderAction) {
+        try {
+            recorderAction.run();
+        } catch (RuntimeException e) {
+            logger.error("trace recorder " + action + " failed, trace can be incomplete", e);
+        }
+    }
+
+    private void trace(String broadcast, Runnable runnable) {
+        trace(broadcast, () -> { runnable.run(); return null; });
+    }
+
+    private <T> T trace(String broadcast, Supplier<T> supplier) {
+        recorder.record(BROADCAST_START, null, broadcast, 0);
+        boolean failed = true;
+        try {
+            T result = supplier.get();
+            failed = false;
+            return result;
+        } finally {
+            recorder.record(BROADCAST_END, null, broadcast, failed ? 1 : 0);
+        }
+    }
+}
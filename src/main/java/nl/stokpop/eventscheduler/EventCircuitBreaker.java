@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import net.jcip.annotations.ThreadSafe;
+import nl.stokpop.eventscheduler.api.*;
+import nl.stokpop.eventscheduler.api.message.EventMessage;
+import nl.stokpop.eventscheduler.api.message.EventMessageBus;
+import nl.stokpop.eventscheduler.exception.handler.SchedulerHandlerException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker around the repeated calls of an Event: keep-alive and custom events.
+ *
+ * After a number of consecutive failures, exceptions or calls slower than the slow call threshold,
+ * the breaker opens and the calls are skipped. A call that is still running after the slow call
+ * threshold counts as failure at the next call, and no new keep-alive is started while the
+ * previous keep-alive of the event is still running. After the open duration one probe call is let through
+ * (half-open): when it succeeds the breaker closes, otherwise it opens again. A probe that is still running
+ * after the slow call threshold, or after the open duration when there is no threshold, counts as failed.
+ *
+ * The life cycle calls (before, start, after and abort test) and check are always passed on.
+ * State changes are sent as EventMessage and the counts are added to the event check message.
+ */
+@ThreadSafe
+class EventCircuitBreaker implements Event, EventWrapper {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    static final String MESSAGE_PREFIX = "circuit-breaker ";
+
+    private final Event event;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final long slowCallNanos;
+    private final Ticker ticker;
+    private final EventMessageBus messageBus;
+    private final EventLogger logger;
+
+    private final AtomicLong skippedCalls = new AtomicLong(0);
+    // state changes to publish after the lock is released
+    private final Queue<Runnable> stateChanges = new ConcurrentLinkedQueue<>();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private int openCount;
+    private final Set<InFlightCall> inFlightCalls = new HashSet<>();
+    private InFlightCall keepAliveInFlight;
+    // the call that is let through while half-open
+    private InFlightCall probe;
+
+    EventCircuitBreaker(Event event, int failureThreshold, Duration openDuration, Duration slowCallThreshold,
+                        Ticker ticker, EventMessageBus messageBus, EventLogger logger) {
+        this.event = event;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.slowCallNanos = slowCallThreshold == null ? 0 : slowCallThreshold.toNanos();
+        this.ticker = ticker;
+        this.messageBus = messageBus;
+        this.logger = logger;
+    }
+
+    @Override
+    public Event getWrappedEvent() {
+        return event;
+    }
+
+    @Override
+    public String getName() {
+        return event.getName();
+    }
+
+    @Override
+    public void beforeTest() {
+        event.beforeTest();
+    }
+
+    @Override
+    public void startTest() {
+        event.startTest();
+    }
+
+    @Override
+    public void afterTest() {
+        event.afterTest();
+    }
+
+    @Override
+    public void abortTest() {
+        event.abortTest();
+    }
+
+    @Override
+    public void keepAlive() {
+        guarded("keepAlive", true, event::keepAlive);
+    }
+
+    @Override
+    public void customEvent(CustomEvent scheduleEvent) {
+        guarded(scheduleEvent.getName(), false, () -> event.customEvent(scheduleEvent));
+    }
+
+    @Override
+    public void customEvents(List<CustomEvent> scheduleEvents) {
+        guarded(EventSchedulerUtils.customEventNames(scheduleEvents), false, () -> event.customEvents(scheduleEvents));
+    }
+
+    private void guarded(String callName, boolean keepAlive, Runnable call) {
+        InFlightCall inFlightCall = startCall(callName, keepAlive);
+        publishStateChanges();
+        if (inFlightCall == null) {
+            skippedCalls.incrementAndGet();
+            return;
+        }
+        String failure = null;
+        try {
+            call.run();
+        } catch (SchedulerHandlerException e) {
+            // kill and abort requests are answers of a working Event
+            throw e;
+        } catch (RuntimeException e) {
+            failure = callName + " failed: " + e.getMessage();
+            throw e;
+        } finally {
+            endCall(inFlightCall, failure);
+            publishStateChanges();
+        }
+    }
+
+    @Override
+    public EventCheck check() {
+        EventCheck eventCheck = event.check();
+        String summary = summary();
+        if (summary == null) {
+            return eventCheck;
+        }
+        String message = eventCheck.getMessage() == null ? summary : eventCheck.getMessage() + " " + summary;
+        return new EventCheck(eventCheck.getEventId(), eventCheck.getEventClassName(), eventCheck.getEventStatus(), message);
+    }
+
+    @Override
+    public Collection<String> allowedCustomEvents() {
+        return event.allowedCustomEvents();
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    long getSkippedCalls() {
+        return skippedCalls.get();
+    }
+
+    /**
+     * @return null when the breaker never opened
+     */
+    private synchronized String summary() {
+        if (openCount == 0) {
+            return null;
+        }
+        return "[circuit breaker: " + state + ", opened " + openCount + " times, skipped " + skippedCalls.get() + " calls]";
+    }
+
+    /**
+     * @return the started call, null when the call is skipped
+     */
+    private synchronized InFlightCall startCall(String callName, boolean keepAlive) {
+        countOverdueCalls();
+        if (keepAlive && keepAliveInFlight != null) {
+            // do not start another keep-alive next to one that hangs
+            return null;
+        }
+        if (!allowCall()) {
+            return null;
+        }
+        InFlightCall inFlightCall = new InFlightCall(callName, ticker.nanoTime());
+        inFlightCalls.add(inFlightCall);
+        if (keepAlive) {
+            keepAliveInFlight = inFlightCall;
+        }
+        if (state == State.HALF_OPEN) {
+            probe = inFlightCall;
+        }
+        return inFlightCall;
+    }
+
+    /**
+     * A call that is still running after the slow call threshold counts as failure now, not when it returns:
+     * a call that hangs would otherwise never count. A probe always has a limit, otherwise a hanging probe
+     * keeps the breaker half-open and all calls are skipped for the rest of the test.
+     */
+    private void countOverdueCalls() {
+        long now = ticker.nanoTime();
+        for (InFlightCall inFlightCall : inFlightCalls) {
+            boolean isProbe = inFlightCall == probe;
+            long limitNanos = isProbe && slowCallNanos <= 0 ? openDurationNanos : slowCallNanos;
+            if (limitNanos > 0 && !inFlightCall.countedAsFailure && now - inFlightCall.startNanos > limitNanos) {
+                inFlightCall.countedAsFailure = true;
+                onFailure(inFlightCall.name + " still running after " + (isProbe ? "probe limit" : "slow call threshold") + " of " + Duration.ofNanos(limitNanos));
+            }
+        }
+    }
+
+    private synchronized void endCall(InFlightCall inFlightCall, String failure) {
+        inFlightCalls.remove(inFlightCall);
+        if (keepAliveInFlight == inFlightCall) {
+            keepAliveInFlight = null;
+        }
+        if (probe == inFlightCall) {
+            probe = null;
+        }
+        if (inFlightCall.countedAsFailure) {
+            return;
+        }
+        long durationNanos = ticker.nanoTime() - inFlightCall.startNanos;
+        if (failure != null) {
+            onFailure(failure);
+        }
+        else if (slowCallNanos > 0 && durationNanos > slowCallNanos) {
+            onFailure(inFlightCall.name + " took " + Duration.ofNanos(durationNanos) + ", slow call threshold is " + Duration.ofNanos(slowCallNanos));
+        }
+        else {
+            onSuccess();
+        }
+    }
+
+    private boolean allowCall() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (ticker.nanoTime() - openedAtNanos >= openDurationNanos) {
+                    // this call is the probe, other calls are skipped until it is done
+                    changeState(State.HALF_OPEN, "probe after " + Duration.ofNanos(openDurationNanos));
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            changeState(State.CLOSED, "probe succeeded");
+        }
+    }
+
+    private void onFailure(String reason) {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            open("probe failed: " + reason);
+        }
+        else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open(consecutiveFailures + " consecutive failures, last: " + reason);
+        }
+    }
+
+    private void open(String reason) {
+        probe = null;
+        openedAtNanos = ticker.nanoTime();
+        openCount++;
+        changeState(State.OPEN, reason);
+    }
+
+    /**
+     * Called with the lock held: the state change is only queued, it is published after the lock is released.
+     */
+    private void changeState(State newState, String reason) {
+        State oldState = state;
+        state = newState;
+        stateChanges.add(() -> publishStateChange(oldState, newState, reason));
+    }
+
+    /**
+     * Log and send the queued state changes, outside the lock: message receivers run user code.
+     */
+    private void publishStateChanges() {
+        Runnable stateChange;
+        while ((stateChange = stateChanges.poll()) != null) {
+            stateChange.run();
+        }
+    }
+
+    private void publishStateChange(State oldState, State newState, String reason) {
+        logger.warn("circuit breaker of event " + event.getName() + " from " + oldState + " to " + newState + ": " + reason);
+        if (messageBus != null) {
+            messageBus.send(EventMessage.builder()
+                .pluginName(event.getName())
+                .message(MESSAGE_PREFIX + newState)
+                .variable("state", newState.name())
+                .variable("previousState", oldState.name())
+                .variable("reason", reason)
+                .build());
+        }
+    }
+
+    private static final class InFlightCall {
+        private final String name;
+        private final long startNanos;
+        private boolean countedAsFailure;
+
+        private InFlightCall(String name, long startNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventCircuitBreaker for " + event;
+    }
+}
@@ -20,12 +20,16 @@ import nl.stokpop.eventscheduler.api.config.EventContext;
 import nl.stokpop.eventscheduler.api.config.EventSchedulerContext;
 import nl.stokpop.eventscheduler.api.message.EventMessage;
 import nl.stokpop.eventscheduler.api.message.EventMessageBus;
+import nl.stokpop.eventscheduler.api.message.SchedulerSignal;
 import nl.stokpop.eventscheduler.exception.EventCheckFailureException;
 
-import java.util.Collection;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public final class EventScheduler {
@@ -38,7 +42,7 @@ public final class EventScheduler {
 
     private final EventBroadcaster broadcaster;
 
-    private final Collection<CustomEvent> scheduleEvents;
+    private final EventGenerator customEventGenerator;
 
     private final EventSchedulerContext eventSchedulerContext;
 
@@ -50,12 +54,14 @@ public final class EventScheduler {
 
     private final AtomicInteger goMessageCount = new AtomicInteger(0);
 
+    private final AtomicInteger signalCount = new AtomicInteger(0);
+
     private final StartTest startTest;
 
     private final int waitForGoMessagesCount;
 
     EventScheduler(EventBroadcaster broadcaster,
-                   Collection<CustomEvent> scheduleEvents,
+                   EventGenerator customEventGenerator,
                    EventSchedulerContext eventSchedulerContext,
                    EventMessageBus messageBus,
                    EventLogger logger,
@@ -64,7 +70,7 @@ public final class EventScheduler {
         this.name = eventSchedulerContext.getTestContext().getTestRunId();
         this.checkResultsEnabled = eventSchedulerContext.isSchedulerEnabled();
         this.broadcaster = broadcaster;
-        this.scheduleEvents = scheduleEvents;
+        this.customEventGenerator = customEventGenerator;
         this.eventSchedulerContext = eventSchedulerContext;
         this.logger = logger;
         this.eventSchedulerEngine = eventSchedulerEngine;
@@ -77,6 +83,9 @@ public final class EventScheduler {
 
         this.startTest = createStartTest();
 
+        // kill and abort signals are handled right away, not at the next keep-alive
+        messageBus.addReceiver(this::checkMessageForSignal);
+
         // add startTest to this receiver... if needed...
         if (waitForGoMessagesCount != 0) {
             logger.info("Wait for Go! messages is active, need " + waitForGoMessagesCount + " Go! messages to start!");
@@ -91,7 +100,7 @@ public final class EventScheduler {
             // The schedulerExceptionHandler can be null in constructor.
             // Can result in: "SchedulerHandlerException KILL was thrown, but no SchedulerExceptionHandler is present."
             eventSchedulerEngine.startKeepAliveThread(name, eventSchedulerContext.getKeepAliveInterval(), broadcaster, schedulerExceptionHandler);
-            eventSchedulerEngine.startCustomEventScheduler(scheduleEvents, broadcaster);
+            eventSchedulerEngine.startCustomEventScheduler(customEventGenerator.generateLazily(), broadcaster);
         };
     }
 
@@ -106,6 +115,37 @@ public final class EventScheduler {
         }
     }
 
+    private void checkMessageForSignal(EventMessage message) {
+        SchedulerExceptionType signalType = SchedulerSignal.signalType(message);
+        if (signalType == null) {
+            return;
+        }
+        String reason = message.getPluginName() + ": " + message.getVariables().getOrDefault(SchedulerSignal.REASON_VARIABLE, "");
+        SchedulerExceptionHandler handler = schedulerExceptionHandler;
+        if (!isSessionActive.get()) {
+            logger.warn("received " + signalType + " signal from " + reason + ", but session is not active, ignoring signal");
+        }
+        else if (handler == null) {
+            logger.warn("received " + signalType + " signal from " + reason + ", but no SchedulerExceptionHandler is present");
+        }
+        else {
+            logger.info("received " + signalType + " signal, invoke " + signalType + " on SchedulerExceptionHandler: " + reason);
+            // The sender is typically an Event on a broadcaster thread. When the handler aborts or stops
+            // the session, the broadcaster interrupts its threads: run the handler on its own thread,
+            // so it does not interrupt itself.
+            Thread signalThread = new Thread(() -> {
+                if (signalType == SchedulerExceptionType.KILL) {
+                    handler.kill(reason);
+                }
+                else {
+                    handler.abort(reason);
+                }
+            }, "Event-Signal-Thread-" + signalCount.incrementAndGet());
+            signalThread.setDaemon(true);
+            signalThread.start();
+        }
+    }
+
     public void addKillSwitch(SchedulerExceptionHandler schedulerExceptionHandler) {
         this.schedulerExceptionHandler = schedulerExceptionHandler;
     }
@@ -142,7 +182,7 @@ public final class EventScheduler {
         else {
             logger.info("stop test session.");
 
-            eventSchedulerEngine.shutdownThreadsNow();
+            drain(eventSchedulerContext.getDrainTimeout());
 
             broadcaster.broadcastAfterTest();
 
@@ -150,6 +190,23 @@ public final class EventScheduler {
         }
     }
 
+    /**
+     * Stop the timeline and wait for the in-flight keep-alive and custom event calls,
+     * so 'after test' sees a quiescent system.
+     */
+    private void drain(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        eventSchedulerEngine.stopTimeline(timeout);
+        reportAndCutOffInFlightCalls(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+    }
+
+    private void reportAndCutOffInFlightCalls(Duration timeout) {
+        List<String> cutOffCalls = broadcaster.drain(timeout);
+        if (!cutOffCalls.isEmpty()) {
+            logger.warn("in-flight calls still running after drain timeout of " + timeout + " are cut off: " + cutOffCalls);
+        }
+    }
+
     /**
      * @return true when stop or abort has been called.
      */
@@ -171,10 +228,84 @@ public final class EventScheduler {
 
             eventSchedulerEngine.shutdownThreadsNow();
 
+            // no waiting on abort, only report and interrupt what is still running
+            reportAndCutOffInFlightCalls(Duration.ZERO);
+
             broadcaster.broadcastAbortTest();
         }
     }
 
+    /**
+     * Add a custom event to the schedule of the running session.
+     *
+     * The duration of the custom event is the time from the start of the test until the event fires,
+     * the same as for the custom events in the schedule script. A duration in the past fires immediately.
+     *
+     * @param customEvent the custom event to add
+     * @return the scheduled custom event, use it to cancel or reschedule
+     * @throws nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException when the session is not running
+     */
+    public ScheduledCustomEvent addCustomEvent(CustomEvent customEvent) {
+        return eventSchedulerEngine.addCustomEvent(customEvent);
+    }
+
+    /**
+     * Cancel a pending custom event of the running session.
+     *
+     * @param scheduledCustomEvent the custom event to cancel
+     * @return true when cancelled, false when the custom event has already fired or was cancelled before
+     */
+    public boolean cancelCustomEvent(ScheduledCustomEvent scheduledCustomEvent) {
+        return eventSchedulerEngine.cancelCustomEvent(scheduledCustomEvent.getId());
+    }
+
+    /**
+     * Move a pending custom event of the running session to a new time.
+     *
+     * @param scheduledCustomEvent the custom event to move
+     * @param fireAt the new time from the start of the test until the event fires
+     * @return the rescheduled custom event with the same id, empty when the custom event has already fired or was cancelled
+     */
+    public Optional<ScheduledCustomEvent> rescheduleCustomEvent(ScheduledCustomEvent scheduledCustomEvent, Duration fireAt) {
+        return eventSchedulerEngine.rescheduleCustomEvent(scheduledCustomEvent.getId(), fireAt);
+    }
+
+    /**
+     * @return the custom events of the running session that have not fired yet, ordered by fire-at time
+     */
+    public List<ScheduledCustomEvent> getCustomEventSchedule() {
+        return eventSchedulerEngine.customEventSchedule();
+    }
+
+    /**
+     * Freeze the custom event timeline of the running session, for instance during a manual intervention.
+     *
+     * The pending custom events fire after {@link #resumeSchedule()} with their relative spacing intact:
+     * an event due 10 seconds after the pause fires 10 seconds after the resume.
+     * Keep-alive calls continue while paused.
+     */
+    public void pauseSchedule() {
+        if (!eventSchedulerEngine.pauseCustomEvents()) {
+            logger.warn("unexpected call to pause schedule, schedule was paused already, ignoring call");
+        }
+    }
+
+    /**
+     * Continue the custom event timeline after {@link #pauseSchedule()}.
+     */
+    public void resumeSchedule() {
+        if (!eventSchedulerEngine.resumeCustomEvents()) {
+            logger.warn("unexpected call to resume schedule, schedule was not paused, ignoring call");
+        }
+    }
+
+    /**
+     * @return true when the custom event timeline is paused
+     */
+    public boolean isSchedulePaused() {
+        return eventSchedulerEngine.isCustomEventsPaused();
+    }
+
     /**
      * Call to check results of this test run. Catch the exception to do something useful.
      * @throws EventCheckFailureException when there are events that report failures
@@ -184,7 +315,56 @@ public final class EventScheduler {
 
         List<EventCheck> eventChecks = broadcaster.broadcastCheck();
 
-        logger.debug("event checks: " + eventChecks);
+        verifyEventChecks(eventChecks);
+    }
+
+    /**
+     * Streaming variant of checkResults: event checks are given to the consumer as they complete,
+     * so one slow event check does not delay the decision when fail fast is used.
+     *
+     * Event checks that are not done within the timeout are reported as UNKNOWN, an event check that
+     * throws an exception is reported as FAILURE.
+     *
+     * @param timeout maximum time to wait for the event checks
+     * @param failFast when true, stop at the first event check that reports a FAILURE
+     * @param eventCheckConsumer receives each event check as it completes, can be null
+     * @return the received event checks, in order of completion
+     * @throws EventCheckFailureException when there are events that report failures
+     */
+    public List<EventCheck> checkResults(Duration timeout, boolean failFast, Consumer<EventCheck> eventCheckConsumer) throws EventCheckFailureException {
+        logger.info("check results called, streaming with timeout " + timeout + " and fail fast: " + failFast);
+
+        Consumer<EventCheck> consumer = eventCheckConsumer == null
+            ? eventCheck -> logger.debug(() -> "event check: " + eventCheck)
+            : eventCheckConsumer;
+
+        List<EventCheck> eventChecks = broadcaster.broadcastCheck(timeout, failFast, consumer);
+
+        verifyEventChecks(eventChecks);
+
+        return eventChecks;
+    }
+
+    private void verifyEventChecks(List<EventCheck> eventChecks) {
+        verifyAllChecks(withCustomEventScheduleCheck(eventChecks));
+    }
+
+    /**
+     * A custom event source that fails during the test stops the rest of the schedule, report it as a failed check.
+     */
+    private List<EventCheck> withCustomEventScheduleCheck(List<EventCheck> eventChecks) {
+        RuntimeException scheduleFailure = eventSchedulerEngine.customEventSourceFailure();
+        if (scheduleFailure == null) {
+            return eventChecks;
+        }
+        List<EventCheck> checks = new ArrayList<>(eventChecks);
+        checks.add(new EventCheck("custom-event-schedule", EventSchedulerEngine.class.getName(), EventStatus.FAILURE,
+            "custom event schedule failed during the test, next custom events did not fire: " + scheduleFailure.getMessage()));
+        return checks;
+    }
+
+    private void verifyAllChecks(List<EventCheck> eventChecks) {
+        logger.debug(() -> "event checks: " + eventChecks);
 
         boolean success = eventChecks.stream().allMatch(e -> e.getEventStatus() != EventStatus.FAILURE);
 
@@ -17,6 +17,8 @@ package nl.stokpop.eventscheduler;
 
 import net.jcip.annotations.NotThreadSafe;
 import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.Ticker;
+import nl.stokpop.eventscheduler.api.TraceRecorder;
 import nl.stokpop.eventscheduler.api.config.EventSchedulerConfig;
 import nl.stokpop.eventscheduler.api.config.EventSchedulerContext;
 
@@ -38,13 +40,40 @@ public class EventSchedulerBuilder {
      * @return a fully constructed EventScheduler
      */
     public static EventScheduler of(EventSchedulerConfig eventSchedulerConfig, EventLogger logger, ClassLoader classLoader) {
+        return of(eventSchedulerConfig, logger, classLoader, null);
+    }
+
+    /**
+     * Create an EventScheduler from an EventSchedulerConfig that records its timeline.
+     * @param eventSchedulerConfig note that this eventSchedulerConfig will be modified in this method (beh: better make immutable)
+     * @param logger the EventLogger for log lines from the EventScheduler and its construction
+     * @param classLoader needed in cased where the dynamic class creation does not work in default classloader, can be null
+     * @param traceRecorder records broadcasts, Event calls, custom events and messages, e.g. a BinaryTraceRecorder, can be null
+     * @return a fully constructed EventScheduler
+     */
+    public static EventScheduler of(EventSchedulerConfig eventSchedulerConfig, EventLogger logger, ClassLoader classLoader, TraceRecorder traceRecorder) {
+        return of(eventSchedulerConfig, logger, classLoader, traceRecorder, null);
+    }
+
+    /**
+     * Create an EventScheduler from an EventSchedulerConfig with its own time source.
+     * @param eventSchedulerConfig note that this eventSchedulerConfig will be modified in this method (beh: better make immutable)
+     * @param logger the EventLogger for log lines from the EventScheduler and its construction
+     * @param classLoader needed in cased where the dynamic class creation does not work in default classloader, can be null
+     * @param traceRecorder records broadcasts, Event calls, custom events and messages, e.g. a BinaryTraceRecorder, can be null
+     * @param ticker time source for the custom events timeline and keep-alive calls, should advance at the pace of real time, can be null for System.nanoTime()
+     * @return a fully constructed EventScheduler
+     */
+    public static EventScheduler of(EventSchedulerConfig eventSchedulerConfig, EventLogger logger, ClassLoader classLoader, TraceRecorder traceRecorder, Ticker ticker) {
 
         final EventSchedulerContext schedulerContext = eventSchedulerConfig.toContext(logger);
 
         EventSchedulerBuilderInternal eventSchedulerBuilder = new EventSchedulerBuilderInternal()
             .setEventSchedulerContext(schedulerContext)
             .setCustomEvents(eventSchedulerConfig.getScheduleScript())
-            .setLogger(logger);
+            .setLogger(logger)
+            .setTraceRecorder(traceRecorder)
+            .setTicker(ticker);
 
 //        List<EventContext> eventContexts = schedulerContext.getEventContexts();
 //        if (eventContexts != null) {
@@ -22,16 +22,26 @@ import nl.stokpop.eventscheduler.api.config.EventSchedulerContext;
 import nl.stokpop.eventscheduler.api.message.EventMessageBus;
 import nl.stokpop.eventscheduler.event.EventFactoryProvider;
 import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import nl.stokpop.eventscheduler.generator.CompiledScheduleCache;
 import nl.stokpop.eventscheduler.generator.EventGeneratorDefault;
 import nl.stokpop.eventscheduler.generator.EventGeneratorFactoryDefault;
 import nl.stokpop.eventscheduler.generator.EventGeneratorFactoryProvider;
 import nl.stokpop.eventscheduler.log.EventLoggerDevNull;
 import nl.stokpop.eventscheduler.log.EventLoggerWithName;
 
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -40,7 +50,8 @@ import java.util.stream.Collectors;
 @NotThreadSafe
 class EventSchedulerBuilderInternal {
 
-    private final Map<String, EventContext> eventContexts = new ConcurrentHashMap<>();
+    // keeps the order of the config, so Events are created and called in a deterministic order
+    private final Map<String, EventContext> eventContexts = new LinkedHashMap<>();
 
     private EventSchedulerContext eventSchedulerContext;
 
@@ -58,6 +69,10 @@ class EventSchedulerBuilderInternal {
 
     private EventMessageBus eventMessageBus;
 
+    private TraceRecorder traceRecorder;
+
+    private Ticker ticker = Ticker.SYSTEM;
+
     public EventSchedulerBuilderInternal setEventSchedulerEngine(EventSchedulerEngine executorEngine) {
         this.eventSchedulerEngine = executorEngine;
         return this;
@@ -73,6 +88,27 @@ class EventSchedulerBuilderInternal {
         return this;
     }
 
+    /**
+     * Optional. When set, all broadcasts, Event calls, custom events and messages are recorded.
+     * @param traceRecorder the recorder for the scheduler timeline, can be null
+     * @return this
+     */
+    public EventSchedulerBuilderInternal setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+        return this;
+    }
+
+    /**
+     * Optional. The time source for the custom events timeline and keep-alive calls, default is System.nanoTime().
+     * The scheduler threads wait in real time, so the ticker should advance at the pace of real time.
+     * @param ticker the time source
+     * @return this
+     */
+    public EventSchedulerBuilderInternal setTicker(Ticker ticker) {
+        this.ticker = ticker == null ? Ticker.SYSTEM : ticker;
+        return this;
+    }
+
     public EventSchedulerBuilderInternal setLogger(EventLogger logger) {
         this.logger = logger;
         return this;
@@ -110,8 +146,11 @@ class EventSchedulerBuilderInternal {
 
         eventSchedulerContext.getEventContexts().forEach(this::addEvent);
 
-        List<CustomEvent> customEvents =
-                generateCustomEventSchedule(customEventsText, logger, classLoader);
+        EventGenerator customEventGenerator =
+                createCustomEventGenerator(customEventsText, logger, classLoader);
+        // generate the schedule now, so a wrong schedule fails the build instead of the test run.
+        // It is not kept: each session generates it again, so it is not on the heap between build and start.
+        customEventGenerator.generateLazily();
 
         EventFactoryProvider provider = (eventFactoryProvider == null)
                 ? EventFactoryProvider.createInstanceFromClasspath(classLoader)
@@ -121,24 +160,46 @@ class EventSchedulerBuilderInternal {
                 .filter(eventConfig -> !eventConfig.isEnabled())
                 .forEach(eventConfig -> logger.info("Event disabled: " + eventConfig.getName()));
 
-        List<Event> events = eventContexts.values().stream()
+        List<EventContext> enabledEventContexts = eventContexts.values().stream()
                 .filter(EventContext::isEnabled)
-                .map(context -> createEvent(provider, context, eventMessageBus))
+                .collect(Collectors.toList());
+
+        List<Event> createdEvents = createEvents(provider, enabledEventContexts, eventMessageBus, classLoader);
+
+        int failureThreshold = eventSchedulerContext.getCircuitBreakerFailureThreshold();
+        List<Event> events = failureThreshold <= 0
+            ? createdEvents
+            : createdEvents.stream()
+                .map(event -> new EventCircuitBreaker(event, failureThreshold,
+                    eventSchedulerContext.getCircuitBreakerOpenDuration(),
+                    eventSchedulerContext.getCircuitBreakerSlowCallThreshold(),
+                    ticker, eventMessageBus, logger))
                 .collect(Collectors.toList());
 
         EventBroadcasterFactory broadcasterFactory = (eventBroadcasterFactory == null)
-                ? EventBroadcasterAsync::new
+                ? (broadcastEvents, broadcastLogger) -> new EventBroadcasterAsync(broadcastEvents, broadcastLogger)
                 : eventBroadcasterFactory;
 
-        EventBroadcaster broadcaster = broadcasterFactory.create(events, logger);
+        EventBroadcaster broadcaster;
+        if (traceRecorder == null) {
+            broadcaster = broadcasterFactory.create(events, logger);
+        }
+        else {
+            List<Event> tracingEvents = events.stream()
+                .map(event -> new EventTracing(event, traceRecorder))
+                .collect(Collectors.toList());
+            broadcaster = new EventBroadcasterTracing(broadcasterFactory.create(tracingEvents, logger), traceRecorder, logger);
+            eventMessageBus.addReceiver(message -> traceRecorder.record(TraceRecordType.MESSAGE, message.getPluginName(), message.getMessage(), 0));
+        }
 
         eventSchedulerEngine = (eventSchedulerEngine == null)
-            ? new EventSchedulerEngine(logger)
+            ? new EventSchedulerEngine(logger, new SchedulerTime(ticker, eventSchedulerContext.getTimeSpeedFactor()), null,
+                eventSchedulerContext.isCoalesceCustomEvents())
             : eventSchedulerEngine;
 
         return new EventScheduler(
             broadcaster,
-            customEvents,
+            customEventGenerator,
             eventSchedulerContext,
             eventMessageBus,
             logger,
@@ -146,6 +207,115 @@ class EventSchedulerBuilderInternal {
             schedulerExceptionHandler);
     }
 
+    /**
+     * Create the Events, in parallel when eventCreationParallelism is above 1.
+     * The returned list has the same order as the given contexts. All creation errors
+     * are collected and thrown as one exception, so all broken Events are reported at once.
+     */
+    private List<Event> createEvents(EventFactoryProvider provider, List<EventContext> contexts, EventMessageBus messageBus, ClassLoader classLoader) {
+        int parallelism = Math.min(eventSchedulerContext.getEventCreationParallelism(), contexts.size());
+
+        List<EventCreation> creations = new ArrayList<>(contexts.size());
+        if (parallelism <= 1) {
+            contexts.forEach(context -> creations.add(timedCreateEvent(provider, context, messageBus)));
+        }
+        else {
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism, new EventCreationThreadFactory(classLoader));
+            try {
+                List<Future<EventCreation>> futures = new ArrayList<>(contexts.size());
+                contexts.forEach(context -> futures.add(executor.submit(() -> timedCreateEvent(provider, context, messageBus))));
+                for (Future<EventCreation> future : futures) {
+                    creations.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EventSchedulerRuntimeException("Interrupted while creating events", e);
+            } catch (ExecutionException e) {
+                // timedCreateEvent catches all exceptions, so this is unexpected
+                throw new EventSchedulerRuntimeException("Unexpected failure while creating events", e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        logCreationTimes(creations, parallelism);
+
+        List<EventCreation> failures = creations.stream()
+            .filter(creation -> creation.failure != null)
+            .collect(Collectors.toList());
+
+        if (!failures.isEmpty()) {
+            String message = failures.stream()
+                .map(creation -> creation.eventName + " (" + creation.factoryClassName + "): " + creation.failure.getMessage())
+                .collect(Collectors.joining("; ", "Failed to create " + failures.size() + " of " + creations.size() + " events: ", ""));
+            EventSchedulerRuntimeException exception = new EventSchedulerRuntimeException(message, failures.get(0).failure);
+            failures.stream().skip(1).forEach(creation -> exception.addSuppressed(creation.failure));
+            throw exception;
+        }
+
+        return creations.stream().map(creation -> creation.event).collect(Collectors.toList());
+    }
+
+    private EventCreation timedCreateEvent(EventFactoryProvider provider, EventContext context, EventMessageBus messageBus) {
+        long start = System.nanoTime();
+        try {
+            Event event = createEvent(provider, context, messageBus);
+            return new EventCreation(context, event, null, System.nanoTime() - start);
+        } catch (Exception e) {
+            return new EventCreation(context, null, e, System.nanoTime() - start);
+        }
+    }
+
+    private void logCreationTimes(List<EventCreation> creations, int parallelism) {
+        if (creations.isEmpty()) {
+            return;
+        }
+        Map<String, Long> nanosPerFactory = creations.stream()
+            .collect(Collectors.groupingBy(creation -> creation.factoryClassName, LinkedHashMap::new, Collectors.summingLong(creation -> creation.durationNanos)));
+        String times = nanosPerFactory.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+            .map(entry -> entry.getKey() + "=" + TimeUnit.NANOSECONDS.toMillis(entry.getValue()) + " ms")
+            .collect(Collectors.joining(", "));
+        logger.info("Created " + creations.size() + " events with parallelism " + Math.max(1, parallelism) + ", time per factory: " + times);
+    }
+
+    private static final class EventCreation {
+        private final String eventName;
+        private final String factoryClassName;
+        private final Event event;
+        private final Exception failure;
+        private final long durationNanos;
+
+        private EventCreation(EventContext context, Event event, Exception failure, long durationNanos) {
+            this.eventName = context.getName();
+            this.factoryClassName = context.getEventFactory();
+            this.event = event;
+            this.failure = failure;
+            this.durationNanos = durationNanos;
+        }
+    }
+
+    /**
+     * Daemon threads with the given classloader as context classloader, so factories
+     * that load resources via the thread see the same classpath as in sequential mode.
+     */
+    private static final class EventCreationThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+        private final ClassLoader classLoader;
+
+        private EventCreationThreadFactory(ClassLoader classLoader) {
+            this.classLoader = classLoader == null ? Thread.currentThread().getContextClassLoader() : classLoader;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Event-Creation-Thread-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private Event createEvent(EventFactoryProvider provider, EventContext context, EventMessageBus messageBus) {
         String factoryClassName = context.getEventFactory();
@@ -163,7 +333,7 @@ class EventSchedulerBuilderInternal {
         return index != -1 ? factoryClassName.substring(0, index) : factoryClassName;
     }
 
-    private List<CustomEvent> generateCustomEventSchedule(String text, EventLogger logger, ClassLoader classLoader) {
+    private EventGenerator createCustomEventGenerator(String text, EventLogger logger, ClassLoader classLoader) {
         EventGenerator eventGenerator;
         EventGeneratorProperties eventGeneratorProperties;
 
@@ -186,14 +356,24 @@ class EventSchedulerBuilderInternal {
         else {
             // assume the default input of lines of events
             Map<String, String> properties = new HashMap<>();
-            properties.put("eventSchedule", text);
+            properties.put(EventGeneratorDefault.EVENT_SCHEDULE_TAG, text);
+            if (eventSchedulerContext.isParallelScheduleParsing()) {
+                properties.put(EventGeneratorDefault.PARALLEL_PARSING_TAG, "true");
+            }
 
             eventGeneratorProperties = new EventGeneratorProperties(properties);
             EventLoggerWithName myLogger = new EventLoggerWithName("defaultFactory", EventGeneratorDefault.class.getName(), logger);
             eventGenerator = new EventGeneratorFactoryDefault().create(eventGeneratorProperties, myLogger);
+
+            // the default generator only uses the script, custom generators can read other input
+            if (eventSchedulerContext.isScheduleCacheEnabled()) {
+                String cacheDir = eventSchedulerContext.getScheduleCacheDir();
+                CompiledScheduleCache cache = new CompiledScheduleCache(cacheDir == null ? null : Paths.get(cacheDir), myLogger);
+                eventGenerator = cache.cached(eventGenerator, EventGeneratorDefault.class.getName(), text);
+            }
         }
 
-        return eventGenerator.generate();
+        return eventGenerator;
     }
 
     /**
@@ -16,33 +16,97 @@
 package nl.stokpop.eventscheduler;
 
 import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventRepeat;
 import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.ScheduledCustomEvent;
 import nl.stokpop.eventscheduler.api.SchedulerExceptionHandler;
 import nl.stokpop.eventscheduler.api.SchedulerExceptionType;
 import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
 import nl.stokpop.eventscheduler.exception.handler.SchedulerHandlerException;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class EventSchedulerEngine {
 
+    // maximum number of pending custom events, more events are pulled from the source when events fire
+    static final int CUSTOM_EVENT_PULL_WINDOW = 1000;
+
     private final EventLogger logger;
 
     private ScheduledExecutorService executorKeepAlive;
     private ScheduledExecutorService executorCustomEvents;
 
+    // the pending custom events by id, an event is removed when it fires or is cancelled
+    private final Map<Long, ScheduledEntry> customEventSchedule = new ConcurrentHashMap<>();
+    private final AtomicLong customEventIds = new AtomicLong(0);
+    // the custom events not pulled yet, in fire-at order
+    private Iterator<CustomEvent> customEventSource = Collections.emptyIterator();
+    // the error of the custom event source, no more events are pulled after an error
+    private volatile RuntimeException customEventSourceFailure;
+    private EventBroadcaster customEventBroadcaster;
+    private final SchedulerTime schedulerTime;
+    private final SchedulerExecutorFactory executorFactory;
+    private final PausableClock customEventClock;
+    // only used for virtual time: true while the virtual timeline runner is active
+    private boolean virtualTimelineRunning;
+    // only used for virtual time: the keep-alive calls follow the virtual timeline
+    private KeepAliveRunner virtualKeepAlive;
+    private long virtualKeepAliveIntervalNanos;
+    private long nextVirtualKeepAliveNanos;
+    // deliver custom events that are due at the same instant as one batch
+    private final boolean coalesceCustomEvents;
+
     EventSchedulerEngine(EventLogger logger) {
+        this(logger, SchedulerTime.realTime());
+    }
+
+    EventSchedulerEngine(EventLogger logger, SchedulerTime schedulerTime) {
+        this(logger, schedulerTime, null);
+    }
+
+    /**
+     * @param executorFactory creates the keep-alive and custom event executors, null for the default thread pools
+     */
+    EventSchedulerEngine(EventLogger logger, SchedulerTime schedulerTime, SchedulerExecutorFactory executorFactory) {
+        this(logger, schedulerTime, executorFactory, false);
+    }
+
+    /**
+     * @param executorFactory creates the keep-alive and custom event executors, null for the default thread pools
+     * @param coalesceCustomEvents broadcast custom events that are due at the same instant as one batch
+     */
+    EventSchedulerEngine(EventLogger logger, SchedulerTime schedulerTime, SchedulerExecutorFactory executorFactory, boolean coalesceCustomEvents) {
         if (logger == null) {
             throw new EventSchedulerRuntimeException("logger is null");
         }
+        if (schedulerTime == null) {
+            throw new EventSchedulerRuntimeException("schedulerTime is null");
+        }
         this.logger = logger;
+        this.schedulerTime = schedulerTime;
+        this.executorFactory = executorFactory;
+        this.coalesceCustomEvents = coalesceCustomEvents;
+        this.customEventClock = new PausableClock(schedulerTime::nanoTime);
     }
 
     void startKeepAliveThread(String name, Duration keepAliveDuration, EventBroadcaster broadcaster, SchedulerExceptionHandler schedulerExceptionHandler) {
@@ -57,7 +121,19 @@ class EventSchedulerEngine {
         executorKeepAlive = createKeepAliveScheduler();
         
         KeepAliveRunner keepAliveRunner = new KeepAliveRunner(name, broadcaster, schedulerExceptionHandler);
-        executorKeepAlive.scheduleAtFixedRate(keepAliveRunner, 0, keepAliveDuration.getSeconds(), TimeUnit.SECONDS);
+        if (schedulerTime.isVirtual()) {
+            // the next keep-alive calls are made by the virtual timeline, on its way to the next custom event
+            synchronized (this) {
+                virtualKeepAlive = keepAliveRunner;
+                virtualKeepAliveIntervalNanos = keepAliveDuration.toNanos();
+                nextVirtualKeepAliveNanos = schedulerTime.nanoTime() + virtualKeepAliveIntervalNanos;
+            }
+            executorKeepAlive.execute(keepAliveRunner);
+        }
+        else {
+            long periodNanos = Math.max(1, schedulerTime.toTickerNanos(keepAliveDuration.toNanos()));
+            executorKeepAlive.scheduleAtFixedRate(keepAliveRunner, 0, periodNanos, TimeUnit.NANOSECONDS);
+        }
     }
 
     private void nullChecks(EventBroadcaster broadcaster) {
@@ -73,39 +149,443 @@ class EventSchedulerEngine {
         nullChecks(broadcaster);
     }
 
-    private void addToExecutor(ScheduledExecutorService executorService, CustomEvent event, EventBroadcaster broadcaster) {
-        executorService.schedule(new EventRunner(event, broadcaster), event.getDuration().getSeconds(), TimeUnit.SECONDS);
+    private ScheduledCustomEvent addToExecutor(long id, CustomEvent event) {
+        return addToExecutor(new ScheduledEntry(new ScheduledCustomEvent(id, event)));
+    }
+
+    private ScheduledCustomEvent addToExecutor(ScheduledEntry entry) {
+        customEventSchedule.put(entry.scheduledCustomEvent.getId(), entry);
+        // while paused, the entry is armed on resume
+        if (!customEventClock.isPaused()) {
+            arm(entry);
+        }
+        return entry.scheduledCustomEvent;
+    }
+
+    private void arm(ScheduledEntry entry) {
+        if (schedulerTime.isVirtual()) {
+            startVirtualTimeline();
+            return;
+        }
+        long delayNanos = entry.scheduledCustomEvent.getCustomEvent().getDuration().toNanos() - customEventClock.elapsedNanos();
+        long tickerDelayNanos = schedulerTime.toTickerNanos(Math.max(0, delayNanos));
+        entry.future = executorCustomEvents.schedule(new EventRunner(entry, customEventBroadcaster), tickerDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Pull custom events from the source until the pull window is full.
+     * An event that is pulled after its fire-at time fires right away: the source is out of order.
+     */
+    private synchronized void pullCustomEvents() {
+        if (executorCustomEvents == null || customEventSourceFailure != null) {
+            return;
+        }
+        try {
+            while (customEventSchedule.size() < CUSTOM_EVENT_PULL_WINDOW && customEventSource.hasNext()) {
+                CustomEvent event = customEventSource.next();
+                if (event.getDuration().toNanos() < customEventClock.elapsedNanos()) {
+                    logger.warn("custom event pulled after its fire-at time, fires late, schedule is not in fire-at order: " + event);
+                }
+                addToExecutor(customEventIds.incrementAndGet(), event);
+            }
+        } catch (RuntimeException e) {
+            customEventSourceFailure = e;
+            logger.error("failed to pull custom events from schedule, next custom events do not fire", e);
+        }
+    }
+
+    /**
+     * @return the error of the custom event source of the last started schedule, null when there was no error
+     */
+    RuntimeException customEventSourceFailure() {
+        return customEventSourceFailure;
+    }
+
+    private void startVirtualTimeline() {
+        if (!virtualTimelineRunning) {
+            virtualTimelineRunning = true;
+            executorCustomEvents.execute(this::runVirtualTimeline);
+        }
+    }
+
+    /**
+     * Fire the pending custom events one after another in fire-at order, moving the virtual
+     * time forward to each event. Stops when the schedule is empty, paused or shut down.
+     * A keep-alive call is made for each keep-alive interval the virtual time passes.
+     */
+    private void runVirtualTimeline() {
+        while (true) {
+            ScheduledEntry next;
+            List<CustomEvent> due;
+            KeepAliveRunner keepAlive = null;
+            synchronized (this) {
+                next = customEventClock.isPaused() || executorCustomEvents == null
+                    ? null
+                    : customEventSchedule.values().stream().min(ScheduledEntry.FIRE_AT_ORDER).orElse(null);
+                if (next == null) {
+                    virtualTimelineRunning = false;
+                    return;
+                }
+                long eventDelayNanos = next.scheduledCustomEvent.getCustomEvent().getDuration().toNanos() - customEventClock.elapsedNanos();
+                long keepAliveDelayNanos = nextVirtualKeepAliveNanos - schedulerTime.nanoTime();
+                if (virtualKeepAlive != null && keepAliveDelayNanos <= eventDelayNanos) {
+                    schedulerTime.advance(keepAliveDelayNanos);
+                    nextVirtualKeepAliveNanos += virtualKeepAliveIntervalNanos;
+                    keepAlive = virtualKeepAlive;
+                    due = Collections.emptyList();
+                }
+                else if (coalesceCustomEvents) {
+                    due = claimDueAtSameInstant(next);
+                }
+                else {
+                    Optional<ScheduledEntry> nextOccurrence = nextOccurrence(next);
+                    if (nextOccurrence.isPresent()) {
+                        customEventSchedule.put(next.scheduledCustomEvent.getId(), nextOccurrence.get());
+                    }
+                    else {
+                        customEventSchedule.remove(next.scheduledCustomEvent.getId());
+                        pullCustomEvents();
+                    }
+                    due = Collections.singletonList(next.scheduledCustomEvent.getCustomEvent());
+                }
+                if (keepAlive == null) {
+                    schedulerTime.advance(eventDelayNanos);
+                }
+            }
+            if (keepAlive != null) {
+                keepAlive.run();
+                continue;
+            }
+            try {
+                if (due.size() == 1) {
+                    customEventBroadcaster.broadcastCustomEventAndWait(due.get(0));
+                }
+                else {
+                    customEventBroadcaster.broadcastCustomEventsAndWait(due);
+                }
+            } catch (Exception e) {
+                logger.error("Broadcast custom event failed", e);
+            }
+        }
+    }
+
+    /**
+     * Take the entry and all other pending entries that are due at the same instant out of the
+     * schedule, recurring events are re-armed for their next occurrence.
+     * @return the custom events in schedule order, empty when the entry is already taken by another runner
+     */
+    private synchronized List<CustomEvent> claimDueAtSameInstant(ScheduledEntry entry) {
+        if (entry.claimed || customEventSchedule.get(entry.scheduledCustomEvent.getId()) != entry) {
+            return Collections.emptyList();
+        }
+        Duration fireAt = entry.scheduledCustomEvent.getCustomEvent().getDuration();
+        List<ScheduledEntry> due = dueAt(fireAt);
+        List<CustomEvent> batch = new ArrayList<>();
+        while (!due.isEmpty()) {
+            for (ScheduledEntry dueEntry : due) {
+                dueEntry.claimed = true;
+                if (dueEntry != entry) {
+                    disarm(dueEntry);
+                }
+                batch.add(dueEntry.scheduledCustomEvent.getCustomEvent());
+                rearmOrRemove(dueEntry);
+            }
+            // pulling the next events from the source can add more events for the same instant
+            due = dueAt(fireAt);
+        }
+        return batch;
     }
 
-    void shutdownThreadsNow() {
+    private List<ScheduledEntry> dueAt(Duration fireAt) {
+        return customEventSchedule.values().stream()
+            .filter(e -> e.scheduledCustomEvent.getCustomEvent().getDuration().equals(fireAt))
+            .sorted(ScheduledEntry.FIRE_AT_ORDER)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * @return the entry for the next occurrence of a recurring event, with the same id, empty when done
+     */
+    private Optional<ScheduledEntry> nextOccurrence(ScheduledEntry entry) {
+        CustomEvent event = entry.scheduledCustomEvent.getCustomEvent();
+        if (!event.isRecurring()) {
+            return Optional.empty();
+        }
+        CustomEventRepeat repeat = event.getRepeat();
+        long occurrence = entry.occurrence + 1;
+        return repeat.fireAt(entry.seriesStart, occurrence)
+            .map(fireAt -> fireAt.plus(schedulerTime.jitter(repeat.getJitter())))
+            .map(fireAt -> new ScheduledEntry(
+                new ScheduledCustomEvent(entry.scheduledCustomEvent.getId(), event.withDuration(fireAt)),
+                entry.seriesStart, occurrence));
+    }
+
+    /**
+     * Claim the entry for firing: re-arm a recurring event for its next occurrence, or remove the event from the schedule.
+     * @return false when the entry is not in the schedule anymore (cancelled, rescheduled or claimed by another runner): do not fire
+     */
+    private synchronized boolean rearmOrRemove(ScheduledEntry entry) {
+        long id = entry.scheduledCustomEvent.getId();
+        Optional<ScheduledEntry> nextOccurrence = executorCustomEvents == null ? Optional.empty() : nextOccurrence(entry);
+        if (nextOccurrence.isPresent()) {
+            if (!customEventSchedule.replace(id, entry, nextOccurrence.get())) {
+                return false;
+            }
+            if (!customEventClock.isPaused()) {
+                arm(nextOccurrence.get());
+            }
+            return true;
+        }
+        if (!customEventSchedule.remove(id, entry)) {
+            return false;
+        }
+        pullCustomEvents();
+        return true;
+    }
+
+    private void fire(CustomEvent event, EventBroadcaster broadcaster) {
+        try {
+            broadcaster.broadcastCustomEvent(event);
+        } catch (Exception e) {
+            logger.error("Broadcast custom event failed", e);
+        }
+    }
+
+    private void fire(List<CustomEvent> events, EventBroadcaster broadcaster) {
+        if (events.size() == 1) {
+            fire(events.get(0), broadcaster);
+            return;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            broadcaster.broadcastCustomEvents(events);
+        } catch (Exception e) {
+            logger.error("Broadcast custom events failed", e);
+        }
+    }
+
+    /**
+     * Cancel the pending entry, an entry that is not armed (paused) counts as cancelled.
+     * When the runner of the entry has already started, the entry is marked in flight: its runner
+     * claims and fires it, so it must not be armed again.
+     * @return false when the event is already running or has fired
+     */
+    private static boolean disarm(ScheduledEntry entry) {
+        if (entry.runnerInFlight) {
+            return false;
+        }
+        ScheduledFuture<?> future = entry.future;
+        entry.future = null;
+        boolean cancelled = future == null || future.cancel(false);
+        if (!cancelled) {
+            entry.runnerInFlight = true;
+        }
+        return cancelled;
+    }
+
+    /**
+     * Freeze the custom event timeline: pending events are cancelled in the executor, but stay in the
+     * schedule with their fire-at duration. Custom events that are already running are not interrupted.
+     * @return false when the timeline was already paused
+     */
+    synchronized boolean pauseCustomEvents() {
+        checkCustomEventSchedulerRunning();
+        if (!customEventClock.pause()) {
+            return false;
+        }
+        // an event that starts running during the pause call is claimed by its runner, it is not armed again on resume
+        customEventSchedule.values().forEach(EventSchedulerEngine::disarm);
+        logger.info("paused custom events timeline at " + Duration.ofNanos(customEventClock.elapsedNanos()) + " with " + customEventSchedule.size() + " pending custom events");
+        return true;
+    }
+
+    /**
+     * Continue the custom event timeline: the pending events fire with the same spacing as before the pause.
+     * @return false when the timeline was not paused
+     */
+    synchronized boolean resumeCustomEvents() {
+        checkCustomEventSchedulerRunning();
+        if (!customEventClock.resume()) {
+            return false;
+        }
+        customEventSchedule.values().stream()
+            .filter(entry -> !entry.runnerInFlight)
+            .forEach(this::arm);
+        logger.info("resumed custom events timeline at " + Duration.ofNanos(customEventClock.elapsedNanos()) + " with " + customEventSchedule.size() + " pending custom events");
+        return true;
+    }
+
+    boolean isCustomEventsPaused() {
+        return customEventClock.isPaused();
+    }
+
+    /**
+     * Add a custom event to the running schedule. The duration of the event is relative to the
+     * start of the custom event scheduler, an event with a duration in the past fires immediately.
+     */
+    synchronized ScheduledCustomEvent addCustomEvent(CustomEvent event) {
+        checkCustomEventSchedulerRunning();
+        ScheduledCustomEvent scheduledCustomEvent = addToExecutor(customEventIds.incrementAndGet(), event);
+        logger.info("added to custom events schedule: " + event);
+        return scheduledCustomEvent;
+    }
+
+    /**
+     * @return true when the event was cancelled, false when it has already fired, is firing or is unknown
+     */
+    synchronized boolean cancelCustomEvent(long id) {
+        ScheduledEntry entry = customEventSchedule.get(id);
+        // a runner that has started fires the entry, leave it in the schedule for the runner to claim
+        if (entry == null || !disarm(entry)) {
+            return false;
+        }
+        customEventSchedule.remove(id, entry);
+        pullCustomEvents();
+        logger.info("cancelled custom event: " + entry.scheduledCustomEvent.getCustomEvent());
+        return true;
+    }
+
+    /**
+     * Move a pending custom event to a new fire-at duration, the id stays the same.
+     * A recurring event keeps its occurrence count, the next occurrences keep their spacing from the moved one.
+     * @return the rescheduled event, empty when the event has already fired, is firing or is unknown
+     */
+    synchronized Optional<ScheduledCustomEvent> rescheduleCustomEvent(long id, Duration fireAt) {
+        checkCustomEventSchedulerRunning();
+        ScheduledEntry entry = customEventSchedule.get(id);
+        // a runner that has started fires the entry, leave it in the schedule for the runner to claim
+        if (entry == null || !disarm(entry)) {
+            return Optional.empty();
+        }
+        CustomEvent event = entry.scheduledCustomEvent.getCustomEvent();
+        CustomEvent rescheduledEvent = event.withDuration(fireAt);
+        Duration seriesStart = entry.seriesStart.plus(fireAt.minus(event.getDuration()));
+        logger.info("rescheduled custom event from " + event.getDuration() + " to: " + rescheduledEvent);
+        return Optional.of(addToExecutor(new ScheduledEntry(new ScheduledCustomEvent(id, rescheduledEvent), seriesStart, entry.occurrence)));
+    }
+
+    /**
+     * @return the pending custom events, ordered by fire-at duration
+     */
+    List<ScheduledCustomEvent> customEventSchedule() {
+        return customEventSchedule.values().stream()
+            .sorted(ScheduledEntry.FIRE_AT_ORDER)
+            .map(entry -> entry.scheduledCustomEvent)
+            .collect(Collectors.toList());
+    }
+
+    private void checkCustomEventSchedulerRunning() {
+        if (executorCustomEvents == null) {
+            throw new EventSchedulerRuntimeException("custom event scheduler is not running, start the session first");
+        }
+    }
+
+    synchronized void shutdownThreadsNow() {
         logger.info("shutdown Executor threads");
         if (executorKeepAlive != null) {
             executorKeepAlive.shutdownNow();
         }
         if (executorCustomEvents != null) {
             List<Runnable> runnables = executorCustomEvents.shutdownNow();
-            if (runnables.size() > 0) {
-                if (runnables.size() == 1) {
+            // when paused, the pending events are not in the executor queue
+            int notExecuted = Math.max(runnables.size(), customEventSchedule.size());
+            if (customEventSourceFailure == null && customEventSource.hasNext()) {
+                logger.warn("There are " + notExecuted + " pulled and more not yet pulled custom events that are not executed!");
+            }
+            else if (notExecuted > 0) {
+                if (notExecuted == 1) {
                     logger.warn("There is 1 custom event that is not (fully) executed!");
                 }
                 else {
-                    logger.warn("There are " + runnables.size() + " custom events that are not (fully) executed!");
+                    logger.warn("There are " + notExecuted + " custom events that are not (fully) executed!");
                 }
             }
         }
         executorKeepAlive = null;
         executorCustomEvents = null;
+        customEventSchedule.clear();
+        customEventSource = Collections.emptyIterator();
+        virtualTimelineRunning = false;
+        virtualKeepAlive = null;
     }
 
+    /**
+     * Shutdown the scheduler threads and wait for the running keep-alive and custom event
+     * broadcasts of these threads to return, so no new calls are made after this method.
+     *
+     * @param timeout maximum time to wait for the scheduler threads to finish
+     * @return true when all scheduler threads are finished within the timeout
+     */
+    boolean stopTimeline(Duration timeout) {
+        List<ScheduledExecutorService> stopped;
+        synchronized (this) {
+            stopped = Stream.of(executorKeepAlive, executorCustomEvents)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+            shutdownThreadsNow();
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (ScheduledExecutorService executor : stopped) {
+                if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    logger.warn("scheduler threads not finished within " + timeout);
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("interrupted while waiting for scheduler threads to finish");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Start with all given custom events, these are pulled in fire-at order.
+     */
     void startCustomEventScheduler(Collection<CustomEvent> scheduleEvents, EventBroadcaster broadcaster) {
+        List<CustomEvent> sortedEvents = scheduleEvents == null ? Collections.emptyList() : new ArrayList<>(scheduleEvents);
+        sortedEvents.sort(Comparator.comparing(CustomEvent::getDuration));
+        startCustomEventScheduler(sortedEvents.iterator(), broadcaster);
+    }
+
+    /**
+     * Start the custom event scheduler that lazily pulls the custom events from the source:
+     * at most CUSTOM_EVENT_PULL_WINDOW events are pending at a time.
+     *
+     * @param scheduleEvents the custom events in fire-at order
+     */
+    synchronized void startCustomEventScheduler(Iterator<CustomEvent> scheduleEvents, EventBroadcaster broadcaster) {
         nullChecks(broadcaster);
 
-        if (!(scheduleEvents == null || scheduleEvents.isEmpty())) {
+        // always start the scheduler: custom events can also be added while the session runs
+        customEventBroadcaster = broadcaster;
+        customEventClock.start();
+        executorCustomEvents = createCustomEventScheduler();
+
+        if (schedulerTime.isVirtual()) {
+            logger.info("custom events run in virtual time, as fast as the events process them");
+        }
+        else if (schedulerTime.getSpeedFactor() != 1.0) {
+            logger.info("custom events run with speed factor " + schedulerTime.getSpeedFactor());
+        }
 
-            logger.info(createEventScheduleMessage(scheduleEvents));
+        customEventSource = scheduleEvents == null ? Collections.emptyIterator() : scheduleEvents;
+        customEventSourceFailure = null;
+        pullCustomEvents();
+        if (customEventSourceFailure != null) {
+            throw customEventSourceFailure;
+        }
 
-            executorCustomEvents = createCustomEventScheduler();
-            scheduleEvents.forEach(event -> addToExecutor(executorCustomEvents, event, broadcaster));
+        if (!customEventSchedule.isEmpty()) {
+            logger.info(createEventScheduleMessage(customEventSchedule().stream()
+                .map(ScheduledCustomEvent::getCustomEvent)
+                .collect(Collectors.toList())));
+            if (customEventSource.hasNext()) {
+                logger.info("more than " + CUSTOM_EVENT_PULL_WINDOW + " custom events in schedule, next events are pulled when events fire");
+            }
         }
         else {
             logger.info("no custom schedule events found");
@@ -122,6 +602,9 @@ class EventSchedulerEngine {
     }
 
     private ScheduledExecutorService createKeepAliveScheduler() {
+        if (executorFactory != null) {
+            return executorFactory.createKeepAliveExecutor();
+        }
         return Executors.newSingleThreadScheduledExecutor(r -> {
             String threadName = "Keep-Alive-Thread";
             logger.info("create new thread: " + threadName);
@@ -130,7 +613,10 @@ class EventSchedulerEngine {
     }
 
     private ScheduledExecutorService createCustomEventScheduler() {
-        return Executors.newScheduledThreadPool(2, new ThreadFactory() {
+        if (executorFactory != null) {
+            return executorFactory.createCustomEventExecutor();
+        }
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2, new ThreadFactory() {
             private final AtomicInteger threadCount = new AtomicInteger(0);
             @Override
             public Thread newThread(Runnable r) {
@@ -139,6 +625,9 @@ class EventSchedulerEngine {
                 return new Thread(r, threadName);
             }
         });
+        // cancelled events are removed from the work queue right away
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
     }
     
     class KeepAliveRunner implements Runnable {
@@ -187,29 +676,58 @@ class EventSchedulerEngine {
         }
     }
 
+    private static final class ScheduledEntry {
+        private static final Comparator<ScheduledEntry> FIRE_AT_ORDER =
+            Comparator.comparing((ScheduledEntry e) -> e.scheduledCustomEvent.getCustomEvent().getDuration())
+                .thenComparingLong(e -> e.scheduledCustomEvent.getId());
+
+        private final ScheduledCustomEvent scheduledCustomEvent;
+        // for recurring events: the fire-at time of the first occurrence and the number of this occurrence
+        private final Duration seriesStart;
+        private final long occurrence;
+        private volatile ScheduledFuture<?> future;
+        // true when a pause or cancel found the runner already started, the runner claims the entry
+        private volatile boolean runnerInFlight;
+        // only used when coalescing: true when a runner has taken this entry into its batch
+        private boolean claimed;
+
+        private ScheduledEntry(ScheduledCustomEvent scheduledCustomEvent) {
+            this(scheduledCustomEvent, scheduledCustomEvent.getCustomEvent().getDuration(), 0);
+        }
+
+        private ScheduledEntry(ScheduledCustomEvent scheduledCustomEvent, Duration seriesStart, long occurrence) {
+            this.scheduledCustomEvent = scheduledCustomEvent;
+            this.seriesStart = seriesStart;
+            this.occurrence = occurrence;
+        }
+    }
+
     class EventRunner implements Runnable {
 
-        private final CustomEvent event;
+        private final ScheduledEntry entry;
 
         private final EventBroadcaster eventBroadcaster;
 
-        public EventRunner(CustomEvent event, EventBroadcaster eventBroadcaster) {
-            this.event = event;
+        EventRunner(ScheduledEntry entry, EventBroadcaster eventBroadcaster) {
+            this.entry = entry;
             this.eventBroadcaster = eventBroadcaster;
         }
 
         @Override
         public void run() {
-            try {
-                eventBroadcaster.broadcastCustomEvent(event);
-            } catch (Exception e) {
-                logger.error("Broadcast custom event failed", e);
+            if (coalesceCustomEvents) {
+                fire(claimDueAtSameInstant(entry), eventBroadcaster);
+                return;
+            }
+            // claim under the lock: a runner of an entry that is paused, cancelled or rescheduled while it started does not fire
+            if (rearmOrRemove(entry)) {
+                fire(entry.scheduledCustomEvent.getCustomEvent(), eventBroadcaster);
             }
         }
 
         @Override
         public String toString() {
-            return String.format("EventRunner for event %s", event);
+            return String.format("EventRunner for event %s", entry.scheduledCustomEvent.getCustomEvent());
         }
     }
 
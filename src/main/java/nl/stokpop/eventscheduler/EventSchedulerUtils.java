@@ -15,6 +15,8 @@
  */
 package nl.stokpop.eventscheduler;
 
+import nl.stokpop.eventscheduler.api.CustomEvent;
+
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -48,6 +50,10 @@ public class EventSchedulerUtils {
         return count;
     }
 
+    public static String customEventNames(List<CustomEvent> customEvents) {
+        return customEvents.stream().map(CustomEvent::getName).collect(Collectors.joining(","));
+    }
+
     public static List<String> splitAndTrim(String text, String separator) {
         if (text == null || text.isEmpty()) {
             return Collections.emptyList();
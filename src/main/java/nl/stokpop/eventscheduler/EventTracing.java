@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.*;
+
+import java.util.Collection;
+import java.util.List;
+
+import static nl.stokpop.eventscheduler.api.TraceRecordType.EVENT_CALL_END;
+import static nl.stokpop.eventscheduler.api.TraceRecordType.EVENT_CALL_START;
+
+/**
+ * Records start and end of each call to the wrapped Event.
+ * The end record has value 1 when the call threw an exception.
+ *
+ * No lambdas on purpose: the calls should not allocate during the test.
+ */
+class EventTracing implements Event, EventWrapper {
+
+    private final Event event;
+    private final TraceRecorder recorder;
+
+    EventTracing(Event event, TraceRecorder recorder) {
+        this.event = event;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Event getWrappedEvent() {
+        return event;
+    }
+
+    @Override
+    public String getName() {
+        return event.getName();
+    }
+
+    @Override
+    public void beforeTest() {
+        boolean failed = start("beforeTest");
+        try {
+            event.beforeTest();
+            failed = false;
+        } finally {
+            end("beforeTest", failed);
+        }
+    }
+
+    @Override
+    public void startTest() {
+        boolean failed = start("startTest");
+        try {
+            event.startTest();
+            failed = false;
+        } finally {
+            end("startTest", failed);
+        }
+    }
+
+    @Override
+    public void afterTest() {
+        boolean failed = start("afterTest");
+        try {
+            event.afterTest();
+            failed = false;
+        } finally {
+            end("afterTest", failed);
+        }
+    }
+
+    @Override
+    public void keepAlive() {
+        boolean failed = start("keepAlive");
+        try {
+            event.keepAlive();
+            failed = false;
+        } finally {
+            end("keepAlive", failed);
+        }
+    }
+
+    @Override
+    public void abortTest() {
+        boolean failed = start("abortTest");
+        try {
+            event.abortTest();
+            failed = false;
+        } finally {
+            end("abortTest", failed);
+        }
+    }
+
+    @Override
+    public EventCheck check() {
+        boolean failed = start("check");
+        try {
+            EventCheck eventCheck = event.check();
+            failed = false;
+            return eventCheck;
+        } finally {
+            end("check", failed);
+        }
+    }
+
+    @Override
+    public void customEvent(CustomEvent scheduleEvent) {
+        String call = scheduleEvent.getName();
+        boolean failed = start(call);
+        try {
+            event.customEvent(scheduleEvent);
+            failed = false;
+        } finally {
+            end(call, failed);
+        }
+    }
+
+    /**
+     * One start and end record per custom event name: joining the names would create a new String for each call.
+     */
+    @Override
+    public void customEvents(List<CustomEvent> scheduleEvents) {
+        boolean failed = true;
+        for (int i = 0; i < scheduleEvents.size(); i++) {
+            start(scheduleEvents.get(i).getName());
+        }
+        try {
+            event.customEvents(scheduleEvents);
+            failed = false;
+        } finally {
+            for (int i = 0; i < scheduleEvents.size(); i++) {
+                end(scheduleEvents.get(i).getName(), failed);
+            }
+        }
+    }
+
+    @Override
+    public Collection<String> allowedCustomEvents() {
+        return event.allowedCustomEvents();
+    }
+
+    /**
+     * @return true, the call is assumed failed until it returns normally
+     */
+    private boolean start(String call) {
+        recorder.record(EVENT_CALL_START, event.getName(), call, 0);
+        return true;
+    }
+
+    private void end(String call, boolean failed) {
+        recorder.record(EVENT_CALL_END, event.getName(), call, failed ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "EventTracing for " + event;
+    }
+}
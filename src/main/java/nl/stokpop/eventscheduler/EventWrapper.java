@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.Event;
+
+/**
+ * An Event that passes the calls on to another Event, such as the circuit breaker or tracing.
+ */
+interface EventWrapper {
+
+    Event getWrappedEvent();
+
+    /**
+     * @return the simple class name of the Event inside all wrappers, as reported in event checks
+     */
+    static String eventClassName(Event event) {
+        Event inner = event;
+        while (inner instanceof EventWrapper) {
+            inner = ((EventWrapper) inner).getWrappedEvent();
+        }
+        return inner.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.FactoryRegistry;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Finds service implementations by class name, and only instantiates the ones that are asked for.
+ *
+ * First the FactoryRegistry of the package of the class name is checked (see RegisterFactory),
+ * which avoids the classpath scan and reflective construction of the factories. The registries of the built-in
+ * factories are always present, a generated registry is loaded by its class name (EventSchedulerFactoryRegistry
+ * in the package of the class name) the first time a class of its package is asked for.
+ * Registries can also be added with {@link #register(FactoryRegistry)}.
+ * Only when not found there, the service
+ * providers are discovered: on Java 9+ the ServiceLoader.Provider stream is used, which gives the
+ * provider types without instantiating them. On Java 8 the META-INF/services files are read directly.
+ *
+ * The discovered provider class names are cached per service and per ClassLoader, so repeated lookups
+ * skip the classpath scan. The instances are not cached: each find creates a new one, so a provider
+ * is not shared between builds. Registries are kept per ClassLoader of the registry.
+ * Nothing in the caches refers to its ClassLoader: loaders and registries are weakly referenced,
+ * so discarded class loaders (e.g. of Gradle builds) can be garbage collected.
+ *
+ * @param <S> the service interface
+ */
+public final class LazyServiceLoader<S> {
+
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private static final Map<ClassLoader, Map<Class<?>, LazyServiceLoader<?>>> CACHE = new WeakHashMap<>();
+
+    private static final ProviderStream PROVIDER_STREAM = ProviderStream.create();
+
+    /**
+     * Registries per package, per ClassLoader of the registry. The registries are weakly referenced:
+     * the registry instance is kept alive by its own class, see REGISTRY_INSTANCES.
+     */
+    private static final Map<ClassLoader, Map<String, WeakReference<FactoryRegistry>>> REGISTRIES = new WeakHashMap<>();
+
+    /**
+     * Marks a package that was looked up for a class loader without finding a registry class.
+     */
+    private static final WeakReference<FactoryRegistry> NO_REGISTRY = new WeakReference<>(null);
+
+    /**
+     * The registered instance per registry class: stored with the class itself, so it does not keep its ClassLoader alive.
+     */
+    private static final ClassValue<AtomicReference<FactoryRegistry>> REGISTRY_INSTANCES = new ClassValue<AtomicReference<FactoryRegistry>>() {
+        @Override
+        protected AtomicReference<FactoryRegistry> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
+
+    static {
+        register(new nl.stokpop.eventscheduler.event.EventSchedulerFactoryRegistry());
+        register(new nl.stokpop.eventscheduler.generator.EventSchedulerFactoryRegistry());
+    }
+
+    private final Class<S> service;
+    private final WeakReference<ClassLoader> classLoader;
+    private volatile Set<String> providers;
+
+    private LazyServiceLoader(Class<S> service, ClassLoader classLoader) {
+        this.service = service;
+        this.classLoader = new WeakReference<>(classLoader);
+    }
+
+    /**
+     * @param service the service interface
+     * @param classLoader the class loader, if null the context class loader of the current thread is used (as with ServiceLoader)
+     * @return a cached loader for this service and class loader
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <S> LazyServiceLoader<S> of(Class<S> service, ClassLoader classLoader) {
+        ClassLoader loader = resolve(classLoader);
+        Map<Class<?>, LazyServiceLoader<?>> loaders = CACHE.computeIfAbsent(loader, k -> new HashMap<>());
+        return (LazyServiceLoader<S>) loaders.computeIfAbsent(service, s -> new LazyServiceLoader<>(service, loader));
+    }
+
+    /**
+     * Add the factories of a registry for the ClassLoader of the registry, replacing an earlier
+     * registry of the same package and ClassLoader. Generated registries are found without it, their
+     * static register() method calls this to add the registry before its package is first asked for.
+     *
+     * The registry is dropped when its ClassLoader is garbage collected.
+     *
+     * @param registry the registry, its package is the package of the factories
+     */
+    public static synchronized void register(FactoryRegistry registry) {
+        Class<? extends FactoryRegistry> registryClass = registry.getClass();
+        REGISTRY_INSTANCES.get(registryClass).set(registry);
+        REGISTRIES.computeIfAbsent(resolve(registryClass.getClassLoader()), k -> new HashMap<>())
+            .put(packageName(registryClass.getName()), new WeakReference<>(registry));
+    }
+
+    /**
+     * The constructor of the class name from the registries of its package that are visible from the class loader:
+     * registered for the loader itself or one of its parents, so the registries of a package split over
+     * a parent and a child class loader are merged. When the loader has no registry of the package yet,
+     * the generated registry class of the package is looked up once.
+     *
+     * @return the constructor, null when no registry has the class name
+     */
+    private static synchronized Supplier<?> registeredConstructor(String className, ClassLoader classLoader) {
+        String packageName = packageName(className);
+        if (!REGISTRIES.computeIfAbsent(classLoader, k -> new HashMap<>()).containsKey(packageName)) {
+            discoverRegistry(packageName, classLoader);
+        }
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            Map<String, WeakReference<FactoryRegistry>> registries = REGISTRIES.get(loader);
+            WeakReference<FactoryRegistry> registered = registries == null ? null : registries.get(packageName);
+            FactoryRegistry registry = registered == null ? null : registered.get();
+            Supplier<?> constructor = registry == null ? null : registry.factories().get(className);
+            if (constructor != null) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Registers the generated registry of the package, or marks the package as having none for this loader.
+     * A registry that is present in more than one jar of a class loader is rejected: only one of the
+     * registry classes can be loaded, the factories of the other jars would not be found.
+     */
+    private static void discoverRegistry(String packageName, ClassLoader classLoader) {
+        String registryClassName = packageName.isEmpty() ? FactoryRegistry.CLASS_NAME : packageName + "." + FactoryRegistry.CLASS_NAME;
+        Class<?> registryClass;
+        try {
+            registryClass = Class.forName(registryClassName, false, classLoader);
+        } catch (ClassNotFoundException e) {
+            REGISTRIES.get(classLoader).put(packageName, NO_REGISTRY);
+            return;
+        }
+        if (!FactoryRegistry.class.isAssignableFrom(registryClass)) {
+            throw new EventSchedulerRuntimeException(registryClassName + " does not implement " + FactoryRegistry.class.getName());
+        }
+        List<URL> registryFiles = registryFiles(registryClassName, classLoader);
+        if (registryFiles.size() > 1) {
+            throw new EventSchedulerRuntimeException("package '" + packageName + "' is split over multiple jars that each have a "
+                + FactoryRegistry.CLASS_NAME + ", put the @RegisterFactory classes of each jar in their own package: " + registryFiles);
+        }
+        try {
+            register((FactoryRegistry) registryClass.getConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new EventSchedulerRuntimeException("unable to create " + registryClassName, e);
+        }
+        // the registry can belong to a parent loader, mark that this loader has looked it up
+        REGISTRIES.get(classLoader).putIfAbsent(packageName, NO_REGISTRY);
+    }
+
+    private static List<URL> registryFiles(String registryClassName, ClassLoader classLoader) {
+        try {
+            return Collections.list(classLoader.getResources(registryClassName.replace('.', '/') + ".class"));
+        } catch (IOException e) {
+            throw new EventSchedulerRuntimeException("unable to find class files of " + registryClassName, e);
+        }
+    }
+
+    private static String packageName(String className) {
+        int lastDot = className.lastIndexOf('.');
+        return lastDot == -1 ? "" : className.substring(0, lastDot);
+    }
+
+    /**
+     * Forget all discovered providers and packages without registry, e.g. after the classpath has changed.
+     */
+    public static synchronized void clearCache() {
+        CACHE.clear();
+        REGISTRIES.values().forEach(registries -> registries.values().removeIf(registered -> registered == NO_REGISTRY));
+    }
+
+    private static ClassLoader resolve(ClassLoader classLoader) {
+        if (classLoader != null) {
+            return classLoader;
+        }
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return contextClassLoader != null ? contextClassLoader : ClassLoader.getSystemClassLoader();
+    }
+
+    private static Set<String> discover(Class<?> service, ClassLoader classLoader) {
+        return PROVIDER_STREAM.isAvailable()
+            ? PROVIDER_STREAM.discover(service, classLoader)
+            : discoverFromServiceFiles(service, classLoader);
+    }
+
+    /**
+     * @param className fully qualified class name of the implementation
+     * @return a new instance, empty when no provider with this class name is present
+     */
+    public Optional<S> find(String className) {
+        if (className == null) {
+            return Optional.empty();
+        }
+        Supplier<?> constructor = registeredConstructor(className, classLoader());
+        if (constructor != null) {
+            return Optional.of(service.cast(constructor.get()));
+        }
+        if (!providers().contains(className)) {
+            return Optional.empty();
+        }
+        return Optional.of(newInstance(providerClass(className)));
+    }
+
+    /**
+     * @return class names of all service providers found, without instantiating them
+     */
+    public Set<String> providerNames() {
+        return providers();
+    }
+
+    private Set<String> providers() {
+        Set<String> discovered = providers;
+        if (discovered == null) {
+            synchronized (this) {
+                discovered = providers;
+                if (discovered == null) {
+                    discovered = Collections.unmodifiableSet(discover(service, classLoader()));
+                    providers = discovered;
+                }
+            }
+        }
+        return discovered;
+    }
+
+    private ClassLoader classLoader() {
+        ClassLoader loader = classLoader.get();
+        if (loader == null) {
+            throw new EventSchedulerRuntimeException("class loader of " + this + " is garbage collected");
+        }
+        return loader;
+    }
+
+    private Class<? extends S> providerClass(String className) {
+        try {
+            return Class.forName(className, false, classLoader()).asSubclass(service);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new EventSchedulerRuntimeException("unable to load " + service.getSimpleName() + " provider " + className, e);
+        }
+    }
+
+    private S newInstance(Class<? extends S> providerClass) {
+        try {
+            return providerClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new EventSchedulerRuntimeException("unable to create service provider " + providerClass.getName(), e);
+        }
+    }
+
+    static Set<String> discoverFromServiceFiles(Class<?> service, ClassLoader classLoader) {
+        Set<String> providers = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> serviceFiles = classLoader.getResources(SERVICES_PREFIX + service.getName());
+            while (serviceFiles.hasMoreElements()) {
+                providers.addAll(readClassNames(serviceFiles.nextElement()));
+            }
+        } catch (IOException e) {
+            throw new EventSchedulerRuntimeException("unable to read service files for " + service.getName(), e);
+        }
+        return providers;
+    }
+
+    private static List<String> readClassNames(URL serviceFile) throws IOException {
+        List<String> classNames = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(serviceFile.openStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int commentIndex = line.indexOf('#');
+                String className = (commentIndex == -1 ? line : line.substring(0, commentIndex)).trim();
+                if (!className.isEmpty()) {
+                    classNames.add(className);
+                }
+            }
+        }
+        return classNames;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyServiceLoader{" + "service=" + service.getName() + '}';
+    }
+
+    /**
+     * Access to the Java 9+ ServiceLoader.stream() via reflection, this library is compiled for Java 8.
+     */
+    private static final class ProviderStream {
+
+        private final Method stream;
+        private final Method type;
+
+        private ProviderStream(Method stream, Method type) {
+            this.stream = stream;
+            this.type = type;
+        }
+
+        static ProviderStream create() {
+            try {
+                Class<?> providerClass = Class.forName("java.util.ServiceLoader$Provider");
+                return new ProviderStream(
+                    ServiceLoader.class.getMethod("stream"),
+                    providerClass.getMethod("type"));
+            } catch (ReflectiveOperationException e) {
+                // Java 8
+                return new ProviderStream(null, null);
+            }
+        }
+
+        boolean isAvailable() {
+            return stream != null;
+        }
+
+        Set<String> discover(Class<?> service, ClassLoader classLoader) {
+            Set<String> providers = new LinkedHashSet<>();
+            try {
+                Stream<?> providerStream = (Stream<?>) stream.invoke(ServiceLoader.load(service, classLoader));
+                providerStream.forEach(provider -> providers.add(((Class<?>) invoke(type, provider)).getName()));
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new EventSchedulerRuntimeException("unable to stream service providers for " + service.getName(), e);
+            }
+            return providers;
+        }
+
+        private static Object invoke(Method method, Object provider) {
+            try {
+                return method.invoke(provider);
+            } catch (IllegalAccessException e) {
+                throw new EventSchedulerRuntimeException("cannot call " + method.getName() + " on service provider", e);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new EventSchedulerRuntimeException("cannot call " + method.getName() + " on service provider", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Monotonic clock for the custom event timeline that stands still while paused.
+ *
+ * Elapsed time only counts the time between start and now minus the paused periods,
+ * so custom events keep their relative spacing over a pause.
+ */
+@ThreadSafe
+class PausableClock {
+
+    private final LongSupplier nanoTime;
+
+    private long startNanos;
+    private long pausedNanos;
+    private long pausedAtNanos = -1;
+
+    PausableClock() {
+        this(System::nanoTime);
+    }
+
+    PausableClock(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    synchronized void start() {
+        startNanos = nanoTime.getAsLong();
+        pausedNanos = 0;
+        pausedAtNanos = -1;
+    }
+
+    /**
+     * @return false when already paused
+     */
+    synchronized boolean pause() {
+        if (isPaused()) {
+            return false;
+        }
+        pausedAtNanos = nanoTime.getAsLong();
+        return true;
+    }
+
+    /**
+     * @return false when not paused
+     */
+    synchronized boolean resume() {
+        if (!isPaused()) {
+            return false;
+        }
+        pausedNanos += nanoTime.getAsLong() - pausedAtNanos;
+        pausedAtNanos = -1;
+        return true;
+    }
+
+    synchronized boolean isPaused() {
+        return pausedAtNanos != -1;
+    }
+
+    /**
+     * @return the nanos since start, not counting the paused time
+     */
+    synchronized long elapsedNanos() {
+        long now = isPaused() ? pausedAtNanos : nanoTime.getAsLong();
+        return now - startNanos - pausedNanos;
+    }
+}
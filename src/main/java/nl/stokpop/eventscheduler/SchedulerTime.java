@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import net.jcip.annotations.ThreadSafe;
+import nl.stokpop.eventscheduler.api.Ticker;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time of the custom event timeline, which can run faster than the ticker.
+ *
+ * With speed factor 1 the timeline follows the ticker. With a speed factor above 1 the timeline
+ * runs faster, e.g. with 60 one hour of schedule takes one minute. With an infinite speed factor
+ * the timeline is virtual: it only moves forward when the engine advances it to the next custom event,
+ * so a schedule runs as fast as the Events can process it.
+ *
+ * The random jitter of recurring custom events also comes from here, so a run with a seeded Random can be replayed.
+ */
+@ThreadSafe
+class SchedulerTime {
+
+    private final Ticker ticker;
+    private final double speedFactor;
+    private final long originNanos;
+    private final AtomicLong virtualNanos;
+    private final Random random;
+
+    SchedulerTime(Ticker ticker, double speedFactor) {
+        this(ticker, speedFactor, new Random());
+    }
+
+    /**
+     * @param random the source of the jitter of recurring custom events, seed it to replay a run
+     */
+    SchedulerTime(Ticker ticker, double speedFactor, Random random) {
+        if (ticker == null) {
+            throw new EventSchedulerRuntimeException("ticker is null");
+        }
+        if (!(speedFactor > 0)) {
+            throw new EventSchedulerRuntimeException("speed factor should be above 0: " + speedFactor);
+        }
+        this.ticker = ticker;
+        this.speedFactor = speedFactor;
+        this.originNanos = ticker.nanoTime();
+        this.virtualNanos = new AtomicLong(originNanos);
+        this.random = random == null ? new Random() : random;
+    }
+
+    static SchedulerTime realTime() {
+        return new SchedulerTime(Ticker.SYSTEM, 1.0);
+    }
+
+    /**
+     * @return true when the timeline is virtual and does not wait at all
+     */
+    boolean isVirtual() {
+        return Double.isInfinite(speedFactor);
+    }
+
+    double getSpeedFactor() {
+        return speedFactor;
+    }
+
+    long nanoTime() {
+        if (isVirtual()) {
+            return virtualNanos.get();
+        }
+        if (speedFactor == 1.0) {
+            return ticker.nanoTime();
+        }
+        return originNanos + (long) ((ticker.nanoTime() - originNanos) * speedFactor);
+    }
+
+    /**
+     * @return the ticker nanos to wait for the given timeline nanos
+     */
+    long toTickerNanos(long timelineNanos) {
+        if (isVirtual()) {
+            return 0;
+        }
+        return speedFactor == 1.0 ? timelineNanos : (long) (timelineNanos / speedFactor);
+    }
+
+    /**
+     * @return a random duration from zero up to and including the given jitter
+     */
+    Duration jitter(Duration jitter) {
+        if (jitter.isZero()) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.floorMod(random.nextLong(), jitter.toNanos() + 1));
+    }
+
+    /**
+     * Move the virtual timeline forward, has no effect when the timeline follows the ticker.
+     */
+    void advance(long nanos) {
+        if (isVirtual() && nanos > 0) {
+            virtualNanos.addAndGet(nanos);
+        }
+    }
+}
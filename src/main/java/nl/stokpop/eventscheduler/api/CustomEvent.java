@@ -18,27 +18,43 @@ package nl.stokpop.eventscheduler.api;
 import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
 
 import java.time.Duration;
-import java.util.Arrays;
-import java.util.List;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.time.format.DateTimeParseException;
 
 import static nl.stokpop.eventscheduler.EventSchedulerUtils.hasValue;
 
 public class CustomEvent {
 
-    private static final Pattern nonAlphaNumsPattern = Pattern.compile("[^A-Za-z0-9\\- %+=:]");
-    
     private Duration duration;
     private String name;
     private String description;
     private String settings;
+    private CustomEventRepeat repeat;
+    private CustomEventPayload payload;
+    // the CustomEventSettings, or the ScheduleEventWrongFormat when the settings cannot be parsed
+    private volatile Object parsedSettings;
 
-    public CustomEvent(Duration duration, String name, String description, String settings) {
+    /**
+     * @param repeat the repeat spec for a recurring event, null for an event that fires once
+     * @param payload the binary payload, null for none
+     */
+    public CustomEvent(Duration duration, String name, String description, String settings, CustomEventRepeat repeat, CustomEventPayload payload) {
         this.duration = duration;
         this.name = name;
         this.description = hasValue(description) ? description : name + "-" + duration.toString();
         this.settings = settings;
+        this.repeat = repeat;
+        this.payload = payload;
+    }
+
+    /**
+     * @param repeat the repeat spec for a recurring event, null for an event that fires once
+     */
+    public CustomEvent(Duration duration, String name, String description, String settings, CustomEventRepeat repeat) {
+        this(duration, name, description, settings, repeat, null);
+    }
+
+    public CustomEvent(Duration duration, String name, String description, String settings) {
+        this(duration, name, description, settings, null);
     }
 
     public CustomEvent(Duration duration, String name, String description) {
@@ -63,6 +79,77 @@ public class CustomEvent {
         return settings;
     }
 
+    /**
+     * The settings are parsed on the first call and cached: all events that receive this
+     * custom event share the same parsed settings. A parse failure is cached as well, so
+     * wrong settings are not parsed again on each call.
+     *
+     * @return the parsed settings, empty when there are no settings
+     * @throws ScheduleEventWrongFormat for settings that look like JSON but are not
+     */
+    public CustomEventSettings getParsedSettings() {
+        Object parsed = parsedSettings;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = parsedSettings;
+                if (parsed == null) {
+                    try {
+                        parsed = CustomEventSettings.parse(settings);
+                    } catch (ScheduleEventWrongFormat e) {
+                        parsed = e;
+                    }
+                    parsedSettings = parsed;
+                }
+            }
+        }
+        if (parsed instanceof ScheduleEventWrongFormat) {
+            // new exception per call, with the stack trace of the caller
+            ScheduleEventWrongFormat failure = (ScheduleEventWrongFormat) parsed;
+            throw new ScheduleEventWrongFormat(failure.getMessage(), failure);
+        }
+        return (CustomEventSettings) parsed;
+    }
+
+    /**
+     * @return the repeat spec, null when the event fires once
+     */
+    public CustomEventRepeat getRepeat() {
+        return repeat;
+    }
+
+    /**
+     * @return the binary payload, null when there is none
+     */
+    public CustomEventPayload getPayload() {
+        return payload;
+    }
+
+    public boolean hasPayload() {
+        return payload != null;
+    }
+
+    public boolean isRecurring() {
+        return repeat != null;
+    }
+
+    /**
+     * @return a copy of this event that fires at the given time, with the same repeat spec, payload and parsed settings
+     */
+    public CustomEvent withDuration(Duration fireAt) {
+        CustomEvent copy = new CustomEvent(fireAt, name, description, settings, repeat, payload);
+        copy.parsedSettings = parsedSettings;
+        return copy;
+    }
+
+    /**
+     * @return a copy of this event with the given payload, the payload bytes are not copied
+     */
+    public CustomEvent withPayload(CustomEventPayload payload) {
+        CustomEvent copy = new CustomEvent(duration, name, description, settings, repeat, payload);
+        copy.parsedSettings = parsedSettings;
+        return copy;
+    }
+
     /**
      * Use this format: duration|event-name(description)|settings
      *
@@ -70,54 +157,57 @@ public class CustomEvent {
      *
      * The duration is the time from the start of the test until the event to fire.
      *
+     * A recurring event has a repeat spec after the duration: duration;every=interval;count=n;until=duration;jitter=duration
+     * where every is required and count, until and jitter are optional.
+     *
      * Examples:
      * <ul>
      *     <li>PT1M|change-backend-delay|delay=PT2S</li>
      *     <li>PT5M|change-backend-delay(set to extreme delay to test timeouts)|delay=PT10M</li>
+     *     <li>PT1M;every=PT10S;until=PT1H1M;jitter=PT1S|toggle-backend-delay</li>
      * </ul>
      *
      * @param line line that is separated by duration|event-name(description)|settings
      * @return new ScheduleEvent
      */
     public static CustomEvent createFromLine(String line) {
+        return CustomEventLineParser.parse(line);
+    }
 
-        if (line == null || line.trim().isEmpty()) {
-            throw new ScheduleEventWrongFormat("empty line: [" + line + "]");
-        }
+    static CustomEventRepeat parseRepeat(String repeatSpec, String line) {
+        Duration interval = null;
+        int count = 0;
+        Duration until = null;
+        Duration jitter = null;
 
-        if (!line.contains("|")) {
-            throw new ScheduleEventWrongFormat("line should contain at least a duration and event name, separated by '|': [" + line + "]");
+        for (String keyValue : repeatSpec.split(";")) {
+            String[] pair = keyValue.split("=", 2);
+            if (pair.length != 2) {
+                throw new ScheduleEventWrongFormat("repeat spec should be key=value: [" + keyValue.trim() + "] from line: [" + line + "]");
+            }
+            String key = pair[0].trim();
+            String value = pair[1].trim();
+            try {
+                switch (key) {
+                    case "every": interval = Duration.parse(value); break;
+                    case "count": count = Integer.parseInt(value); break;
+                    case "until": until = Duration.parse(value); break;
+                    case "jitter": jitter = Duration.parse(value); break;
+                    default:
+                        throw new ScheduleEventWrongFormat("unknown repeat key: [" + key + "], use every, count, until or jitter, from line: [" + line + "]");
+                }
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new ScheduleEventWrongFormat("Failed to parse repeat " + key + ": [" + value + "] from line: [" + line + "]", e);
+            }
         }
 
-        List<String> elements = Arrays.stream(line.split("\\|"))
-                .map(String::trim)
-                .collect(Collectors.toList());
-
-        if (!(elements.size() == 2 || elements.size() == 3)) {
-            throw new ScheduleEventWrongFormat("Wrong number of elements in line, expected 'duration|name(description)|setting' " +
-                    "where (description) and settings are optional: [" + line + "]");
+        if (interval == null) {
+            throw new ScheduleEventWrongFormat("repeat spec needs an every=interval: [" + line + "]");
         }
-        
-        Duration duration;
-        String textDuration = elements.get(0);
-        String nameWithDescription = elements.get(1).trim();
-
-        String[] nameAndDescriptionPair = extractNameAndDescription(nameWithDescription);
-        String name = nameAndDescriptionPair[0];
-        String description = nameAndDescriptionPair[1];
-
         try {
-            duration = Duration.parse(textDuration);
-        } catch (Exception e) {
-            throw new ScheduleEventWrongFormat("Failed to parse duration: [" + textDuration + "] from line: [" + line + "]", e);
-        }
-        
-        if (elements.size() == 2) {
-            return new CustomEvent(duration, name, description);
-        }
-        else {
-            String settings = elements.get(2);
-            return new CustomEvent(duration, name, description, settings);
+            return new CustomEventRepeat(interval, count, until, jitter);
+        } catch (IllegalArgumentException e) {
+            throw new ScheduleEventWrongFormat(e.getMessage() + " from line: [" + line + "]", e);
         }
     }
 
@@ -141,24 +231,50 @@ public class CustomEvent {
         }
         int indexOpen = nameWithDescription.indexOf("(");
         int indexClose = nameWithDescription.lastIndexOf(")");
-        if (indexClose == -1) { throw new EventSchedulerRuntimeException("closing parentheses ')' is missing in '" + nameWithDescription + "'"); }
+        if (indexClose < indexOpen) { throw new EventSchedulerRuntimeException("closing parentheses ')' is missing in '" + nameWithDescription + "'"); }
 
         String name = nameWithDescription.substring(0, indexOpen).trim();
         String description = nameWithDescription.substring(indexOpen + 1, indexClose).trim();
 
-        String sanitizedName = nonAlphaNumsPattern.matcher(name).replaceAll("_");
-        String sanitizedDescription = nonAlphaNumsPattern.matcher(description).replaceAll("_");
-        
-        return new String[] { sanitizedName, sanitizedDescription };
+        return new String[] { sanitize(name), sanitize(description) };
+    }
+
+    /**
+     * Replace all characters other than A-Z, a-z, 0-9 and '-', ' ', '%', '+', '=', ':' with '_'.
+     */
+    private static String sanitize(String text) {
+        int length = text.length();
+        int i = 0;
+        while (i < length && isAllowedNameChar(text.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return text;
+        }
+        StringBuilder sanitized = new StringBuilder(length).append(text, 0, i);
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            // a character outside the basic plane is one replacement, as with a regex
+            sanitized.append(codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT && isAllowedNameChar((char) codePoint) ? (char) codePoint : '_');
+            i += Character.charCount(codePoint);
+        }
+        return sanitized.toString();
+    }
+
+    private static boolean isAllowedNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+            || c == '-' || c == ' ' || c == '%' || c == '+' || c == '=' || c == ':';
     }
 
     @Override
     public String toString() {
          String formattedDesc = getNameDescription();
+         String formattedRepeatAndPayload = (repeat == null ? "" : " repeat=" + repeat)
+             + (payload == null ? "" : " payload=" + payload);
 
          return settings == null
-                ? String.format("ScheduleEvent %s%s [fire-at=%s]", name, formattedDesc, duration)
-                : String.format("ScheduleEvent %s%s [fire-at=%s settings=%s]", name, formattedDesc, duration, limitString(settings, 50));
+                ? String.format("ScheduleEvent %s%s [fire-at=%s%s]", name, formattedDesc, duration, formattedRepeatAndPayload)
+                : String.format("ScheduleEvent %s%s [fire-at=%s%s settings=%s]", name, formattedDesc, duration, formattedRepeatAndPayload, limitString(settings, 50));
     }
 
     private String limitString(String text, int maxLength) {
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Single pass parser for schedule lines: duration|name(description)|settings.
+ *
+ * Scans the characters of the line once, without regular expressions, splits or intermediate lists.
+ * Common ISO-8601 durations are parsed directly, other durations (e.g. with signs) and invalid
+ * durations go to Duration.parse, so results and errors are the same.
+ */
+final class CustomEventLineParser {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long SECONDS_PER_HOUR = 3_600;
+    private static final long SECONDS_PER_MINUTE = 60;
+
+    private CustomEventLineParser() {}
+
+    static CustomEvent parse(String line) {
+
+        if (line == null || isBlank(line, 0, line.length())) {
+            throw new CustomEvent.ScheduleEventWrongFormat("empty line: [" + line + "]");
+        }
+
+        int firstPipe = line.indexOf('|');
+        if (firstPipe == -1) {
+            throw new CustomEvent.ScheduleEventWrongFormat("line should contain at least a duration and event name, separated by '|': [" + line + "]");
+        }
+
+        // same as String.split: trailing empty elements do not count
+        int end = line.length();
+        while (end > 0 && line.charAt(end - 1) == '|') {
+            end--;
+        }
+        int secondPipe = firstPipe < end ? line.indexOf('|', firstPipe + 1) : -1;
+        if (secondPipe >= end) {
+            secondPipe = -1;
+        }
+        int thirdPipe = secondPipe == -1 ? -1 : line.indexOf('|', secondPipe + 1);
+        if (firstPipe >= end || (thirdPipe != -1 && thirdPipe < end)) {
+            throw wrongNumberOfElements(line);
+        }
+
+        int durationStart = trimStart(line, 0, firstPipe);
+        int durationEnd = trimEnd(line, durationStart, firstPipe);
+        int nameEnd = secondPipe == -1 ? end : secondPipe;
+        int nameStart = trimStart(line, firstPipe + 1, nameEnd);
+        nameEnd = trimEnd(line, nameStart, nameEnd);
+
+        int repeatSeparator = indexOf(line, ';', durationStart, durationEnd);
+        int textDurationEnd = repeatSeparator == -1 ? durationEnd : trimEnd(line, durationStart, repeatSeparator);
+
+        String[] nameAndDescriptionPair = extractNameAndDescription(line, line.substring(nameStart, nameEnd));
+
+        Duration duration = parseDuration(line, durationStart, textDurationEnd);
+
+        CustomEventRepeat repeat = repeatSeparator == -1
+            ? null
+            : CustomEvent.parseRepeat(line.substring(repeatSeparator + 1, durationEnd), line);
+
+        String settings = null;
+        if (secondPipe != -1) {
+            int settingsStart = trimStart(line, secondPipe + 1, end);
+            settings = line.substring(settingsStart, trimEnd(line, settingsStart, end));
+        }
+        return new CustomEvent(duration, nameAndDescriptionPair[0], nameAndDescriptionPair[1], settings, repeat);
+    }
+
+    private static String[] extractNameAndDescription(String line, String nameWithDescription) {
+        try {
+            return CustomEvent.extractNameAndDescription(nameWithDescription);
+        } catch (EventSchedulerRuntimeException e) {
+            throw new CustomEvent.ScheduleEventWrongFormat(e.getMessage() + " from line: [" + line + "]", e);
+        }
+    }
+
+    private static CustomEvent.ScheduleEventWrongFormat wrongNumberOfElements(String line) {
+        return new CustomEvent.ScheduleEventWrongFormat("Wrong number of elements in line, expected 'duration|name(description)|setting' " +
+            "where (description) and settings are optional: [" + line + "]");
+    }
+
+    private static Duration parseDuration(String line, int start, int end) {
+        Duration duration = parseSimpleDuration(line, start, end);
+        if (duration != null) {
+            return duration;
+        }
+        String textDuration = line.substring(start, end);
+        try {
+            return Duration.parse(textDuration);
+        } catch (DateTimeParseException e) {
+            throw new CustomEvent.ScheduleEventWrongFormat("Failed to parse duration: [" + textDuration + "] from line: [" + line + "]", e);
+        }
+    }
+
+    /**
+     * Parses PnDTnHnMn.nS without signs, each part optional, case insensitive.
+     * @return null when the text is not in this form or overflows, Duration.parse decides then
+     */
+    static Duration parseSimpleDuration(CharSequence text, int start, int end) {
+        int i = start;
+        if (i >= end || (text.charAt(i) != 'P' && text.charAt(i) != 'p')) {
+            return null;
+        }
+        i++;
+        long seconds = 0;
+        long nanos = 0;
+        boolean inTimePart = false;
+        boolean hasPart = false;
+        boolean timePartHasPart = false;
+        // order of the units: D=0, H=1, M=2, S=3, each unit at most once and in order
+        int lastUnit = -1;
+        try {
+            while (i < end) {
+                char c = text.charAt(i);
+                if (c == 'T' || c == 't') {
+                    if (inTimePart) {
+                        return null;
+                    }
+                    inTimePart = true;
+                    i++;
+                    continue;
+                }
+                int digitsStart = i;
+                long value = 0;
+                while (i < end && isDigit(text.charAt(i))) {
+                    value = Math.addExact(Math.multiplyExact(value, 10), text.charAt(i) - '0');
+                    i++;
+                }
+                if (i == digitsStart || i == end) {
+                    return null;
+                }
+                char unit = Character.toUpperCase(text.charAt(i));
+                int unitOrder;
+                if (!inTimePart && unit == 'D') {
+                    unitOrder = 0;
+                    seconds = Math.addExact(seconds, Math.multiplyExact(value, SECONDS_PER_DAY));
+                }
+                else if (inTimePart && unit == 'H') {
+                    unitOrder = 1;
+                    seconds = Math.addExact(seconds, Math.multiplyExact(value, SECONDS_PER_HOUR));
+                }
+                else if (inTimePart && unit == 'M') {
+                    unitOrder = 2;
+                    seconds = Math.addExact(seconds, Math.multiplyExact(value, SECONDS_PER_MINUTE));
+                }
+                else if (inTimePart && (unit == 'S' || unit == '.' || unit == ',')) {
+                    unitOrder = 3;
+                    seconds = Math.addExact(seconds, value);
+                    if (unit != 'S') {
+                        i++;
+                        int fractionStart = i;
+                        while (i < end && isDigit(text.charAt(i)) && i - fractionStart < 9) {
+                            nanos = nanos * 10 + (text.charAt(i) - '0');
+                            i++;
+                        }
+                        for (int digits = i - fractionStart; digits < 9; digits++) {
+                            nanos = nanos * 10;
+                        }
+                        if (i == end || Character.toUpperCase(text.charAt(i)) != 'S') {
+                            return null;
+                        }
+                    }
+                }
+                else {
+                    return null;
+                }
+                if (unitOrder <= lastUnit) {
+                    return null;
+                }
+                lastUnit = unitOrder;
+                hasPart = true;
+                timePartHasPart = inTimePart;
+                i++;
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+        if (!hasPart || (inTimePart && !timePartHasPart)) {
+            return null;
+        }
+        return Duration.ofSeconds(seconds, nanos);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        return trimStart(text, start, end) == end;
+    }
+
+    /** Same as String.trim: characters up to and including space are white space. */
+    private static int trimStart(String text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int indexOf(String text, char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+
+/**
+ * Binary payload of a custom event, such as stub mappings or other large contents.
+ *
+ * The bytes are loaded or decoded once and never copied: all events that receive the custom
+ * event read the same bytes, each via its own read-only view from asByteBuffer().
+ */
+public final class CustomEventPayload {
+
+    private final ByteBuffer bytes;
+
+    private CustomEventPayload(ByteBuffer bytes) {
+        this.bytes = bytes.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Uses the remaining bytes of the buffer without a copy: do not change them afterwards.
+     */
+    public static CustomEventPayload of(ByteBuffer bytes) {
+        return new CustomEventPayload(bytes);
+    }
+
+    /**
+     * Uses the bytes without a copy: do not change them afterwards.
+     */
+    public static CustomEventPayload of(byte[] bytes) {
+        return new CustomEventPayload(ByteBuffer.wrap(bytes));
+    }
+
+    public static CustomEventPayload fromBase64(String base64) {
+        return of(Base64.getMimeDecoder().decode(base64));
+    }
+
+    public static CustomEventPayload fromFile(Path file) throws IOException {
+        return of(Files.readAllBytes(file));
+    }
+
+    /**
+     * Memory-maps the file, the bytes are read from the file when used. Files are limited to 2 GB.
+     */
+    public static CustomEventPayload map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new CustomEventPayload(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return a new read-only view on the payload bytes, with its own position and limit
+     */
+    public ByteBuffer asByteBuffer() {
+        return bytes.duplicate();
+    }
+
+    public int size() {
+        return bytes.capacity();
+    }
+
+    @Override
+    public String toString() {
+        return size() + " bytes";
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import lombok.Value;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Repeat spec of a recurring custom event: the event fires every interval from its first
+ * fire-at time, until count occurrences or the until time is reached, whichever comes first.
+ *
+ * Each repeated occurrence is delayed by a random time between zero and jitter, the jitter does not add up.
+ */
+@Value
+public class CustomEventRepeat {
+    Duration interval;
+    /**
+     * Maximum number of occurrences, including the first one. Zero is no limit.
+     */
+    int count;
+    /**
+     * Last fire-at time from the start of the test. Null is no limit.
+     */
+    Duration until;
+    Duration jitter;
+
+    public CustomEventRepeat(Duration interval, int count, Duration until, Duration jitter) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("repeat interval should be positive: " + interval);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("repeat count should not be negative: " + count);
+        }
+        if (jitter != null && jitter.isNegative()) {
+            throw new IllegalArgumentException("repeat jitter should not be negative: " + jitter);
+        }
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+        this.jitter = jitter == null ? Duration.ZERO : jitter;
+    }
+
+    /**
+     * @param start the fire-at time of the first occurrence
+     * @param occurrence the occurrence number, the first occurrence is 0
+     * @return the fire-at time of the occurrence without jitter, empty when the repeat is over
+     */
+    public Optional<Duration> fireAt(Duration start, long occurrence) {
+        if (count > 0 && occurrence >= count) {
+            return Optional.empty();
+        }
+        Duration fireAt = start.plus(interval.multipliedBy(occurrence));
+        if (until != null && fireAt.compareTo(until) > 0) {
+            return Optional.empty();
+        }
+        return Optional.of(fireAt);
+    }
+
+    @Override
+    public String toString() {
+        return "every=" + interval
+            + (count > 0 ? ";count=" + count : "")
+            + (until != null ? ";until=" + until : "")
+            + (jitter.isZero() ? "" : ";jitter=" + jitter);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Parsed settings of a custom event, see CustomEvent.getParsedSettings().
+ *
+ * Two formats are detected:
+ * <ul>
+ *     <li>key=value pairs separated by ';', e.g. server=x;port=1567, values are strings</li>
+ *     <li>JSON-ish objects, e.g. { 'replicas':1 }, with single or double quotes, optionally
+ *     unquoted keys and optional commas, values are String, Long, Double, Boolean, null, List or CustomEventSettings</li>
+ * </ul>
+ * Settings in another format, such as a plain word, give empty settings.
+ *
+ * Immutable and safe to share between threads.
+ */
+public final class CustomEventSettings {
+
+    public static final CustomEventSettings EMPTY = new CustomEventSettings(Collections.emptyMap(), false);
+
+    private final Map<String, Object> values;
+    private final boolean json;
+
+    CustomEventSettings(Map<String, Object> values, boolean json) {
+        this.values = Collections.unmodifiableMap(values);
+        this.json = json;
+    }
+
+    /**
+     * @throws CustomEvent.ScheduleEventWrongFormat for settings that look like JSON but are not
+     */
+    public static CustomEventSettings parse(String settings) {
+        return CustomEventSettingsParser.parse(settings);
+    }
+
+    public boolean isJson() {
+        return json;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    public Set<String> keys() {
+        return values.keySet();
+    }
+
+    /**
+     * @return the values in the order of the settings text
+     */
+    public Map<String, Object> asMap() {
+        return values;
+    }
+
+    /**
+     * @return the value as is, null when not present
+     */
+    public Object getValue(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * @return the value as string, null when not present or null
+     */
+    public String getString(String key) {
+        Object value = values.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = getString(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        long value = getLong(key, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw wrongType(key, "an int");
+        }
+        return (int) value;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Long) {
+            return (Long) value;
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw wrongType(key, "a whole number");
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw wrongType(key, "a number");
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        String text = value.toString().trim();
+        if ("true".equalsIgnoreCase(text)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(text)) {
+            return false;
+        }
+        throw wrongType(key, "true or false");
+    }
+
+    /**
+     * @return the ISO-8601 duration, e.g. PT2S
+     */
+    public Duration getDuration(String key, Duration defaultValue) {
+        Object value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Duration.parse(value.toString().trim());
+        } catch (DateTimeParseException e) {
+            throw wrongType(key, "an ISO-8601 duration");
+        }
+    }
+
+    /**
+     * @return the nested JSON object, empty settings when not present
+     */
+    public CustomEventSettings getSettings(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            return EMPTY;
+        }
+        if (value instanceof CustomEventSettings) {
+            return (CustomEventSettings) value;
+        }
+        throw wrongType(key, "an object");
+    }
+
+    /**
+     * @return the JSON array, empty list when not present
+     */
+    public List<Object> getList(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Object> list = (List<Object>) value;
+            return list;
+        }
+        throw wrongType(key, "a list");
+    }
+
+    private IllegalArgumentException wrongType(String key, String type) {
+        return new IllegalArgumentException("setting " + key + " is not " + type + ": " + values.get(key));
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser for the key=value and JSON-ish settings of a custom event, see CustomEventSettings.
+ *
+ * JSON-ish: strings in single or double quotes, keys may be unquoted and commas between members are optional.
+ */
+final class CustomEventSettingsParser {
+
+    private final String text;
+    private int index;
+
+    private CustomEventSettingsParser(String text) {
+        this.text = text;
+    }
+
+    static CustomEventSettings parse(String settings) {
+        if (settings == null) {
+            return CustomEventSettings.EMPTY;
+        }
+        String trimmed = settings.trim();
+        if (trimmed.startsWith("{")) {
+            CustomEventSettingsParser parser = new CustomEventSettingsParser(trimmed);
+            CustomEventSettings object = parser.parseObject();
+            parser.skipWhitespace();
+            if (parser.index != trimmed.length()) {
+                throw parser.wrongFormat("unexpected text after the closing '}'");
+            }
+            return object;
+        }
+        if (trimmed.indexOf('=') == -1) {
+            return CustomEventSettings.EMPTY;
+        }
+        return parseKeyValues(trimmed);
+    }
+
+    private static CustomEventSettings parseKeyValues(String settings) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String keyValue : settings.split(";")) {
+            if (keyValue.trim().isEmpty()) {
+                continue;
+            }
+            int equals = keyValue.indexOf('=');
+            if (equals == -1) {
+                values.put(keyValue.trim(), "");
+            }
+            else {
+                values.put(keyValue.substring(0, equals).trim(), keyValue.substring(equals + 1).trim());
+            }
+        }
+        return new CustomEventSettings(values, false);
+    }
+
+    private CustomEventSettings parseObject() {
+        expect('{');
+        Map<String, Object> values = new LinkedHashMap<>();
+        skipWhitespace();
+        if (peek() == '}') {
+            index++;
+            return new CustomEventSettings(values, true);
+        }
+        while (true) {
+            skipWhitespace();
+            String key = isQuote(peek()) ? parseString() : parseUnquotedKey();
+            skipWhitespace();
+            expect(':');
+            values.put(key, parseValue());
+            skipWhitespace();
+            char c = peek();
+            if (c == '}') {
+                index++;
+                return new CustomEventSettings(values, true);
+            }
+            if (c == ',') {
+                index++;
+            }
+        }
+    }
+
+    private List<Object> parseArray() {
+        expect('[');
+        List<Object> values = new ArrayList<>();
+        skipWhitespace();
+        if (peek() == ']') {
+            index++;
+            return Collections.unmodifiableList(values);
+        }
+        while (true) {
+            values.add(parseValue());
+            skipWhitespace();
+            char c = peek();
+            if (c == ']') {
+                index++;
+                return Collections.unmodifiableList(values);
+            }
+            if (c == ',') {
+                index++;
+            }
+        }
+    }
+
+    private Object parseValue() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '{') {
+            return parseObject();
+        }
+        if (c == '[') {
+            return parseArray();
+        }
+        if (isQuote(c)) {
+            return parseString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return parseNumber();
+        }
+        String word = parseUnquotedKey();
+        switch (word) {
+            case "true": return Boolean.TRUE;
+            case "false": return Boolean.FALSE;
+            case "null": return null;
+            default:
+                index -= word.length();
+                throw wrongFormat("unexpected value " + word);
+        }
+    }
+
+    private String parseString() {
+        char quote = next();
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == quote) {
+                return value.toString();
+            }
+            if (c == '\\') {
+                char escaped = next();
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'u':
+                        if (index + 4 > text.length()) {
+                            throw wrongFormat("incomplete unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(index, index + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw wrongFormat("invalid unicode escape");
+                        }
+                        index += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+            else {
+                value.append(c);
+            }
+        }
+    }
+
+    private Object parseNumber() {
+        int start = index;
+        while (index < text.length() && "+-0123456789.eE".indexOf(text.charAt(index)) != -1) {
+            index++;
+        }
+        String number = text.substring(start, index);
+        try {
+            if (number.indexOf('.') == -1 && number.indexOf('e') == -1 && number.indexOf('E') == -1) {
+                return Long.parseLong(number);
+            }
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            index = start;
+            throw wrongFormat("invalid number " + number);
+        }
+    }
+
+    private String parseUnquotedKey() {
+        int start = index;
+        while (index < text.length() && isKeyChar(text.charAt(index))) {
+            index++;
+        }
+        if (start == index) {
+            throw wrongFormat("expected a key or value");
+        }
+        return text.substring(start, index);
+    }
+
+    private static boolean isKeyChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.' || c == '$';
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '\'' || c == '"';
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (next() != expected) {
+            index--;
+            throw wrongFormat("expected '" + expected + "'");
+        }
+    }
+
+    private char peek() {
+        if (index >= text.length()) {
+            throw wrongFormat("unexpected end");
+        }
+        return text.charAt(index);
+    }
+
+    private char next() {
+        char c = peek();
+        index++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+    }
+
+    private CustomEvent.ScheduleEventWrongFormat wrongFormat(String message) {
+        return new CustomEvent.ScheduleEventWrongFormat("Failed to parse settings, " + message + " at position " + index + ": [" + text + "]");
+    }
+}
@@ -17,6 +17,7 @@ package nl.stokpop.eventscheduler.api;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * This interface can be implemented in other jars and be put on the classpath.
@@ -76,6 +77,17 @@ public interface Event {
      */
     void customEvent(CustomEvent scheduleEvent);
 
+    /**
+     * Called for custom events that are due at the same instant, when coalescing of custom events is enabled.
+     * Override to handle the group in one call, for example to apply multi-step changes at once.
+     *
+     * This default implementation calls customEvent for each custom event, in order.
+     * @param scheduleEvents the custom events in schedule order
+     */
+    default void customEvents(List<CustomEvent> scheduleEvents) {
+        scheduleEvents.forEach(this::customEvent);
+    }
+
     /**
      * @return collection of strings for all allowed custom events
      */
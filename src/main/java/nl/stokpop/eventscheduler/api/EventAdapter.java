@@ -48,27 +48,27 @@ public abstract class EventAdapter<T extends EventContext> implements Event {
 
     @Override
     public void beforeTest() {
-        logger.debug(String.format("[%s] [%s] beforeTest (not implemented)", eventContext.getName(), this.getClass().getName()));
+        logger.debug("[%s] [%s] beforeTest (not implemented)", eventContext.getName(), this.getClass().getName());
     }
 
     @Override
     public void startTest() {
-        logger.debug(String.format("[%s] [%s] startTest (not implemented)", eventContext.getName(), this.getClass().getName()));
+        logger.debug("[%s] [%s] startTest (not implemented)", eventContext.getName(), this.getClass().getName());
     }
 
     @Override
     public void afterTest() {
-        logger.debug(String.format("[%s] [%s] afterTest (not implemented)", eventContext.getName(), this.getClass().getName()));
+        logger.debug("[%s] [%s] afterTest (not implemented)", eventContext.getName(), this.getClass().getName());
     }
 
     @Override
     public void keepAlive() {
-        logger.debug(String.format("[%s] [%s] keepAlive (not implemented)", eventContext.getName(), this.getClass().getName()));
+        logger.debug("[%s] [%s] keepAlive (not implemented)", eventContext.getName(), this.getClass().getName());
     }
 
     @Override
     public void abortTest() {
-        logger.debug(String.format("[%s] [%s] abortTest (not implemented)", eventContext.getName(), this.getClass().getName()));
+        logger.debug("[%s] [%s] abortTest (not implemented)", eventContext.getName(), this.getClass().getName());
     }
 
     @Override
@@ -78,7 +78,7 @@ public abstract class EventAdapter<T extends EventContext> implements Event {
 
     @Override
     public void customEvent(CustomEvent customEvent) {
-        logger.debug(String.format("[%s] [%s] [%s] customEvent (not implemented)", eventContext.getName(), this.getClass().getName(), customEvent.getName()));
+        logger.debug("[%s] [%s] [%s] customEvent (not implemented)", eventContext.getName(), this.getClass().getName(), customEvent.getName());
     }
 
     @Override
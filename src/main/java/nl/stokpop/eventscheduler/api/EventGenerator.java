@@ -15,6 +15,9 @@
  */
 package nl.stokpop.eventscheduler.api;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -24,4 +27,18 @@ import java.util.List;
  */
 public interface EventGenerator {
     List<CustomEvent> generate();
+
+    /**
+     * Generate the custom events lazily, in fire-at order. The scheduler pulls the next events
+     * from the iterator while the test runs, so a very long schedule does not have to be on the heap.
+     *
+     * This default implementation sorts the list of generate(). Override for large schedules.
+     *
+     * @return the custom events in fire-at order
+     */
+    default Iterator<CustomEvent> generateLazily() {
+        List<CustomEvent> events = new ArrayList<>(generate());
+        events.sort(Comparator.comparing(CustomEvent::getDuration));
+        return events.iterator();
+    }
 }
@@ -15,6 +15,8 @@
  */
 package nl.stokpop.eventscheduler.api;
 
+import java.util.function.Supplier;
+
 public interface EventLogger {
     void info(String message);
     void warn(String message);
@@ -23,4 +25,41 @@ public interface EventLogger {
     void debug(String message);
     boolean isDebugEnabled();
 
+    /**
+     * The message is only created when debug is enabled.
+     * @param messageSupplier supplies the debug message
+     */
+    default void debug(Supplier<String> messageSupplier) {
+        if (isDebugEnabled()) {
+            debug(messageSupplier.get());
+        }
+    }
+
+    /**
+     * The message is only formatted when debug is enabled.
+     * @param format a format string as used in String.format
+     * @param args the arguments referenced by the format
+     */
+    default void debug(String format, Object... args) {
+        if (isDebugEnabled()) {
+            debug(String.format(format, args));
+        }
+    }
+
+    default void info(Supplier<String> messageSupplier) {
+        info(messageSupplier.get());
+    }
+
+    default void info(String format, Object... args) {
+        info(String.format(format, args));
+    }
+
+    default void warn(Supplier<String> messageSupplier) {
+        warn(messageSupplier.get());
+    }
+
+    default void warn(String format, Object... args) {
+        warn(String.format(format, args));
+    }
+
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Maps factory class names to their constructors, for the factories of one package.
+ *
+ * Implementations are generated for classes annotated with {@link RegisterFactory}
+ * with the name {@value #CLASS_NAME} in the package of the factories.
+ * The nl.stokpop.eventscheduler.LazyServiceLoader loads the registry by that name, so it needs a public no-arg constructor.
+ */
+public interface FactoryRegistry {
+
+    String CLASS_NAME = "EventSchedulerFactoryRegistry";
+
+    /**
+     * @return fully qualified class name of each factory mapped to its constructor
+     */
+    Map<String, Supplier<?>> factories();
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Put on an EventFactory or EventGeneratorFactory implementation to have it registered
+ * at compile time by the nl.stokpop.eventscheduler.processor.FactoryRegistryProcessor.
+ *
+ * The processor generates a FactoryRegistry per package, which is used before the
+ * ServiceLoader to find factories without classpath scanning and reflective construction.
+ * The generated registry is found by its class name, it does not need to be registered.
+ *
+ * The annotated class needs a public no-argument constructor.
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface RegisterFactory {
+}
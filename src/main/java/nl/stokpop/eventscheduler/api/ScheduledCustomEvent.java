@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import lombok.Value;
+
+/**
+ * A custom event in the live schedule of a running session.
+ *
+ * Use the id to cancel or reschedule the custom event via the EventScheduler.
+ */
+@Value
+public class ScheduledCustomEvent {
+    long id;
+    CustomEvent customEvent;
+}
@@ -17,7 +17,7 @@ package nl.stokpop.eventscheduler.api;
 
 /**
  * When a keep-alive event throws a KillSwitchException or AbortSchedulerException,
- * the kill or abort of this handler will be invoked.
+ * or an event sends a SchedulerSignal message, the kill or abort of this handler will be invoked.
  */
 public interface SchedulerExceptionHandler {
     void kill(String message);
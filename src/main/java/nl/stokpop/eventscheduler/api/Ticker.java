@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+/**
+ * Source of monotonic time in nanoseconds, used for the custom event timeline, keep-alive calls and circuit breakers.
+ *
+ * Replace the system ticker in tests to control time, like with {@link System#nanoTime()},
+ * only differences between two values are meaningful.
+ *
+ * The scheduler threads wait in real time for the delays that are measured with the ticker.
+ * So with the default scheduler threads a replacement ticker should advance at the pace of
+ * real time. A ticker that is moved by hand only works together with executors that run on
+ * the same ticker, such as a simulation in tests.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    Ticker SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+/**
+ * Types of records in a scheduler trace.
+ *
+ * Start and end records come in pairs on the same thread, the others are instants.
+ */
+public enum TraceRecordType {
+    BROADCAST_START('B'),
+    BROADCAST_END('E'),
+    EVENT_CALL_START('B'),
+    EVENT_CALL_END('E'),
+    CUSTOM_EVENT('i'),
+    MESSAGE('i');
+
+    private final char phase;
+
+    TraceRecordType(char phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * @return the phase as used in the Chrome trace-event format: B(egin), E(nd) or i(nstant)
+     */
+    public char getPhase() {
+        return phase;
+    }
+}
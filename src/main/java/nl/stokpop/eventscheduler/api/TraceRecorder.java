@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import java.io.Closeable;
+
+/**
+ * Records the timeline of a scheduler session for post-run analysis.
+ *
+ * Implementations are called from many threads during a test run, so
+ * record should be thread safe and cheap, and should never throw: tracing must not fail a test.
+ *
+ * The scheduler flushes the recorder after the check, after test and abort test broadcasts.
+ * Close the recorder when done with the scheduler, for instance after the last check results.
+ */
+public interface TraceRecorder extends Closeable {
+
+    /**
+     * @param type the type of record
+     * @param eventName name of the Event involved, can be null
+     * @param detail what happened: broadcast name, Event method, custom event name or message, can be null
+     * @param value extra value, e.g. 1 for an Event call that failed
+     */
+    void record(TraceRecordType type, String eventName, String detail, long value);
+
+    /**
+     * Make all records so far available to readers.
+     */
+    void flush();
+
+    /**
+     * Flush and release resources, records after close can be dropped.
+     */
+    @Override
+    default void close() {
+        flush();
+    }
+}
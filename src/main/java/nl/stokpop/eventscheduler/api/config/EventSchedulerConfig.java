@@ -43,7 +43,27 @@ public class EventSchedulerConfig {
     @Builder.Default
     private Integer keepAliveIntervalInSeconds = 30;
     @Builder.Default
+    private Integer eventCreationParallelism = 1;
+    @Builder.Default
+    private Double timeSpeedFactor = 1.0;
+    @Builder.Default
+    private Integer circuitBreakerFailureThreshold = 0;
+    @Builder.Default
+    private Integer circuitBreakerOpenDurationInSeconds = 60;
+    @Builder.Default
+    private Integer circuitBreakerSlowCallThresholdInSeconds = 0;
+    @Builder.Default
+    private Integer drainTimeoutInSeconds = 10;
+    @Builder.Default
+    private Boolean coalesceCustomEvents = false;
+    @Builder.Default
     private String scheduleScript = null;
+    @Builder.Default
+    private Boolean parallelScheduleParsing = false;
+    @Builder.Default
+    private Boolean scheduleCacheEnabled = false;
+    @Builder.Default
+    private String scheduleCacheDir = null;
     @Singular
     private List<EventConfig> eventConfigs;
     @Builder.Default
@@ -71,7 +91,17 @@ public class EventSchedulerConfig {
             .failOnError(failOnError)
             .continueOnEventCheckFailure(continueOnEventCheckFailure)
             .keepAliveInterval(Duration.ofSeconds(keepAliveIntervalInSeconds))
+            .eventCreationParallelism(eventCreationParallelism == null ? 1 : eventCreationParallelism)
+            .timeSpeedFactor(timeSpeedFactor == null ? 1.0 : timeSpeedFactor)
+            .circuitBreakerFailureThreshold(circuitBreakerFailureThreshold == null ? 0 : circuitBreakerFailureThreshold)
+            .circuitBreakerOpenDuration(Duration.ofSeconds(circuitBreakerOpenDurationInSeconds == null ? 60 : circuitBreakerOpenDurationInSeconds))
+            .circuitBreakerSlowCallThreshold(Duration.ofSeconds(circuitBreakerSlowCallThresholdInSeconds == null ? 0 : circuitBreakerSlowCallThresholdInSeconds))
+            .drainTimeout(Duration.ofSeconds(drainTimeoutInSeconds == null ? 10 : drainTimeoutInSeconds))
+            .coalesceCustomEvents(coalesceCustomEvents != null && coalesceCustomEvents)
             .scheduleScript(allScheduleScripts)
+            .parallelScheduleParsing(parallelScheduleParsing != null && parallelScheduleParsing)
+            .scheduleCacheEnabled(scheduleCacheEnabled != null && scheduleCacheEnabled)
+            .scheduleCacheDir(scheduleCacheDir)
             .eventContexts(eventContextsWithTopLevelConfig)
             .testContext(topLevelContext)
             .build();
@@ -38,8 +38,63 @@ public class EventSchedulerContext {
     boolean continueOnEventCheckFailure = true;
     @Builder.Default
     Duration keepAliveInterval = Duration.ofSeconds(30);
+    /**
+     * Number of threads to create the Events with, 1 means one after another in the calling thread.
+     */
+    @Builder.Default
+    int eventCreationParallelism = 1;
+    /**
+     * Speed of the custom events timeline: 1 is real time, 60 runs one hour of schedule in one minute.
+     * Infinity runs in virtual time: each custom event fires as soon as the previous one is processed.
+     */
+    @Builder.Default
+    double timeSpeedFactor = 1.0;
+    /**
+     * Consecutive failures of keep-alive or custom event calls of an Event before its calls are skipped, 0 disables the circuit breaker.
+     */
+    @Builder.Default
+    int circuitBreakerFailureThreshold = 0;
+    /**
+     * Time calls are skipped before one probe call is let through.
+     */
+    @Builder.Default
+    Duration circuitBreakerOpenDuration = Duration.ofSeconds(60);
+    /**
+     * Calls that take longer count as failure, zero to only count exceptions.
+     */
+    @Builder.Default
+    Duration circuitBreakerSlowCallThreshold = Duration.ZERO;
+    /**
+     * On stop session, the maximum time to wait for in-flight keep-alive and
+     * custom event calls before 'after test' is called.
+     */
+    @Builder.Default
+    Duration drainTimeout = Duration.ofSeconds(10);
+    /**
+     * Broadcast custom events that are due at the same instant as one batch, events receive
+     * the batch in one customEvents call, in schedule order.
+     */
+    @Builder.Default
+    boolean coalesceCustomEvents = false;
     @Builder.Default
     String scheduleScript = "";
+    /**
+     * Parse the schedule script in parallel chunks and report all wrong lines at once,
+     * instead of stopping at the first wrong line. The custom events are sorted in fire-at order.
+     */
+    @Builder.Default
+    boolean parallelScheduleParsing = false;
+    /**
+     * Cache the compiled schedule in memory, keyed by a hash of the schedule script.
+     */
+    @Builder.Default
+    boolean scheduleCacheEnabled = false;
+    /**
+     * Directory to also cache the compiled schedule on disk, null for no disk cache.
+     * Only used when the schedule cache is enabled.
+     */
+    @Builder.Default
+    String scheduleCacheDir = null;
     @Singular
     List<EventContext> eventContexts;
     @Builder.Default
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api.message;
+
+import nl.stokpop.eventscheduler.api.SchedulerExceptionType;
+
+/**
+ * Messages that Events can send on the EventMessageBus to kill or abort the running test right away,
+ * instead of waiting for the next keep-alive call to throw a KillSwitchException or AbortSchedulerException.
+ *
+ * The EventScheduler passes these on to the kill or abort of its SchedulerExceptionHandler.
+ */
+public final class SchedulerSignal {
+
+    public static final String KILL_MESSAGE = "kill!";
+    public static final String ABORT_MESSAGE = "abort!";
+    public static final String REASON_VARIABLE = "reason";
+
+    private SchedulerSignal() {
+    }
+
+    public static EventMessage kill(String pluginName, String reason) {
+        return create(pluginName, KILL_MESSAGE, reason);
+    }
+
+    public static EventMessage abort(String pluginName, String reason) {
+        return create(pluginName, ABORT_MESSAGE, reason);
+    }
+
+    /**
+     * @return the signal type of the message, or null when the message is not a kill or abort signal
+     */
+    public static SchedulerExceptionType signalType(EventMessage message) {
+        if (KILL_MESSAGE.equalsIgnoreCase(message.getMessage())) {
+            return SchedulerExceptionType.KILL;
+        }
+        if (ABORT_MESSAGE.equalsIgnoreCase(message.getMessage())) {
+            return SchedulerExceptionType.ABORT;
+        }
+        return null;
+    }
+
+    private static EventMessage create(String pluginName, String message, String reason) {
+        return EventMessage.builder()
+            .pluginName(pluginName)
+            .message(message)
+            .variable(REASON_VARIABLE, reason == null ? "" : reason)
+            .build();
+    }
+}
@@ -18,9 +18,11 @@ package nl.stokpop.eventscheduler.event;
 import nl.stokpop.eventscheduler.api.Event;
 import nl.stokpop.eventscheduler.api.EventFactory;
 import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.RegisterFactory;
 import nl.stokpop.eventscheduler.api.config.EventContext;
 import nl.stokpop.eventscheduler.api.message.EventMessageBus;
 
+@RegisterFactory
 public class EventFactoryDefault implements EventFactory<EventContext>{
 
     private String name;
@@ -15,19 +15,29 @@
  */
 package nl.stokpop.eventscheduler.event;
 
+import nl.stokpop.eventscheduler.LazyServiceLoader;
 import nl.stokpop.eventscheduler.api.EventFactory;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Finds EventFactory implementations on the classpath (via META-INF/services).
+ *
+ * Only the factories that are asked for are instantiated, once per provider, so each build
+ * gets its own factories. The classpath scan is cached per ClassLoader, so repeated builds skip it.
+ */
 public class EventFactoryProvider {
 
-    private final Map<String, EventFactory<?>> eventFactories;
+    @SuppressWarnings("unchecked")
+    private static final Class<EventFactory<?>> EVENT_FACTORY_TYPE = (Class<EventFactory<?>>) (Class<?>) EventFactory.class;
+
+    private final LazyServiceLoader<EventFactory<?>> eventFactories;
+    private final ConcurrentMap<String, Optional<EventFactory>> factories = new ConcurrentHashMap<>();
 
-    private EventFactoryProvider(List<EventFactory<?>> eventFactories) {
-        Map<String, EventFactory<?>> map = eventFactories.stream()
-                .collect(Collectors.toMap(f -> f.getClass().getName(), f -> f));
-        this.eventFactories = Collections.unmodifiableMap(map);
+    private EventFactoryProvider(LazyServiceLoader<EventFactory<?>> eventFactories) {
+        this.eventFactories = eventFactories;
     }
 
     public static EventFactoryProvider createInstanceFromClasspath() {
@@ -35,15 +45,7 @@ public class EventFactoryProvider {
     }
 
     public static EventFactoryProvider createInstanceFromClasspath(ClassLoader classLoader) {
-        ServiceLoader<EventFactory> eventFactoryLoader = classLoader == null
-                ? ServiceLoader.load(EventFactory.class)
-                : ServiceLoader.load(EventFactory.class, classLoader);
-        // java 9+: List<EventFactory> eventFactories = eventFactoryLoader.stream().map(ServiceLoader.Provider::get).collect(Collectors.toList());
-        List<EventFactory<?>> eventFactories = new ArrayList<>();
-        for (EventFactory<?> eventFactory : eventFactoryLoader) {
-            eventFactories.add(eventFactory);
-        }
-        return new EventFactoryProvider(eventFactories);
+        return new EventFactoryProvider(LazyServiceLoader.of(EVENT_FACTORY_TYPE, classLoader));
     }
 
     /**
@@ -53,7 +55,10 @@ public class EventFactoryProvider {
      * @return an optional which is empty if the factory for given class name is not present
      */
     public Optional<EventFactory> factoryByClassName(String className) {
-        return Optional.ofNullable(eventFactories.get(className));
+        if (className == null) {
+            return Optional.empty();
+        }
+        return factories.computeIfAbsent(className, name -> eventFactories.find(name).map(EventFactory.class::cast));
     }
 
 }
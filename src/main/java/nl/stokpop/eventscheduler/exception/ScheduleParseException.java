@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.exception;
+
+import lombok.Value;
+import nl.stokpop.eventscheduler.api.CustomEvent;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * All wrong lines of a schedule script, reported at once.
+ */
+public class ScheduleParseException extends CustomEvent.ScheduleEventWrongFormat {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_ERRORS_IN_MESSAGE = 100;
+
+    private final List<LineError> lineErrors;
+
+    public ScheduleParseException(List<LineError> lineErrors) {
+        super(createMessage(lineErrors));
+        this.lineErrors = Collections.unmodifiableList(lineErrors);
+    }
+
+    /**
+     * @return all line errors, in line order
+     */
+    public List<LineError> getLineErrors() {
+        return lineErrors;
+    }
+
+    private static String createMessage(List<LineError> lineErrors) {
+        String errors = lineErrors.stream()
+            .limit(MAX_ERRORS_IN_MESSAGE)
+            .map(error -> "line " + error.getLineNumber() + ": " + error.getMessage())
+            .collect(Collectors.joining("\n"));
+        String more = lineErrors.size() > MAX_ERRORS_IN_MESSAGE
+            ? "\n... and " + (lineErrors.size() - MAX_ERRORS_IN_MESSAGE) + " more"
+            : "";
+        return lineErrors.size() + " wrong lines in schedule:\n" + errors + more;
+    }
+
+    @Value
+    public static class LineError implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Line number in the script, the first line is 1.
+         */
+        int lineNumber;
+        String line;
+        String message;
+    }
+}
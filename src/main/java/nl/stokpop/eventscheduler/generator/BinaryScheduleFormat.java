@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+/**
+ * Layout of the binary schedule file, all numbers big-endian.
+ *
+ * <pre>
+ * header (32 bytes)
+ *   int  magic            'ESCH'
+ *   int  version          2
+ *   int  record count
+ *   int  string count
+ *   long string pool offset
+ *   int  repeat count
+ *   int  payload count
+ * records (28 bytes each, sorted on fire-at time)
+ *   long fire-at nanos    from the start of the test
+ *   int  name id
+ *   int  description id   -1 for the default description (name-duration)
+ *   int  settings id      -1 for no settings
+ *   int  repeat id        -1 for no repeat
+ *   int  payload id       -1 for no payload
+ * repeats (32 bytes each)
+ *   long interval nanos
+ *   long until nanos      -1 for no until
+ *   long jitter nanos
+ *   int  count            0 for no limit
+ *   int  reserved         0
+ * payloads
+ *   (long start, long length)[payload count]  relative to the payload bytes
+ *   byte[]                bytes of all payloads
+ * string pool
+ *   int[string count + 1] start of each string, relative to the string bytes
+ *   byte[]                UTF-8 bytes of all strings
+ * </pre>
+ *
+ * The file is memory-mapped when read, so it is limited to 2 GB. Payloads are read-only
+ * views on the mapped file.
+ *
+ * Version 2 added payloads.
+ */
+final class BinaryScheduleFormat {
+
+    static final int MAGIC = 0x45534348;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 28;
+    static final int REPEAT_SIZE = 32;
+    static final int PAYLOAD_ENTRY_SIZE = 16;
+    static final int NONE = -1;
+
+    static final int RECORD_COUNT_OFFSET = 8;
+    static final int STRING_COUNT_OFFSET = 12;
+    static final int STRING_POOL_OFFSET_OFFSET = 16;
+    static final int REPEAT_COUNT_OFFSET = 24;
+    static final int PAYLOAD_COUNT_OFFSET = 28;
+
+    private BinaryScheduleFormat() {}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventPayload;
+import nl.stokpop.eventscheduler.api.CustomEventRepeat;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static nl.stokpop.eventscheduler.generator.BinaryScheduleFormat.*;
+
+/**
+ * Reads a binary schedule file, see BinaryScheduleFormat.
+ *
+ * The file is memory-mapped: opening only checks the header, records are read
+ * from the mapped file when an event is asked for. Strings and repeats are
+ * decoded once per reader and shared between the events. Payloads are read-only views
+ * on the mapped file, they are not copied.
+ */
+public final class BinaryScheduleReader implements Iterable<CustomEvent> {
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int stringCount;
+    private final int repeatsStart;
+    private final int payloadTableStart;
+    private final int payloadBytesStart;
+    private final int stringOffsetsStart;
+    private final int stringBytesStart;
+    private final String[] strings;
+    private final CustomEventRepeat[] repeats;
+    private final CustomEventPayload[] payloads;
+
+    private BinaryScheduleReader(ByteBuffer buffer, Path file) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new EventSchedulerRuntimeException("not a binary schedule file: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new EventSchedulerRuntimeException("unsupported binary schedule version " + version + " in " + file + ", expected " + VERSION);
+        }
+        this.recordCount = buffer.getInt(RECORD_COUNT_OFFSET);
+        this.stringCount = buffer.getInt(STRING_COUNT_OFFSET);
+        long stringPoolOffset = buffer.getLong(STRING_POOL_OFFSET_OFFSET);
+        int repeatCount = buffer.getInt(REPEAT_COUNT_OFFSET);
+        int payloadCount = buffer.getInt(PAYLOAD_COUNT_OFFSET);
+
+        long repeatsStart = HEADER_SIZE + (long) recordCount * RECORD_SIZE;
+        long payloadTableStart = repeatsStart + (long) repeatCount * REPEAT_SIZE;
+        long payloadBytesStart = payloadTableStart + (long) payloadCount * PAYLOAD_ENTRY_SIZE;
+        long stringBytesStart = stringPoolOffset + (stringCount + 1L) * Integer.BYTES;
+        if (recordCount < 0 || stringCount < 0 || repeatCount < 0 || payloadCount < 0
+            || payloadBytesStart > stringPoolOffset
+            || stringPoolOffset != payloadBytesStart + payloadBytesLength(buffer, payloadTableStart, payloadCount)
+            || stringBytesStart > buffer.capacity()
+            || stringBytesStart + buffer.getInt((int) stringBytesStart - Integer.BYTES) != buffer.capacity()) {
+            throw new EventSchedulerRuntimeException("corrupt binary schedule file: " + file);
+        }
+        this.repeatsStart = (int) repeatsStart;
+        this.payloadTableStart = (int) payloadTableStart;
+        this.payloadBytesStart = (int) payloadBytesStart;
+        this.stringOffsetsStart = (int) stringPoolOffset;
+        this.stringBytesStart = (int) stringBytesStart;
+        this.strings = new String[stringCount];
+        this.repeats = new CustomEventRepeat[repeatCount];
+        this.payloads = new CustomEventPayload[payloadCount];
+    }
+
+    public static BinaryScheduleReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new EventSchedulerRuntimeException("binary schedule file is larger than 2 GB: " + file);
+            }
+            // the mapping stays valid after the channel is closed
+            return new BinaryScheduleReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), file);
+        }
+    }
+
+    public int size() {
+        return recordCount;
+    }
+
+    public long fireAtNanos(int index) {
+        return buffer.getLong(recordStart(index));
+    }
+
+    public CustomEvent get(int index) {
+        int start = recordStart(index);
+        Duration fireAt = Duration.ofNanos(buffer.getLong(start));
+        String name = string(buffer.getInt(start + 8));
+        int descriptionId = buffer.getInt(start + 12);
+        int settingsId = buffer.getInt(start + 16);
+        int repeatId = buffer.getInt(start + 20);
+        int payloadId = buffer.getInt(start + 24);
+        return new CustomEvent(fireAt, name,
+            descriptionId == NONE ? null : string(descriptionId),
+            settingsId == NONE ? null : string(settingsId),
+            repeatId == NONE ? null : repeat(repeatId),
+            payloadId == NONE ? null : payload(payloadId));
+    }
+
+    @Override
+    public Iterator<CustomEvent> iterator() {
+        return new Iterator<CustomEvent>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < recordCount;
+            }
+
+            @Override
+            public CustomEvent next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    private int recordStart(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("index " + index + " for " + recordCount + " records");
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private static long payloadBytesLength(ByteBuffer buffer, long payloadTableStart, int payloadCount) {
+        if (payloadCount == 0) {
+            return 0;
+        }
+        long lastEntry = payloadTableStart + (payloadCount - 1L) * PAYLOAD_ENTRY_SIZE;
+        if (lastEntry + PAYLOAD_ENTRY_SIZE > buffer.capacity()) {
+            return -1;
+        }
+        return buffer.getLong((int) lastEntry) + buffer.getLong((int) lastEntry + 8);
+    }
+
+    private CustomEventPayload payload(int id) {
+        CustomEventPayload value = payloads[id];
+        if (value == null) {
+            int entry = payloadTableStart + id * PAYLOAD_ENTRY_SIZE;
+            ByteBuffer view = buffer.duplicate();
+            view.position(payloadBytesStart + (int) buffer.getLong(entry));
+            view.limit(view.position() + (int) buffer.getLong(entry + 8));
+            value = CustomEventPayload.of(view);
+            payloads[id] = value;
+        }
+        return value;
+    }
+
+    private String string(int id) {
+        String value = strings[id];
+        if (value == null) {
+            int start = buffer.getInt(stringOffsetsStart + id * Integer.BYTES);
+            int end = buffer.getInt(stringOffsetsStart + (id + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = buffer.duplicate();
+            view.position(stringBytesStart + start);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[id] = value;
+        }
+        return value;
+    }
+
+    private CustomEventRepeat repeat(int id) {
+        CustomEventRepeat value = repeats[id];
+        if (value == null) {
+            int start = repeatsStart + id * REPEAT_SIZE;
+            long untilNanos = buffer.getLong(start + 8);
+            value = new CustomEventRepeat(
+                Duration.ofNanos(buffer.getLong(start)),
+                buffer.getInt(start + 24),
+                untilNanos == NONE ? null : Duration.ofNanos(untilNanos),
+                Duration.ofNanos(buffer.getLong(start + 16)));
+            repeats[id] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventPayload;
+import nl.stokpop.eventscheduler.api.CustomEventRepeat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nl.stokpop.eventscheduler.generator.BinaryScheduleFormat.*;
+
+/**
+ * Writes custom events to a binary schedule file, see BinaryScheduleFormat.
+ *
+ * The records are streamed to the file, only the unique strings are kept in memory.
+ * Payloads are written from their own bytes on close.
+ * Add the events in fire-at order, the file is complete after close.
+ */
+public final class BinaryScheduleWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private final Map<CustomEventRepeat, Integer> repeatIds = new HashMap<>();
+    private final List<CustomEventRepeat> repeats = new ArrayList<>();
+    // payloads are compared by identity
+    private final Map<CustomEventPayload, Integer> payloadIds = new HashMap<>();
+    private final List<CustomEventPayload> payloads = new ArrayList<>();
+    private int recordCount;
+    private long lastFireAtNanos = Long.MIN_VALUE;
+
+    private BinaryScheduleWriter(FileChannel channel) throws IOException {
+        this.channel = channel;
+        // header is written on close, when the counts are known
+        channel.position(HEADER_SIZE);
+    }
+
+    public static BinaryScheduleWriter create(Path file) throws IOException {
+        return new BinaryScheduleWriter(FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the event fires before the previous event
+     */
+    public BinaryScheduleWriter add(CustomEvent event) throws IOException {
+        long fireAtNanos = event.getDuration().toNanos();
+        if (fireAtNanos < lastFireAtNanos) {
+            throw new IllegalArgumentException("custom events should be added in fire-at order, " + event
+                + " is before " + Duration.ofNanos(lastFireAtNanos));
+        }
+        lastFireAtNanos = fireAtNanos;
+
+        String defaultDescription = event.getName() + "-" + event.getDuration();
+        if (buffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        buffer.putLong(fireAtNanos);
+        buffer.putInt(stringId(event.getName()));
+        buffer.putInt(defaultDescription.equals(event.getDescription()) ? NONE : stringId(event.getDescription()));
+        buffer.putInt(event.getSettings() == null ? NONE : stringId(event.getSettings()));
+        buffer.putInt(event.getRepeat() == null ? NONE : repeatId(event.getRepeat()));
+        buffer.putInt(event.getPayload() == null ? NONE : payloadId(event.getPayload()));
+        recordCount++;
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            writeRepeats();
+            writePayloads();
+            long stringPoolOffset = channel.position();
+            writeStringPool();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(recordCount)
+                .putInt(strings.size())
+                .putLong(stringPoolOffset)
+                .putInt(repeats.size())
+                .putInt(payloads.size());
+            header.flip();
+            channel.position(0);
+            writeFully(header);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeRepeats() throws IOException {
+        for (CustomEventRepeat repeat : repeats) {
+            if (buffer.remaining() < REPEAT_SIZE) {
+                flush();
+            }
+            buffer.putLong(repeat.getInterval().toNanos());
+            buffer.putLong(repeat.getUntil() == null ? NONE : repeat.getUntil().toNanos());
+            buffer.putLong(repeat.getJitter().toNanos());
+            buffer.putInt(repeat.getCount());
+            buffer.putInt(0);
+        }
+        flush();
+    }
+
+    private void writePayloads() throws IOException {
+        long start = 0;
+        for (CustomEventPayload payload : payloads) {
+            if (buffer.remaining() < PAYLOAD_ENTRY_SIZE) {
+                flush();
+            }
+            buffer.putLong(start);
+            buffer.putLong(payload.size());
+            start += payload.size();
+        }
+        flush();
+        for (CustomEventPayload payload : payloads) {
+            writeFully(payload.asByteBuffer());
+        }
+    }
+
+    private void writeStringPool() throws IOException {
+        int start = 0;
+        for (byte[] string : strings) {
+            putInt(start);
+            start += string.length;
+        }
+        putInt(start);
+        for (byte[] string : strings) {
+            if (buffer.remaining() < string.length) {
+                flush();
+            }
+            if (string.length > buffer.capacity()) {
+                writeFully(ByteBuffer.wrap(string));
+            }
+            else {
+                buffer.put(string);
+            }
+        }
+        flush();
+    }
+
+    private void putInt(int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            flush();
+        }
+        buffer.putInt(value);
+    }
+
+    private int stringId(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private int repeatId(CustomEventRepeat repeat) {
+        Integer id = repeatIds.get(repeat);
+        if (id == null) {
+            id = repeats.size();
+            repeatIds.put(repeat, id);
+            repeats.add(repeat);
+        }
+        return id;
+    }
+
+    private int payloadId(CustomEventPayload payload) {
+        Integer id = payloadIds.get(payload);
+        if (id == null) {
+            id = payloads.size();
+            payloadIds.put(payload, id);
+            payloads.add(payload);
+        }
+        return id;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventPayload;
+import nl.stokpop.eventscheduler.api.CustomEventRepeat;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact, immutable store for large custom event schedules.
+ *
+ * The fire-at times are a sorted long[] of nanos, names and descriptions are int ids into one
+ * intern table, settings, repeat specs and payloads are ids into tables of unique values. A description
+ * that is the default (name-duration) is not stored at all. A CustomEvent is only created when
+ * it is read, e.g. when the engine pulls it to schedule it.
+ *
+ * Fire-at times are limited to about 292 years, the range of a long of nanos.
+ */
+public final class CompactSchedule implements Iterable<CustomEvent> {
+
+    private static final int NONE = -1;
+
+    private final long[] fireAtNanos;
+    private final int[] nameIds;
+    private final int[] descriptionIds;
+    private final int[] settingsIds;
+    private final int[] repeatIds;
+    private final int[] payloadIds;
+    private final String[] strings;
+    private final String[] settings;
+    private final CustomEventRepeat[] repeats;
+    private final CustomEventPayload[] payloads;
+
+    private CompactSchedule(Builder builder, int[] order) {
+        int size = builder.size;
+        fireAtNanos = new long[size];
+        nameIds = new int[size];
+        descriptionIds = new int[size];
+        settingsIds = new int[size];
+        repeatIds = new int[size];
+        payloadIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            int from = order == null ? i : order[i];
+            fireAtNanos[i] = builder.fireAtNanos[from];
+            nameIds[i] = builder.nameIds[from];
+            descriptionIds[i] = builder.descriptionIds[from];
+            settingsIds[i] = builder.settingsIds[from];
+            repeatIds[i] = builder.repeatIds[from];
+            payloadIds[i] = builder.payloadIds[from];
+        }
+        strings = builder.strings.toArray(String[].class);
+        settings = builder.settings.toArray(String[].class);
+        repeats = builder.repeats.toArray(CustomEventRepeat[].class);
+        payloads = builder.payloads.toArray(CustomEventPayload[].class);
+    }
+
+    public static CompactSchedule of(Iterable<CustomEvent> events) {
+        Builder builder = builder();
+        events.forEach(builder::add);
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return fireAtNanos.length;
+    }
+
+    public long fireAtNanos(int index) {
+        return fireAtNanos[index];
+    }
+
+    /**
+     * @return a new CustomEvent for the event at index, in fire-at order
+     */
+    public CustomEvent get(int index) {
+        String name = strings[nameIds[index]];
+        int descriptionId = descriptionIds[index];
+        return new CustomEvent(
+            Duration.ofNanos(fireAtNanos[index]),
+            name,
+            // null gives the default description
+            descriptionId == NONE ? null : strings[descriptionId],
+            settingsIds[index] == NONE ? null : settings[settingsIds[index]],
+            repeatIds[index] == NONE ? null : repeats[repeatIds[index]],
+            payloadIds[index] == NONE ? null : payloads[payloadIds[index]]);
+    }
+
+    /**
+     * @return the custom events in fire-at order, each created when it is read
+     */
+    @Override
+    public Iterator<CustomEvent> iterator() {
+        return new Iterator<CustomEvent>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < fireAtNanos.length;
+            }
+
+            @Override
+            public CustomEvent next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * @return a read-only list view, each get creates the CustomEvent
+     */
+    public List<CustomEvent> asList() {
+        return new AbstractList<CustomEvent>() {
+            @Override
+            public CustomEvent get(int index) {
+                return CompactSchedule.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return CompactSchedule.this.size();
+            }
+        };
+    }
+
+    public static final class Builder {
+        private int size;
+        private long[] fireAtNanos = new long[16];
+        private int[] nameIds = new int[16];
+        private int[] descriptionIds = new int[16];
+        private int[] settingsIds = new int[16];
+        private int[] repeatIds = new int[16];
+        private int[] payloadIds = new int[16];
+        private final InternTable<String> strings = new InternTable<>();
+        private final InternTable<String> settings = new InternTable<>();
+        private final InternTable<CustomEventRepeat> repeats = new InternTable<>();
+        // payloads are compared by identity, the bytes are shared, not copied
+        private final InternTable<CustomEventPayload> payloads = new InternTable<>();
+        private boolean sorted = true;
+
+        private Builder() {}
+
+        public Builder add(CustomEvent event) {
+            if (size == fireAtNanos.length) {
+                int capacity = size * 2;
+                fireAtNanos = Arrays.copyOf(fireAtNanos, capacity);
+                nameIds = Arrays.copyOf(nameIds, capacity);
+                descriptionIds = Arrays.copyOf(descriptionIds, capacity);
+                settingsIds = Arrays.copyOf(settingsIds, capacity);
+                repeatIds = Arrays.copyOf(repeatIds, capacity);
+                payloadIds = Arrays.copyOf(payloadIds, capacity);
+            }
+            long nanos = event.getDuration().toNanos();
+            sorted = sorted && (size == 0 || fireAtNanos[size - 1] <= nanos);
+            fireAtNanos[size] = nanos;
+            nameIds[size] = strings.id(event.getName());
+            String defaultDescription = event.getName() + "-" + event.getDuration();
+            descriptionIds[size] = defaultDescription.equals(event.getDescription()) ? NONE : strings.id(event.getDescription());
+            settingsIds[size] = event.getSettings() == null ? NONE : settings.id(event.getSettings());
+            repeatIds[size] = event.getRepeat() == null ? NONE : repeats.id(event.getRepeat());
+            payloadIds[size] = event.getPayload() == null ? NONE : payloads.id(event.getPayload());
+            size++;
+            return this;
+        }
+
+        /**
+         * @return the schedule in fire-at order, events with the same fire-at time keep the order they were added in
+         */
+        public CompactSchedule build() {
+            return new CompactSchedule(this, sorted ? null : sortedOrder());
+        }
+
+        private int[] sortedOrder() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            // object sort is stable
+            Arrays.sort(order, (a, b) -> Long.compare(fireAtNanos[a], fireAtNanos[b]));
+            return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static final class InternTable<T> {
+        private final Map<T, Integer> ids = new HashMap<>();
+        private Object[] values = new Object[16];
+
+        private int id(T value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size();
+                ids.put(value, id);
+                if (id == values.length) {
+                    values = Arrays.copyOf(values, id * 2);
+                }
+                values[id] = value;
+            }
+            return id;
+        }
+
+        private T[] toArray(Class<T[]> type) {
+            return Arrays.copyOf(values, ids.size(), type);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventRepeat;
+import nl.stokpop.eventscheduler.api.EventGenerator;
+import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Cache of compiled custom event schedules, keyed by a content hash of the schedule input.
+ *
+ * A compiled schedule is the parsed custom events in a CompactSchedule, sorted in fire-at order.
+ * It is kept in memory for the lifetime of the JVM and, when a directory is given,
+ * also on disk, so next builds with an unchanged schedule skip the parsing.
+ */
+public final class CompiledScheduleCache {
+
+    private static final int MAX_IN_MEMORY = 16;
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_EXTENSION = ".schedule";
+
+    // shared by all schedulers in this JVM, least recently used schedules are removed first
+    private static final Map<String, CompactSchedule> IN_MEMORY = Collections.synchronizedMap(
+        new LinkedHashMap<String, CompactSchedule>(MAX_IN_MEMORY, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompactSchedule> eldest) {
+                return size() > MAX_IN_MEMORY;
+            }
+        });
+
+    private final Path cacheDir;
+    private final EventLogger logger;
+
+    /**
+     * @param cacheDir directory for the compiled schedules on disk, null to only cache in memory
+     */
+    public CompiledScheduleCache(Path cacheDir, EventLogger logger) {
+        this.cacheDir = cacheDir;
+        this.logger = logger;
+    }
+
+    /**
+     * @param generator the generator to compile the schedule on a cache miss
+     * @param inputs all input the generator uses, e.g. the generator class name and the schedule script
+     * @return generator that returns the compiled schedule from cache when present
+     */
+    public EventGenerator cached(EventGenerator generator, String... inputs) {
+        String key = contentHash(inputs);
+        return new EventGenerator() {
+            @Override
+            public List<CustomEvent> generate() {
+                return new ArrayList<>(get(key, () -> compile(generator)).asList());
+            }
+
+            @Override
+            public Iterator<CustomEvent> generateLazily() {
+                return get(key, () -> compile(generator)).iterator();
+            }
+        };
+    }
+
+    private static CompactSchedule compile(EventGenerator generator) {
+        return generator instanceof EventGeneratorDefault
+            ? ((EventGeneratorDefault) generator).compile()
+            : CompactSchedule.of(generator::generateLazily);
+    }
+
+    CompactSchedule get(String key, Supplier<CompactSchedule> compiler) {
+        CompactSchedule events = IN_MEMORY.get(key);
+        if (events != null) {
+            logger.debug("compiled schedule found in memory: " + key);
+            return events;
+        }
+        events = cacheDir == null ? null : readFromDisk(key);
+        if (events == null) {
+            long start = System.nanoTime();
+            events = compiler.get();
+            logger.info("compiled schedule with " + events.size() + " custom events in " + Duration.ofNanos(System.nanoTime() - start) + ": " + key);
+            if (cacheDir != null) {
+                writeToDisk(key, events);
+            }
+        }
+        IN_MEMORY.put(key, events);
+        return events;
+    }
+
+    static void clearInMemory() {
+        IN_MEMORY.clear();
+    }
+
+    static String contentHash(String... inputs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String input : inputs) {
+                digest.update(String.valueOf(input).getBytes(StandardCharsets.UTF_8));
+                // separator, so the boundaries between the inputs count as well
+                digest.update((byte) 0);
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new EventSchedulerRuntimeException("SHA-256 not available", e);
+        }
+    }
+
+    private CompactSchedule readFromDisk(String key) {
+        Path file = cacheDir.resolve(key + FILE_EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                logger.info("compiled schedule on disk has other format version, ignored: " + file);
+                return null;
+            }
+            int size = in.readInt();
+            CompactSchedule.Builder events = CompactSchedule.builder();
+            for (int i = 0; i < size; i++) {
+                events.add(readCustomEvent(in));
+            }
+            logger.info("compiled schedule with " + size + " custom events read from disk: " + file);
+            return events.build();
+        } catch (IOException e) {
+            logger.warn("unable to read compiled schedule, will compile again: " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CompactSchedule events) {
+        Path file = cacheDir.resolve(key + FILE_EXTENSION);
+        try {
+            Files.createDirectories(cacheDir);
+            // write to a temp file first, so other builds never read a half written file
+            Path tempFile = Files.createTempFile(cacheDir, key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(events.size());
+                for (CustomEvent event : events) {
+                    writeCustomEvent(out, event);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("unable to write compiled schedule: " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeCustomEvent(DataOutputStream out, CustomEvent event) throws IOException {
+        writeDuration(out, event.getDuration());
+        writeString(out, event.getName());
+        writeString(out, event.getDescription());
+        writeString(out, event.getSettings());
+        CustomEventRepeat repeat = event.getRepeat();
+        out.writeBoolean(repeat != null);
+        if (repeat != null) {
+            writeDuration(out, repeat.getInterval());
+            out.writeInt(repeat.getCount());
+            out.writeBoolean(repeat.getUntil() != null);
+            if (repeat.getUntil() != null) {
+                writeDuration(out, repeat.getUntil());
+            }
+            writeDuration(out, repeat.getJitter());
+        }
+    }
+
+    private static CustomEvent readCustomEvent(DataInputStream in) throws IOException {
+        Duration duration = readDuration(in);
+        String name = readString(in);
+        String description = readString(in);
+        String settings = readString(in);
+        CustomEventRepeat repeat = null;
+        if (in.readBoolean()) {
+            Duration interval = readDuration(in);
+            int count = in.readInt();
+            Duration until = in.readBoolean() ? readDuration(in) : null;
+            repeat = new CustomEventRepeat(interval, count, until, readDuration(in));
+        }
+        return new CustomEvent(duration, name, description, settings, repeat);
+    }
+
+    private static void writeDuration(DataOutputStream out, Duration duration) throws IOException {
+        out.writeLong(duration.getSeconds());
+        out.writeInt(duration.getNano());
+    }
+
+    private static Duration readDuration(DataInputStream in) throws IOException {
+        return Duration.ofSeconds(in.readLong(), in.readInt());
+    }
+
+    // length prefixed UTF-8, writeUTF is limited to 64 KB and settings can be larger
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
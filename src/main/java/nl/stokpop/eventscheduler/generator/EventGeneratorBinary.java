@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.EventGenerator;
+import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
+import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Streams custom events from a precomputed binary schedule file, written with BinaryScheduleWriter.
+ */
+public class EventGeneratorBinary implements EventGenerator {
+
+    public static final String SCHEDULE_FILE_TAG = "scheduleFile";
+
+    private final EventGeneratorProperties properties;
+    private final EventLogger logger;
+
+    EventGeneratorBinary(EventGeneratorProperties properties, EventLogger logger) {
+        this.properties = properties;
+        this.logger = logger;
+    }
+
+    @Override
+    public List<CustomEvent> generate() {
+        List<CustomEvent> events = new ArrayList<>();
+        open().forEach(events::add);
+        return events;
+    }
+
+    /**
+     * The records in the file are in fire-at order, so no sorting is needed.
+     */
+    @Override
+    public Iterator<CustomEvent> generateLazily() {
+        return open().iterator();
+    }
+
+    private BinaryScheduleReader open() {
+        String scheduleFile = properties.getProperty(SCHEDULE_FILE_TAG);
+        if (scheduleFile == null) {
+            throw new EventSchedulerRuntimeException("missing property " + SCHEDULE_FILE_TAG + " for the binary schedule file");
+        }
+        Path file = Paths.get(scheduleFile.trim());
+        try {
+            BinaryScheduleReader reader = BinaryScheduleReader.open(file);
+            logger.info("mapped binary schedule " + file + " with " + reader.size() + " custom events");
+            return reader;
+        } catch (IOException e) {
+            throw new EventSchedulerRuntimeException("cannot read binary schedule file " + file, e);
+        }
+    }
+}
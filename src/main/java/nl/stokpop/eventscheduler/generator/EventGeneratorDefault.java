@@ -19,18 +19,22 @@ import nl.stokpop.eventscheduler.api.CustomEvent;
 import nl.stokpop.eventscheduler.api.EventGenerator;
 import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
 import nl.stokpop.eventscheduler.api.EventLogger;
-import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
 
 import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.StringReader;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class EventGeneratorDefault implements EventGenerator {
 
     public static final String EVENT_SCHEDULE_TAG = "eventSchedule";
+    /**
+     * Set to true to parse the schedule in chunks in parallel and report all wrong lines at once.
+     */
+    public static final String PARALLEL_PARSING_TAG = "parallelParsing";
 
     private final EventGeneratorProperties properties;
 
@@ -40,32 +44,45 @@ public class EventGeneratorDefault implements EventGenerator {
 
     @Override
     public List<CustomEvent> generate() {
-        return createTestEvents(properties.getProperty(EVENT_SCHEDULE_TAG));
+        if (isParallelParsing()) {
+            String eventsAsString = properties.getProperty(EVENT_SCHEDULE_TAG);
+            return eventsAsString == null ? new ArrayList<>() : ScheduleScriptParser.parse(eventsAsString);
+        }
+        return createTestEvents(properties.getProperty(EVENT_SCHEDULE_TAG))
+                .collect(Collectors.toList());
     }
 
-    private List<CustomEvent> createTestEvents(String eventsAsString) {
-        if (eventsAsString != null) {
-            try {
-                try (BufferedReader eventReader = new BufferedReader(new StringReader(eventsAsString))) {
-                    List<String> events = eventReader.lines()
-                            .map(String::trim)
-                            .filter(e -> !e.isEmpty())
-                            .filter(e -> !e.startsWith("@"))
-                            .collect(Collectors.toList());
-                    return parseScheduleEvents(events);
-                }
-            } catch (IOException e) {
-                throw new EventSchedulerRuntimeException("Unable to generate test events");
-            }
-        }
-        else {
-            return Collections.emptyList();
+    /**
+     * Streams the script lines into a CompactSchedule, which sorts the events in fire-at order,
+     * so the parsed CustomEvents are not kept in a list.
+     */
+    @Override
+    public Iterator<CustomEvent> generateLazily() {
+        return compile().iterator();
+    }
+
+    CompactSchedule compile() {
+        if (isParallelParsing()) {
+            // the parallel parser collects the events per chunk, compact them once all chunks are parsed
+            return CompactSchedule.of(generate());
         }
+        CompactSchedule.Builder schedule = CompactSchedule.builder();
+        createTestEvents(properties.getProperty(EVENT_SCHEDULE_TAG)).forEach(schedule::add);
+        return schedule.build();
     }
 
-    private List<CustomEvent> parseScheduleEvents(List<String> eventSchedule) {
-        return eventSchedule.stream()
-                .map(CustomEvent::createFromLine)
-                .collect(Collectors.toList());
+    private boolean isParallelParsing() {
+        return Boolean.parseBoolean(properties.getProperty(PARALLEL_PARSING_TAG));
+    }
+
+    private Stream<CustomEvent> createTestEvents(String eventsAsString) {
+        if (eventsAsString == null) {
+            return Stream.empty();
+        }
+        return new BufferedReader(new StringReader(eventsAsString)).lines()
+                .map(String::trim)
+                .filter(e -> !e.isEmpty())
+                .filter(e -> !e.startsWith("@"))
+                .map(CustomEvent::createFromLine);
     }
 }
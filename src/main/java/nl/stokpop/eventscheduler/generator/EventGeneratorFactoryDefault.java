@@ -19,7 +19,9 @@ import nl.stokpop.eventscheduler.api.EventGenerator;
 import nl.stokpop.eventscheduler.api.EventGeneratorFactory;
 import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
 import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.RegisterFactory;
 
+@RegisterFactory
 public class EventGeneratorFactoryDefault implements EventGeneratorFactory {
     
     @Override
@@ -15,21 +15,23 @@
  */
 package nl.stokpop.eventscheduler.generator;
 
+import nl.stokpop.eventscheduler.LazyServiceLoader;
 import nl.stokpop.eventscheduler.api.EventGeneratorFactory;
 import nl.stokpop.eventscheduler.api.EventLogger;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.ServiceLoader;
-
+/**
+ * Finds EventGeneratorFactory implementations on the classpath (via META-INF/services).
+ *
+ * Only the factory that is asked for is instantiated, a new one for each find. The classpath scan
+ * is cached per ClassLoader, so repeated builds skip it.
+ */
 public class EventGeneratorFactoryProvider {
 
-    private Map<String, EventGeneratorFactory> generatorFactories;
-    private EventLogger logger;
+    private final LazyServiceLoader<EventGeneratorFactory> generatorFactories;
+    private final EventLogger logger;
 
-    EventGeneratorFactoryProvider(Map<String, EventGeneratorFactory> generatorFactories, EventLogger logger) {
-        this.generatorFactories = Collections.unmodifiableMap(new HashMap<>(generatorFactories));
+    EventGeneratorFactoryProvider(LazyServiceLoader<EventGeneratorFactory> generatorFactories, EventLogger logger) {
+        this.generatorFactories = generatorFactories;
         this.logger = logger;
     }
 
@@ -38,20 +40,16 @@ public class EventGeneratorFactoryProvider {
     }
 
     public static EventGeneratorFactoryProvider createInstanceFromClasspath(EventLogger logger, ClassLoader classLoader) {
-        ServiceLoader<EventGeneratorFactory> generatorFactoryLoader = classLoader == null
-                ? ServiceLoader.load(EventGeneratorFactory.class)
-                : ServiceLoader.load(EventGeneratorFactory.class, classLoader);
-        // java 9+: List<EventGeneratorFactory> generatorFactories = generatorFactoryLoader.stream().map(ServiceLoader.Provider::get).collect(Collectors.toList());
-        Map<String, EventGeneratorFactory> factories = new HashMap<>();
-        for (EventGeneratorFactory generatorFactory : generatorFactoryLoader) {
-            String generatorName = generatorFactory.getClass().getName();
-            logger.info("registering EventScheduleGeneratorFactory: " + generatorName);
-            factories.put(generatorName, generatorFactory);
-        }
-        return new EventGeneratorFactoryProvider(factories, logger);
+        LazyServiceLoader<EventGeneratorFactory> generatorFactories = LazyServiceLoader.of(EventGeneratorFactory.class, classLoader);
+        logger.debug(() -> "available EventScheduleGeneratorFactories: " + generatorFactories.providerNames());
+        return new EventGeneratorFactoryProvider(generatorFactories, logger);
     }
 
     public EventGeneratorFactory find(String generatorClassname) {
-        return generatorFactories.get(generatorClassname);
+        EventGeneratorFactory generatorFactory = generatorFactories.find(generatorClassname).orElse(null);
+        if (generatorFactory != null) {
+            logger.info("using EventScheduleGeneratorFactory: " + generatorClassname);
+        }
+        return generatorFactory;
     }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.FactoryRegistry;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the built-in factories of this package.
+ *
+ * Same as what the FactoryRegistryProcessor generates for @RegisterFactory classes,
+ * written by hand because this library cannot run its own annotation processor.
+ * Registered by the LazyServiceLoader itself.
+ */
+public final class EventSchedulerFactoryRegistry implements FactoryRegistry {
+
+    private static final Map<String, Supplier<?>> FACTORIES;
+
+    static {
+        Map<String, Supplier<?>> factories = new HashMap<>();
+        factories.put("nl.stokpop.eventscheduler.generator.EventGeneratorFactoryDefault", EventGeneratorFactoryDefault::new);
+        factories.put("nl.stokpop.eventscheduler.generator.EventGeneratorFactoryBinary", EventGeneratorFactoryBinary::new);
+        FACTORIES = Collections.unmodifiableMap(factories);
+    }
+
+    @Override
+    public Map<String, Supplier<?>> factories() {
+        return FACTORIES;
+    }
+}
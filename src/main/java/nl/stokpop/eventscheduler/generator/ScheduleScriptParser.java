@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.exception.ScheduleParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a schedule script in chunks on a fork-join pool.
+ *
+ * The custom events are returned in fire-at order. Instead of stopping at the first
+ * wrong line, all wrong lines are reported at once with their line number.
+ */
+public final class ScheduleScriptParser {
+
+    // chunks of about 64K characters, small enough to spread a multi-megabyte script over all cores
+    static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private ScheduleScriptParser() {}
+
+    /**
+     * Parse on the common fork-join pool.
+     * @throws ScheduleParseException with all wrong lines
+     */
+    public static List<CustomEvent> parse(String script) {
+        return parse(script, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    static List<CustomEvent> parse(String script, ForkJoinPool pool, int chunkSize) {
+        if (script == null || script.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Chunk result = pool.invoke(new ParseTask(script, 0, script.length(), chunkSize));
+
+        if (!result.errors.isEmpty()) {
+            throw new ScheduleParseException(result.errors);
+        }
+
+        CustomEvent[] events = result.events.toArray(new CustomEvent[0]);
+        // stable sort: events with the same fire-at time keep the script order
+        Arrays.parallelSort(events, Comparator.comparing(CustomEvent::getDuration));
+        return new ArrayList<>(Arrays.asList(events));
+    }
+
+    /**
+     * The parsed events and wrong lines of a part of the script, line numbers are relative to the chunk.
+     */
+    private static final class Chunk {
+        private final List<CustomEvent> events = new ArrayList<>();
+        private final List<ScheduleParseException.LineError> errors = new ArrayList<>();
+        private int lineCount;
+
+        private Chunk append(Chunk next) {
+            events.addAll(next.events);
+            for (ScheduleParseException.LineError error : next.errors) {
+                errors.add(new ScheduleParseException.LineError(error.getLineNumber() + lineCount, error.getLine(), error.getMessage()));
+            }
+            lineCount += next.lineCount;
+            return this;
+        }
+    }
+
+    private static final class ParseTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final String script;
+        private final int start;
+        private final int end;
+        private final int chunkSize;
+
+        private ParseTask(String script, int start, int end, int chunkSize) {
+            this.script = script;
+            this.start = start;
+            this.end = end;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Chunk compute() {
+            if (end - start > chunkSize) {
+                // split after a line terminator, so each line is in one chunk
+                int split = nextLineStart(lineEnd(start + (end - start) / 2));
+                if (split < end) {
+                    ParseTask first = new ParseTask(script, start, split, chunkSize);
+                    first.fork();
+                    Chunk second = new ParseTask(script, split, end, chunkSize).compute();
+                    return first.join().append(second);
+                }
+            }
+            return parseLines();
+        }
+
+        /**
+         * Same line terminators as BufferedReader: '\n', '\r' or "\r\n".
+         *
+         * @return index of the line terminator at or after the index, or the end of this chunk
+         */
+        private int lineEnd(int index) {
+            for (int i = index; i < end; i++) {
+                char c = script.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    return i;
+                }
+            }
+            return end;
+        }
+
+        private int nextLineStart(int lineEnd) {
+            if (lineEnd >= end) {
+                return end;
+            }
+            boolean crLf = script.charAt(lineEnd) == '\r' && lineEnd + 1 < end && script.charAt(lineEnd + 1) == '\n';
+            return crLf ? lineEnd + 2 : lineEnd + 1;
+        }
+
+        private Chunk parseLines() {
+            Chunk chunk = new Chunk();
+            int lineStart = start;
+            while (lineStart < end) {
+                int lineEnd = lineEnd(lineStart);
+                chunk.lineCount++;
+                String line = script.substring(lineStart, lineEnd).trim();
+                if (!line.isEmpty() && !line.startsWith("@")) {
+                    try {
+                        chunk.events.add(CustomEvent.createFromLine(line));
+                    } catch (CustomEvent.ScheduleEventWrongFormat e) {
+                        chunk.errors.add(new ScheduleParseException.LineError(chunk.lineCount, line, e.getMessage()));
+                    }
+                }
+                lineStart = nextLineStart(lineEnd);
+            }
+            return chunk;
+        }
+    }
+}
@@ -17,19 +17,23 @@ package nl.stokpop.eventscheduler.log;
 
 import nl.stokpop.eventscheduler.api.EventLogger;
 
+/**
+ * Prefixes all log lines with the name and the simple class name.
+ *
+ * The prefix is created once, and debug lines are only created when
+ * debug is enabled on the wrapped logger.
+ */
 public class EventLoggerWithName implements EventLogger {
 
-    private final String name;
-    private final String classname;
+    private final String prefix;
     private final EventLogger logger;
 
     public EventLoggerWithName(String name, String classname, EventLogger logger) {
-        this.name = name;
-        this.classname = removePackages(classname);
+        this.prefix = "[" + name + "] [" + removePackages(classname) + "] ";
         this.logger = logger;
     }
 
-    private String removePackages(String classname) {
+    private static String removePackages(String classname) {
         if (classname.contains(".")) {
             return classname.substring(classname.lastIndexOf('.') + 1);
         }
@@ -38,34 +42,35 @@ public class EventLoggerWithName implements EventLogger {
         }
     }
 
-
     @Override
     public void info(String message) {
-        logger.info(String.format("[%s] [%s] %s", name, classname, message));
+        logger.info(prefix + message);
     }
 
     @Override
     public void warn(String message) {
-        logger.warn(String.format("[%s] [%s] %s", name, classname, message));
+        logger.warn(prefix + message);
     }
 
     @Override
     public void error(String message) {
-        logger.error(String.format("[%s] [%s] %s", name, classname, message));
+        logger.error(prefix + message);
     }
 
     @Override
     public void error(String message, Throwable throwable) {
-        logger.error(String.format("[%s] [%s] %s", name, classname, message), throwable);
+        logger.error(prefix + message, throwable);
     }
 
     @Override
     public void debug(String message) {
-        logger.debug(String.format("[%s] [%s] %s", name, classname, message));
+        if (logger.isDebugEnabled()) {
+            logger.debug(prefix + message);
+        }
     }
 
     @Override
     public boolean isDebugEnabled() {
-        return true;
+        return logger.isDebugEnabled();
     }
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.processor;
+
+import nl.stokpop.eventscheduler.LazyServiceLoader;
+import nl.stokpop.eventscheduler.api.FactoryRegistry;
+import nl.stokpop.eventscheduler.api.RegisterFactory;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Generates a FactoryRegistry per package for classes annotated with {@link RegisterFactory}.
+ *
+ * The generated registry maps the factory class names to constructor references, so factories
+ * can be found without ServiceLoader scanning and created without reflection.
+ *
+ * Next to the registry a GraalVM native-image reflect-config.json is generated in
+ * META-INF/native-image/nl.stokpop.eventscheduler/&lt;package&gt;/, so plugins work in a
+ * native executable without hand-written reachability metadata.
+ *
+ * The processor is not registered in META-INF/services of the event-scheduler jar, so it does not
+ * run for every project that has the jar on its compile classpath. Enable it explicitly, with
+ * javac -processor nl.stokpop.eventscheduler.processor.FactoryRegistryProcessor, or in Gradle with
+ * the event-scheduler jar in the annotationProcessor configuration and that -processor compiler argument.
+ *
+ * The LazyServiceLoader finds the generated registry by its class name, the first time a factory of
+ * its package is asked for. The static register() method of the registry adds it ahead of that.
+ */
+@SupportedAnnotationTypes("nl.stokpop.eventscheduler.api.RegisterFactory")
+public class FactoryRegistryProcessor extends AbstractProcessor {
+
+    static final String NATIVE_IMAGE_DIR = "META-INF/native-image/nl.stokpop.eventscheduler/";
+
+    private static final List<String> FACTORY_INTERFACES = Arrays.asList(
+        "nl.stokpop.eventscheduler.api.EventFactory",
+        "nl.stokpop.eventscheduler.api.EventGeneratorFactory");
+
+    private final Set<String> generatedPackages = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Map<String, List<TypeElement>> factoriesPerPackage = new TreeMap<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(RegisterFactory.class)) {
+            if (isValidFactory(element)) {
+                TypeElement factory = (TypeElement) element;
+                String packageName = processingEnv.getElementUtils().getPackageOf(factory).getQualifiedName().toString();
+                factoriesPerPackage.computeIfAbsent(packageName, k -> new ArrayList<>()).add(factory);
+            }
+        }
+        factoriesPerPackage.forEach(this::writeRegistry);
+        return true;
+    }
+
+    private boolean isValidFactory(Element element) {
+        if (element.getKind() != ElementKind.CLASS) {
+            return error(element, "@RegisterFactory is only allowed on classes");
+        }
+        TypeElement type = (TypeElement) element;
+        Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            return error(element, "@RegisterFactory class should be public and not abstract");
+        }
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL
+                && !(type.getNestingKind() == NestingKind.MEMBER && modifiers.contains(Modifier.STATIC))) {
+            return error(element, "@RegisterFactory class should be a top level or static member class");
+        }
+        boolean hasPublicNoArgConstructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+            .anyMatch(c -> c.getModifiers().contains(Modifier.PUBLIC) && c.getParameters().isEmpty());
+        if (!hasPublicNoArgConstructor) {
+            return error(element, "@RegisterFactory class should have a public no-argument constructor");
+        }
+        if (!isFactory(type)) {
+            return error(element, "@RegisterFactory class should implement one of " + FACTORY_INTERFACES);
+        }
+        return true;
+    }
+
+    private boolean isFactory(TypeElement type) {
+        TypeMirror typeErasure = processingEnv.getTypeUtils().erasure(type.asType());
+        for (String factoryInterface : FACTORY_INTERFACES) {
+            TypeElement factoryElement = processingEnv.getElementUtils().getTypeElement(factoryInterface);
+            if (factoryElement != null) {
+                TypeMirror factoryErasure = processingEnv.getTypeUtils().erasure(factoryElement.asType());
+                if (processingEnv.getTypeUtils().isAssignable(typeErasure, factoryErasure)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+        return false;
+    }
+
+    private void writeRegistry(String packageName, List<TypeElement> factories) {
+        if (!generatedPackages.add(packageName)) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "@RegisterFactory classes of package '" + packageName + "' are found in multiple processing rounds, " +
+                    "the " + FactoryRegistry.CLASS_NAME + " can only be generated once");
+            return;
+        }
+        String registryClassName = packageName.isEmpty()
+            ? FactoryRegistry.CLASS_NAME
+            : packageName + "." + FactoryRegistry.CLASS_NAME;
+
+        try {
+            JavaFileObject sourceFile = processingEnv.getFiler()
+                .createSourceFile(registryClassName, factories.toArray(new Element[0]));
+            try (Writer writer = sourceFile.openWriter()) {
+                writer.write(createRegistrySource(packageName, factories));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "unable to write " + registryClassName + ": " + e.getMessage());
+        }
+
+        String reflectConfigName = NATIVE_IMAGE_DIR + (packageName.isEmpty() ? "default" : packageName) + "/reflect-config.json";
+        try {
+            FileObject reflectConfig = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", reflectConfigName, factories.toArray(new Element[0]));
+            try (Writer writer = reflectConfig.openWriter()) {
+                writer.write(createReflectConfig(registryClassName, factories));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "unable to write " + reflectConfigName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The registry is loaded by class name and the factories can also be found via META-INF/services,
+     * so they all need their public no-arg constructor registered.
+     */
+    String createReflectConfig(String registryClassName, List<TypeElement> factories) {
+        List<String> classNames = new ArrayList<>();
+        classNames.add(registryClassName);
+        for (TypeElement factory : factories) {
+            classNames.add(processingEnv.getElementUtils().getBinaryName(factory).toString());
+        }
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < classNames.size(); i++) {
+            json.append("  {\n")
+                .append("    \"name\": \"").append(classNames.get(i)).append("\",\n")
+                .append("    \"methods\": [ { \"name\": \"<init>\", \"parameterTypes\": [] } ]\n")
+                .append("  }").append(i < classNames.size() - 1 ? ",\n" : "\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    String createRegistrySource(String packageName, List<TypeElement> factories) {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import java.util.Collections;\n")
+            .append("import java.util.HashMap;\n")
+            .append("import java.util.Map;\n")
+            .append("import java.util.function.Supplier;\n\n")
+            .append("/**\n")
+            .append(" * Generated by ").append(FactoryRegistryProcessor.class.getName()).append(", do not edit.\n")
+            .append(" */\n")
+            .append("public final class ").append(FactoryRegistry.CLASS_NAME)
+            .append(" implements ").append(FactoryRegistry.class.getName()).append(" {\n\n")
+            .append("    private static final Map<String, Supplier<?>> FACTORIES;\n\n")
+            .append("    static {\n")
+            .append("        Map<String, Supplier<?>> factories = new HashMap<>();\n");
+        for (TypeElement factory : factories) {
+            String binaryName = processingEnv.getElementUtils().getBinaryName(factory).toString();
+            source.append("        factories.put(\"").append(binaryName).append("\", ")
+                .append(factory.getQualifiedName()).append("::new);\n");
+        }
+        source.append("        FACTORIES = Collections.unmodifiableMap(factories);\n")
+            .append("    }\n\n")
+            .append("    /**\n")
+            .append("     * Make the factories of this package available to the event-scheduler.\n")
+            .append("     */\n")
+            .append("    public static void register() {\n")
+            .append("        ").append(LazyServiceLoader.class.getName()).append(".register(new ").append(FactoryRegistry.CLASS_NAME).append("());\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public Map<String, Supplier<?>> factories() {\n")
+            .append("        return FACTORIES;\n")
+            .append("    }\n")
+            .append("}\n");
+        return source.toString();
+    }
+}
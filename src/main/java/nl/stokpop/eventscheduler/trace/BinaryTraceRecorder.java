@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.trace;
+
+import nl.stokpop.eventscheduler.api.TraceRecordType;
+import nl.stokpop.eventscheduler.api.TraceRecorder;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Writes fixed-size binary trace records into preallocated off-heap buffers.
+ *
+ * Record layout (little effort to read, no parsing needed):
+ * <pre>
+ *  0 long  nanos since start of recorder
+ *  8 short type (ordinal of TraceRecordType + 1, 0 means not written)
+ * 10 short reserved
+ * 12 int   thread name id
+ * 16 int   event name id
+ * 20 int   detail id
+ * 24 long  value
+ * </pre>
+ *
+ * Strings are stored once in a name table, records refer to them by id. The name table is bounded:
+ * when full, new names are recorded as {@value #MORE_NAMES}.
+ * Recording does not allocate on the heap, except for new names and the rare roll over
+ * to a new memory-mapped segment of the trace file. The thread that writes the first record
+ * of a segment maps the segment after it, so a roll over finds a preallocated segment.
+ *
+ * Recording never throws: when all buffers are full, a segment cannot be mapped or the
+ * recorder is closed, records are dropped and counted.
+ *
+ * Records are written with plain writes. Records of other threads are only guaranteed to be complete
+ * and visible to a reader after a happens-before edge with those threads, such as the end of the
+ * session, where the scheduler waits for its calls to finish.
+ */
+public final class BinaryTraceRecorder implements TraceRecorder {
+
+    public static final int RECORD_SIZE = 32;
+
+    static final int HEADER_SIZE = 64;
+    static final int MAGIC = 0x53545243;
+    static final int VERSION = 1;
+    static final int NO_NAME = -1;
+    static final String NAMES_FILE_POSTFIX = ".names";
+
+    static final int MAX_NAMES = 64 * 1024;
+    static final String MORE_NAMES = "<more names than the name table holds>";
+
+    private static final int MAX_NAME_LENGTH = 16 * 1024;
+
+    // marks a segment that could not be mapped, its records are dropped
+    private static final ByteBuffer UNMAPPED = ByteBuffer.allocate(0);
+
+    private final long startNanos = System.nanoTime();
+    private final long startEpochMillis = System.currentTimeMillis();
+
+    private final int recordsPerSegment;
+    private final AtomicReferenceArray<ByteBuffer> segments;
+    private final AtomicLong nextRecord = new AtomicLong(0);
+    private final AtomicLong droppedRecords = new AtomicLong(0);
+
+    private final ConcurrentMap<String, Integer> nameIds = new ConcurrentHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private volatile int moreNamesId = NO_NAME;
+    private final ThreadLocal<Integer> threadNameId = ThreadLocal.withInitial(() -> nameId(Thread.currentThread().getName()));
+
+    private final Path file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private volatile boolean closed;
+
+    private BinaryTraceRecorder(int recordsPerSegment, int maxSegments, Path file) {
+        if (recordsPerSegment <= 0 || maxSegments <= 0) {
+            throw new EventSchedulerRuntimeException("recordsPerSegment and maxSegments should be positive: " + recordsPerSegment + " " + maxSegments);
+        }
+        if ((long) recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new EventSchedulerRuntimeException("recordsPerSegment is too large: " + recordsPerSegment);
+        }
+        this.recordsPerSegment = recordsPerSegment;
+        this.segments = new AtomicReferenceArray<>(maxSegments);
+        this.file = file;
+        if (file == null) {
+            this.randomAccessFile = null;
+            this.channel = null;
+            this.header = null;
+            segments.set(0, ByteBuffer.allocateDirect(recordsPerSegment * RECORD_SIZE));
+        }
+        else {
+            try {
+                this.randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+            } catch (IOException e) {
+                throw new EventSchedulerRuntimeException("cannot create trace file: " + file, e);
+            }
+            this.channel = randomAccessFile.getChannel();
+            try {
+                this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            } catch (IOException e) {
+                closeQuietly();
+                throw new EventSchedulerRuntimeException("cannot map trace file: " + file, e);
+            }
+            writeHeader();
+            mapSegment(0);
+            mapSegment(1);
+            if (segments.get(0) == UNMAPPED) {
+                closeQuietly();
+                throw new EventSchedulerRuntimeException("cannot map first segment of trace file: " + file);
+            }
+        }
+    }
+
+    /**
+     * @param maxRecords number of records to keep in one direct buffer, records after that are dropped
+     * @return recorder that keeps all records in memory, use {@link #createReader()} to export
+     */
+    public static BinaryTraceRecorder inMemory(int maxRecords) {
+        return new BinaryTraceRecorder(maxRecords, 1, null);
+    }
+
+    /**
+     * @param file the trace file, a name table is written next to it with postfix ".names"
+     * @param recordsPerSegment number of records per memory-mapped segment of the file
+     * @param maxSegments maximum number of segments, records after that are dropped
+     * @return recorder that rolls over into new memory-mapped segments of the file
+     */
+    public static BinaryTraceRecorder mappedFile(Path file, int recordsPerSegment, int maxSegments) {
+        return new BinaryTraceRecorder(recordsPerSegment, maxSegments, file);
+    }
+
+    @Override
+    public void record(TraceRecordType type, String eventName, String detail, long value) {
+        if (closed) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        long timestamp = System.nanoTime() - startNanos;
+        long index = nextRecord.getAndIncrement();
+        int segmentIndex = (int) (index / recordsPerSegment);
+        if (segmentIndex >= segments.length()) {
+            // dropped, counted via nextRecord
+            return;
+        }
+        int recordIndex = (int) (index % recordsPerSegment);
+        if (recordIndex == 0 && file != null) {
+            mapSegment(segmentIndex + 1);
+        }
+        ByteBuffer segment = segments.get(segmentIndex);
+        if (segment == null) {
+            // another thread is still mapping the segment ahead of this one
+            segment = mapSegment(segmentIndex);
+        }
+        if (segment == UNMAPPED) {
+            droppedRecords.incrementAndGet();
+            return;
+        }
+        int offset = recordIndex * RECORD_SIZE;
+        segment.putLong(offset, timestamp);
+        segment.putInt(offset + 12, threadNameId.get());
+        segment.putInt(offset + 16, nameId(eventName));
+        segment.putInt(offset + 20, nameId(detail));
+        segment.putLong(offset + 24, value);
+        // type last, a reader that sees the other fields complete sees type 0 or the type: see class comment on visibility
+        segment.putShort(offset + 8, (short) (type.ordinal() + 1));
+    }
+
+    private int nameId(String name) {
+        if (name == null) {
+            return NO_NAME;
+        }
+        Integer id = nameIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (nameIds.size() >= MAX_NAMES) {
+            return moreNamesId();
+        }
+        return nameIds.computeIfAbsent(name, this::addName);
+    }
+
+    private Integer addName(String name) {
+        synchronized (names) {
+            names.add(name.length() > MAX_NAME_LENGTH ? name.substring(0, MAX_NAME_LENGTH) : name);
+            return names.size() - 1;
+        }
+    }
+
+    private int moreNamesId() {
+        int id = moreNamesId;
+        if (id == NO_NAME) {
+            synchronized (names) {
+                id = moreNamesId;
+                if (id == NO_NAME) {
+                    names.add(MORE_NAMES);
+                    id = names.size() - 1;
+                    moreNamesId = id;
+                }
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Maps the segment when not mapped yet. When mapping fails the segment is marked as unmapped, its records are dropped.
+     */
+    private synchronized ByteBuffer mapSegment(int segmentIndex) {
+        if (segmentIndex >= segments.length()) {
+            return null;
+        }
+        if (segments.get(segmentIndex) == null) {
+            long position = HEADER_SIZE + (long) segmentIndex * recordsPerSegment * RECORD_SIZE;
+            ByteBuffer segment;
+            try {
+                segment = closed ? UNMAPPED : channel.map(FileChannel.MapMode.READ_WRITE, position, (long) recordsPerSegment * RECORD_SIZE);
+            } catch (IOException | RuntimeException e) {
+                segment = UNMAPPED;
+            }
+            segments.set(segmentIndex, segment);
+        }
+        return segments.get(segmentIndex);
+    }
+
+    int mappedSegmentCount() {
+        int count = 0;
+        for (int i = 0; i < segments.length(); i++) {
+            if (segments.get(i) != null && segments.get(i) != UNMAPPED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long capacity() {
+        return (long) recordsPerSegment * segments.length();
+    }
+
+    /**
+     * @return number of record slots used, including records dropped because their segment could not be mapped
+     */
+    public long getRecordCount() {
+        return Math.min(nextRecord.get(), capacity());
+    }
+
+    public long getDroppedRecordCount() {
+        return Math.max(0, nextRecord.get() - capacity()) + droppedRecords.get();
+    }
+
+    /**
+     * For a trace file: writes the header and the name table, so the file can be read with {@link TraceReader#open(Path)}.
+     * For in memory recording this is a no-op.
+     */
+    @Override
+    public synchronized void flush() {
+        if (file == null || closed) {
+            return;
+        }
+        writeHeader();
+        for (int i = 0; i < segments.length(); i++) {
+            ByteBuffer segment = segments.get(i);
+            if (segment != null && segment != UNMAPPED) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+        header.force();
+        writeNames(namesFile(file));
+    }
+
+    /**
+     * Flushes and closes the trace file, records after close are dropped.
+     * The mapped segments stay readable via {@link #createReader()}: they are unmapped when garbage collected.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            if (file != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    throw new EventSchedulerRuntimeException("cannot close trace file: " + file, e);
+                }
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            randomAccessFile.close();
+        } catch (IOException e) {
+            // already failing
+        }
+    }
+
+    private void writeHeader() {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_SIZE);
+        header.putInt(12, recordsPerSegment);
+        header.putLong(16, startEpochMillis);
+        header.putLong(24, getRecordCount());
+        header.putLong(32, getDroppedRecordCount());
+    }
+
+    private void writeNames(Path namesFile) {
+        List<String> snapshot = namesSnapshot();
+        try (OutputStream out = Files.newOutputStream(namesFile);
+             DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(snapshot.size());
+            for (String name : snapshot) {
+                data.writeUTF(name);
+            }
+        } catch (IOException e) {
+            throw new EventSchedulerRuntimeException("cannot write trace names file: " + namesFile, e);
+        }
+    }
+
+    private List<String> namesSnapshot() {
+        synchronized (names) {
+            return new ArrayList<>(names);
+        }
+    }
+
+    static Path namesFile(Path traceFile) {
+        Path fileName = traceFile.getFileName();
+        Path parent = traceFile.toAbsolutePath().getParent();
+        String namesFileName = fileName + NAMES_FILE_POSTFIX;
+        return parent == null ? Paths.get(namesFileName) : parent.resolve(namesFileName);
+    }
+
+    /**
+     * @return a reader on the records so far, without copying the record buffers
+     */
+    public TraceReader createReader() {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        long remaining = getRecordCount();
+        for (int i = 0; i < segments.length() && remaining > 0; i++) {
+            ByteBuffer segment = segments.get(i);
+            int records = (int) Math.min(remaining, recordsPerSegment);
+            if (segment != null && segment != UNMAPPED) {
+                ByteBuffer view = segment.duplicate();
+                view.limit(records * RECORD_SIZE);
+                buffers.add(view.slice());
+            }
+            remaining = remaining - records;
+        }
+        return new TraceReader(buffers, namesSnapshot(), startEpochMillis, getDroppedRecordCount());
+    }
+
+    @Override
+    public String toString() {
+        return "BinaryTraceRecorder{" + "file=" + file +
+            ", records=" + getRecordCount() +
+            ", dropped=" + getDroppedRecordCount() +
+            '}';
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.trace;
+
+import nl.stokpop.eventscheduler.api.TraceRecordType;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static nl.stokpop.eventscheduler.trace.BinaryTraceRecorder.*;
+
+/**
+ * Reads the records of a BinaryTraceRecorder and exports them to CSV
+ * or to the Chrome trace-event JSON format (open in chrome://tracing or https://ui.perfetto.dev).
+ */
+public class TraceReader {
+
+    private static final TraceRecordType[] TYPES = TraceRecordType.values();
+
+    private final List<ByteBuffer> buffers;
+    private final List<String> names;
+    private final long startEpochMillis;
+    private final long droppedRecordCount;
+
+    TraceReader(List<ByteBuffer> buffers, List<String> names, long startEpochMillis, long droppedRecordCount) {
+        this.buffers = Collections.unmodifiableList(new ArrayList<>(buffers));
+        this.names = Collections.unmodifiableList(new ArrayList<>(names));
+        this.startEpochMillis = startEpochMillis;
+        this.droppedRecordCount = droppedRecordCount;
+    }
+
+    /**
+     * Memory-maps a trace file written by a flushed BinaryTraceRecorder.
+     * @param traceFile the trace file, the name table is expected next to it
+     * @return a reader for the trace file
+     */
+    public static TraceReader open(Path traceFile) {
+        try (FileChannel channel = FileChannel.open(traceFile, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new EventSchedulerRuntimeException("not a trace file: " + traceFile);
+            }
+            if (header.getInt(4) != VERSION || header.getInt(8) != RECORD_SIZE) {
+                throw new EventSchedulerRuntimeException("unsupported trace file version " + header.getInt(4) + ": " + traceFile);
+            }
+            int recordsPerSegment = header.getInt(12);
+            long startEpochMillis = header.getLong(16);
+            long recordCount = header.getLong(24);
+            long droppedRecordCount = header.getLong(32);
+
+            List<ByteBuffer> buffers = new ArrayList<>();
+            long position = HEADER_SIZE;
+            long remaining = recordCount;
+            while (remaining > 0) {
+                int records = (int) Math.min(remaining, recordsPerSegment);
+                buffers.add(channel.map(FileChannel.MapMode.READ_ONLY, position, (long) records * RECORD_SIZE));
+                position = position + (long) recordsPerSegment * RECORD_SIZE;
+                remaining = remaining - records;
+            }
+            return new TraceReader(buffers, readNames(namesFile(traceFile)), startEpochMillis, droppedRecordCount);
+        } catch (IOException e) {
+            throw new EventSchedulerRuntimeException("cannot read trace file: " + traceFile, e);
+        }
+    }
+
+    private static List<String> readNames(Path namesFile) throws IOException {
+        try (InputStream in = Files.newInputStream(namesFile);
+             DataInputStream data = new DataInputStream(in)) {
+            int count = data.readInt();
+            List<String> names = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                names.add(data.readUTF());
+            }
+            return names;
+        }
+    }
+
+    /**
+     * @return all written records, sorted on timestamp
+     */
+    public List<TraceRecord> records() {
+        List<TraceRecord> records = new ArrayList<>();
+        for (ByteBuffer buffer : buffers) {
+            for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset = offset + RECORD_SIZE) {
+                int type = buffer.getShort(offset + 8);
+                if (type == 0) {
+                    // claimed but not (yet) written
+                    continue;
+                }
+                records.add(new TraceRecord(
+                    buffer.getLong(offset),
+                    TYPES[type - 1],
+                    name(buffer.getInt(offset + 12)),
+                    name(buffer.getInt(offset + 16)),
+                    name(buffer.getInt(offset + 20)),
+                    buffer.getLong(offset + 24)));
+            }
+        }
+        records.sort(Comparator.comparingLong(TraceRecord::getTimestampNanos));
+        return records;
+    }
+
+    private String name(int id) {
+        return id == NO_NAME || id >= names.size() ? null : names.get(id);
+    }
+
+    public long getStartEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public long getDroppedRecordCount() {
+        return droppedRecordCount;
+    }
+
+    public void exportCsv(Writer writer) throws IOException {
+        writer.write("timestampNanos,type,thread,event,detail,value\n");
+        for (TraceRecord record : records()) {
+            writer.write(String.valueOf(record.getTimestampNanos()));
+            writer.write(',');
+            writer.write(record.getType().name());
+            writer.write(',');
+            writer.write(csvValue(record.getThreadName()));
+            writer.write(',');
+            writer.write(csvValue(record.getEventName()));
+            writer.write(',');
+            writer.write(csvValue(record.getDetail()));
+            writer.write(',');
+            writer.write(String.valueOf(record.getValue()));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    /**
+     * Export in the Chrome trace-event format. Each thread gets its own lane,
+     * broadcasts and Event calls are shown as spans, custom events and messages as instants.
+     */
+    public void exportChromeTrace(Writer writer) throws IOException {
+        List<TraceRecord> records = records();
+        Map<String, Integer> threadIds = new LinkedHashMap<>();
+        for (TraceRecord record : records) {
+            threadIds.putIfAbsent(String.valueOf(record.getThreadName()), threadIds.size() + 1);
+        }
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"otherData\":{\"startEpochMillis\":" + startEpochMillis
+            + ",\"droppedRecords\":" + droppedRecordCount + "},\"traceEvents\":[");
+        boolean first = true;
+        for (Map.Entry<String, Integer> thread : threadIds.entrySet()) {
+            if (!first) writer.write(',');
+            first = false;
+            writer.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getValue()
+                + ",\"args\":{\"name\":" + jsonString(thread.getKey()) + "}}");
+        }
+        for (TraceRecord record : records) {
+            if (!first) writer.write(',');
+            first = false;
+            TraceRecordType type = record.getType();
+            writer.write("\n{\"name\":" + jsonString(chromeName(record))
+                + ",\"cat\":\"" + chromeCategory(type) + "\""
+                + ",\"ph\":\"" + type.getPhase() + "\""
+                + ",\"ts\":" + (record.getTimestampNanos() / 1000) + "." + String.format("%03d", record.getTimestampNanos() % 1000)
+                + ",\"pid\":1,\"tid\":" + threadIds.get(String.valueOf(record.getThreadName())));
+            if (type == TraceRecordType.CUSTOM_EVENT) {
+                writer.write(",\"s\":\"g\"");
+            }
+            else if (type == TraceRecordType.MESSAGE) {
+                writer.write(",\"s\":\"t\"");
+            }
+            writer.write(",\"args\":{\"event\":" + jsonString(record.getEventName())
+                + ",\"detail\":" + jsonString(record.getDetail())
+                + ",\"value\":" + record.getValue() + "}}");
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    private static String chromeName(TraceRecord record) {
+        switch (record.getType()) {
+            case EVENT_CALL_START:
+            case EVENT_CALL_END:
+                return record.getEventName() + " " + record.getDetail();
+            case MESSAGE:
+                return "message";
+            default:
+                return String.valueOf(record.getDetail());
+        }
+    }
+
+    private static String chromeCategory(TraceRecordType type) {
+        switch (type) {
+            case BROADCAST_START:
+            case BROADCAST_END:
+                return "broadcast";
+            case EVENT_CALL_START:
+            case EVENT_CALL_END:
+                return "event";
+            case CUSTOM_EVENT:
+                return "customEvent";
+            default:
+                return "message";
+        }
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    @Override
+    public String toString() {
+        return "TraceReader{" + "buffers=" + buffers.size() +
+            ", names=" + names.size() +
+            ", droppedRecords=" + droppedRecordCount +
+            '}';
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.trace;
+
+import lombok.Value;
+import nl.stokpop.eventscheduler.api.TraceRecordType;
+
+/**
+ * One record of a trace, as read by the TraceReader.
+ */
+@Value
+public class TraceRecord {
+    long timestampNanos;
+    TraceRecordType type;
+    String threadName;
+    String eventName;
+    String detail;
+    long value;
+}
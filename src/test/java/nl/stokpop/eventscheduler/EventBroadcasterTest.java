@@ -24,11 +24,19 @@ import nl.stokpop.eventscheduler.log.CountErrorsEventLogger;
 import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -36,6 +44,13 @@ import static org.mockito.internal.verification.VerificationModeFactory.times;
 
 public class EventBroadcasterTest {
 
+    // the test events wait for each other instead of sleeping: a call only finishes
+    // when the broadcaster runs the calls of all four test events in parallel
+    private final CountDownLatch beforeTestsStarted = new CountDownLatch(4);
+    private final CountDownLatch checksStarted = new CountDownLatch(4);
+    // the checks of the test events block until released, to test checks that are not done in time
+    private final CountDownLatch releaseChecks = new CountDownLatch(1);
+
     @Test
     public void broadcastAbort() {
         Event myEvent = mock(Event.class);
@@ -65,6 +80,100 @@ public class EventBroadcasterTest {
         assertEquals("zero errors expected in logger", 0, countErrorsEventLogger.errorCount());
     }
 
+    @Test
+    public void abortDoesNotWaitBehindBusyCustomEvents() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch customEventRunning = new CountDownLatch(1);
+        AtomicInteger abortCount = new AtomicInteger(0);
+
+        Event blockingEvent = new EventAdapter<EventContext>(configWithName("blocking"), null, EventLoggerStdOut.INSTANCE) {
+            @Override
+            public void customEvent(CustomEvent customEvent) {
+                customEventRunning.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void abortTest() {
+                abortCount.incrementAndGet();
+            }
+        };
+
+        // one normal thread that is kept busy by the custom event
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        List<Event> events = new ArrayList<>();
+        events.add(blockingEvent);
+        EventBroadcaster broadcaster = new EventBroadcasterAsync(events, EventLoggerStdOut.INSTANCE, singleThread, null);
+
+        broadcaster.broadcastCustomEvent(CustomEvent.createFromLine("PT0S|slow-event"));
+        assertTrue(customEventRunning.await(2, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        broadcaster.broadcastAbortTest();
+        long abortMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(1, abortCount.get());
+        assertTrue("abort should not wait for the busy custom event, took " + abortMillis + " ms", abortMillis < 2000);
+        assertEquals("custom event is still running", 1, release.getCount());
+
+        release.countDown();
+        broadcaster.shutdownAndWaitAllTasksDone(2);
+    }
+
+    @Test
+    public void drainWaitsForInFlightCallsAndReportsCutOffCalls() throws Exception {
+        CountDownLatch shortRunning = new CountDownLatch(1);
+        CountDownLatch releaseShort = new CountDownLatch(1);
+        CountDownLatch slowRunning = new CountDownLatch(1);
+        AtomicInteger finishedCount = new AtomicInteger(0);
+
+        Event event = new EventAdapter<EventContext>(configWithName("drain"), null, EventLoggerStdOut.INSTANCE) {
+            @Override
+            public void customEvent(CustomEvent customEvent) {
+                try {
+                    if (customEvent.getName().equals("stuck-event")) {
+                        slowRunning.countDown();
+                        // only ends with the interrupt of the drain cut-off
+                        new CountDownLatch(1).await();
+                    }
+                    else {
+                        shortRunning.countDown();
+                        releaseShort.await(5, TimeUnit.SECONDS);
+                    }
+                    finishedCount.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        List<Event> events = new ArrayList<>();
+        events.add(event);
+        EventBroadcaster broadcaster = new EventBroadcasterAsync(events, EventLoggerStdOut.INSTANCE);
+
+        broadcaster.broadcastCustomEvent(CustomEvent.createFromLine("PT0S|short-event"));
+        assertTrue(shortRunning.await(2, TimeUnit.SECONDS));
+        CompletableFuture<List<String>> draining = CompletableFuture.supplyAsync(() -> broadcaster.drain(Duration.ofSeconds(5)));
+        assertFalse("drain waits for the in-flight call", draining.isDone());
+        releaseShort.countDown();
+        assertTrue(draining.get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals("in-flight call is done after drain", 1, finishedCount.get());
+
+        // the broadcaster is usable after a drain
+        broadcaster.broadcastCustomEvent(CustomEvent.createFromLine("PT0S|stuck-event"));
+        assertTrue(slowRunning.await(2, TimeUnit.SECONDS));
+        List<String> cutOff = broadcaster.drain(Duration.ofMillis(100));
+        assertEquals(1, cutOff.size());
+        assertEquals("drain custom event stuck-event", cutOff.get(0));
+        assertEquals(1, finishedCount.get());
+
+        broadcaster.shutdownAndWaitAllTasksDone(2);
+    }
+
     @Test
     public void broadcastCustomEventWithFailureShouldProceed() {
 
@@ -128,8 +237,7 @@ public class EventBroadcasterTest {
         broadcaster.broadcastBeforeTest();
         long durationMillis = System.currentTimeMillis() - startTime;
 
-        sleep(1000);
-        
+        assertEquals("all before test calls ran in parallel", 0, beforeTestsStarted.getCount());
         assertTrue("should not take more than a 300 millis! actual: " + durationMillis, durationMillis < 300);
 
         broadcaster.shutdownAndWaitAllTasksDone(2);
@@ -144,6 +252,7 @@ public class EventBroadcasterTest {
         List<Event> events = createTestEvents(countErrorsEventLogger);
 
         EventBroadcaster broadcaster = new EventBroadcasterAsync(events, countErrorsEventLogger);
+        releaseChecks.countDown();
 
         long startTime = System.currentTimeMillis();
         List<EventCheck> eventChecks = broadcaster.broadcastCheck();
@@ -159,6 +268,80 @@ public class EventBroadcasterTest {
         assertEquals("five errors expected in logger", 5, countErrorsEventLogger.errorCount());
     }
 
+    @Test
+    public void broadcastCheckStreamingFailFast() {
+        CountErrorsEventLogger countErrorsEventLogger = CountErrorsEventLogger.of(EventLoggerStdOut.INSTANCE);
+
+        List<Event> events = createTestEvents(countErrorsEventLogger);
+        events.add(new MyQuickFailCheckEvent(configWithName("quick-fail"), countErrorsEventLogger));
+
+        EventBroadcaster broadcaster = new EventBroadcasterAsync(events, countErrorsEventLogger);
+
+        List<EventCheck> delivered = new ArrayList<>();
+        long startTime = System.currentTimeMillis();
+        List<EventCheck> eventChecks = broadcaster.broadcastCheck(Duration.ofSeconds(10), true, delivered::add);
+        long durationMillis = System.currentTimeMillis() - startTime;
+
+        assertEquals(1, eventChecks.size());
+        assertEquals(eventChecks, delivered);
+        assertEquals(EventStatus.FAILURE, eventChecks.get(0).getEventStatus());
+        assertEquals("quick-fail", eventChecks.get(0).getEventId());
+        assertTrue("should not wait for the slow checks: " + durationMillis, durationMillis < 400);
+
+        releaseChecks.countDown();
+        broadcaster.shutdownAndWaitAllTasksDone(2);
+    }
+
+    @Test
+    public void broadcastCheckStreamingTimeout() {
+        CountErrorsEventLogger countErrorsEventLogger = CountErrorsEventLogger.of(EventLoggerStdOut.INSTANCE);
+
+        List<Event> events = createTestEvents(countErrorsEventLogger);
+
+        EventBroadcaster broadcaster = new EventBroadcasterAsync(events, countErrorsEventLogger);
+
+        long startTime = System.currentTimeMillis();
+        List<EventCheck> eventChecks = broadcaster.broadcastCheck(Duration.ofMillis(100), false, e -> {});
+        long durationMillis = System.currentTimeMillis() - startTime;
+
+        assertEquals(4, eventChecks.size());
+        assertEquals(4, eventChecks.stream().filter(e -> e.getEventStatus() == EventStatus.UNKNOWN).count());
+        assertTrue("should not wait longer than the timeout: " + durationMillis, durationMillis < 400);
+
+        releaseChecks.countDown();
+        broadcaster.shutdownAndWaitAllTasksDone(2);
+    }
+
+    @Test
+    public void broadcastCheckStreamingDefault() {
+        CountErrorsEventLogger countErrorsEventLogger = CountErrorsEventLogger.of(EventLoggerStdOut.INSTANCE);
+
+        List<Event> events = new ArrayList<>();
+        events.add(new MyQuickFailCheckEvent(configWithName("quick-fail"), countErrorsEventLogger));
+        events.add(new MyQuickFailCheckEvent(configWithName("quick-fail-not-called"), countErrorsEventLogger));
+
+        EventBroadcaster broadcaster = new EventBroadcasterDefault(events, countErrorsEventLogger);
+
+        List<EventCheck> eventChecks = broadcaster.broadcastCheck(Duration.ofSeconds(1), true, e -> {});
+
+        assertEquals(1, eventChecks.size());
+        assertEquals("quick-fail", eventChecks.get(0).getEventId());
+    }
+
+    @Test
+    public void failedCheckReportsClassOfWrappedEvent() {
+        Event failing = new MyThrowingCheckEvent(configWithName("throwing"), EventLoggerStdOut.INSTANCE);
+        Event wrapped = new EventTracing(new EventCircuitBreaker(failing, 3, Duration.ofSeconds(1), Duration.ZERO,
+            Ticker.SYSTEM, new EventMessageBusSimple(), EventLoggerStdOut.INSTANCE), mock(TraceRecorder.class));
+
+        EventBroadcaster broadcaster = new EventBroadcasterAsync(Collections.singletonList(wrapped), EventLoggerStdOut.INSTANCE);
+        List<EventCheck> eventChecks = broadcaster.broadcastCheck(Duration.ofSeconds(2), false, e -> {});
+        broadcaster.shutdownAndWaitAllTasksDone(2);
+
+        assertEquals(EventStatus.FAILURE, eventChecks.get(0).getEventStatus());
+        assertEquals("MyThrowingCheckEvent", eventChecks.get(0).getEventClassName());
+    }
+
     @Test(expected = KillSwitchException.class)
     public void broadcastKeepAliveWithKillSwitchExceptionAsync() {
         // what happens when an event throws a KillSwitchException?
@@ -247,7 +430,7 @@ public class EventBroadcasterTest {
         return events;
     }
 
-    private static class MySleepyEvent extends EventAdapter<EventContext> {
+    private class MySleepyEvent extends EventAdapter<EventContext> {
 
         public MySleepyEvent(EventContext context, EventLogger eventLogger) {
             super(context, eventLogger);
@@ -255,17 +438,42 @@ public class EventBroadcasterTest {
 
         @Override
         public void beforeTest() {
-            logger.info(System.currentTimeMillis() + " Sleep in before test in thread: " + Thread.currentThread().getName());
-            sleep(200);
-            logger.info(System.currentTimeMillis() + " After sleep in before test in thread: " + Thread.currentThread().getName());
+            logger.info(System.currentTimeMillis() + " Wait in before test in thread: " + Thread.currentThread().getName());
+            awaitAll(beforeTestsStarted);
+            logger.info(System.currentTimeMillis() + " After wait in before test in thread: " + Thread.currentThread().getName());
+        }
+
+        @Override
+        public EventCheck check() {
+            logger.info(System.currentTimeMillis() + " Wait in check in thread: " + Thread.currentThread().getName());
+            awaitAll(checksStarted);
+            await(releaseChecks);
+            logger.error(System.currentTimeMillis() + " After wait in check in thread: " + Thread.currentThread().getName());
+            return new EventCheck(eventContext.getName(), getClass().getSimpleName(), EventStatus.SUCCESS, "All ok");
+        }
+    }
+
+    private static class MyQuickFailCheckEvent extends EventAdapter<EventContext> {
+
+        public MyQuickFailCheckEvent(EventContext context, EventLogger eventLogger) {
+            super(context, eventLogger);
         }
 
         @Override
         public EventCheck check() {
-            logger.info(System.currentTimeMillis() + " Sleep in check in thread: " + Thread.currentThread().getName());
-            sleep(500);
-            logger.error(System.currentTimeMillis() + " After sleep in check in thread: " + Thread.currentThread().getName());
-             return new EventCheck(eventContext.getName(), getClass().getSimpleName(), EventStatus.SUCCESS, "All ok");
+            return new EventCheck(eventContext.getName(), getClass().getSimpleName(), EventStatus.FAILURE, "Quick failure");
+        }
+    }
+
+    private static class MyThrowingCheckEvent extends EventAdapter<EventContext> {
+
+        public MyThrowingCheckEvent(EventContext context, EventLogger eventLogger) {
+            super(context, eventLogger);
+        }
+
+        @Override
+        public EventCheck check() {
+            throw new RuntimeException("oops, no check possible");
         }
     }
 
@@ -288,7 +496,7 @@ public class EventBroadcasterTest {
         }
     }
 
-    private static class MyErrorEvent extends EventAdapter<EventContext> {
+    private class MyErrorEvent extends EventAdapter<EventContext> {
 
         public MyErrorEvent(EventContext context, EventLogger eventLogger) {
             super(context, eventLogger);
@@ -296,27 +504,37 @@ public class EventBroadcasterTest {
 
         @Override
         public void beforeTest() {
-            logger.info(System.currentTimeMillis() + " Sleep in before test error in thread: " + Thread.currentThread().getName());
-            sleep(200);
-            logger.info(System.currentTimeMillis() + " After sleep in test error in thread: " + Thread.currentThread().getName());
+            logger.info(System.currentTimeMillis() + " Wait in before test error in thread: " + Thread.currentThread().getName());
+            awaitAll(beforeTestsStarted);
+            logger.info(System.currentTimeMillis() + " After wait in test error in thread: " + Thread.currentThread().getName());
             throw new RuntimeException("oops, something went wrong in before test!");
         }
 
         @Override
         public EventCheck check() {
-            logger.info(System.currentTimeMillis() + " Sleep in error check in thread: " + Thread.currentThread().getName());
-            sleep(500);
-            logger.error(System.currentTimeMillis() + " After sleep in error check in thread: " + Thread.currentThread().getName());
+            logger.info(System.currentTimeMillis() + " Wait in error check in thread: " + Thread.currentThread().getName());
+            awaitAll(checksStarted);
+            await(releaseChecks);
+            logger.error(System.currentTimeMillis() + " After wait in error check in thread: " + Thread.currentThread().getName());
             throw new RuntimeException("oops, something went wrong in check!");
         }
     }
 
-    private static void sleep(long sleepMillis) {
+    /**
+     * Count down and wait for the other calls, times out when the calls do not run in parallel.
+     */
+    private static void awaitAll(CountDownLatch started) {
+        started.countDown();
+        await(started);
+    }
+
+    private static void await(CountDownLatch latch) {
         try {
-            Thread.sleep(sleepMillis);
+            latch.await(2, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             System.out.println("interrupt received: " + Thread.currentThread().getName());
-            Thread.currentThread().interrupt();        }
+            Thread.currentThread().interrupt();
+        }
     }
 
 }
\ No newline at end of file
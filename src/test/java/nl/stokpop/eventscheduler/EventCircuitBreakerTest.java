@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.EventAdapter;
+import nl.stokpop.eventscheduler.api.EventCheck;
+import nl.stokpop.eventscheduler.api.EventStatus;
+import nl.stokpop.eventscheduler.api.config.EventConfig;
+import nl.stokpop.eventscheduler.api.config.EventContext;
+import nl.stokpop.eventscheduler.api.message.EventMessage;
+import nl.stokpop.eventscheduler.api.message.EventMessageBus;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class EventCircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong(0);
+    private final List<EventMessage> messages = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndProbes() {
+        FlakyEvent flakyEvent = new FlakyEvent(messageBus());
+        EventCircuitBreaker breaker = new EventCircuitBreaker(flakyEvent, 3, Duration.ofSeconds(60), Duration.ZERO,
+            nanos::get, messageBus(), EventLoggerStdOut.INSTANCE);
+
+        flakyEvent.failing = true;
+        for (int i = 0; i < 3; i++) {
+            assertThrows(EventSchedulerRuntimeException.class, breaker::keepAlive);
+        }
+        assertEquals(EventCircuitBreaker.State.OPEN, breaker.getState());
+
+        breaker.keepAlive();
+        breaker.keepAlive();
+        assertEquals("calls are skipped while open", 3, flakyEvent.calls);
+        assertEquals(2, breaker.getSkippedCalls());
+
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        assertThrows(EventSchedulerRuntimeException.class, breaker::keepAlive);
+        assertEquals("failed probe opens again", EventCircuitBreaker.State.OPEN, breaker.getState());
+
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        flakyEvent.failing = false;
+        breaker.keepAlive();
+        assertEquals(EventCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(5, flakyEvent.calls);
+
+        assertEquals(
+            Arrays.asList("circuit-breaker OPEN", "circuit-breaker HALF_OPEN", "circuit-breaker OPEN", "circuit-breaker HALF_OPEN", "circuit-breaker CLOSED"),
+            messages.stream().map(EventMessage::getMessage).collect(Collectors.toList()));
+
+        EventCheck eventCheck = breaker.check();
+        assertEquals(EventStatus.SUCCESS, eventCheck.getEventStatus());
+        assertTrue(eventCheck.getMessage(), eventCheck.getMessage().contains("opened 2 times, skipped 2 calls"));
+    }
+
+    @Test
+    public void slowCallsCountAsFailure() {
+        FlakyEvent slowEvent = new FlakyEvent(messageBus());
+        slowEvent.callNanos = Duration.ofSeconds(5).toNanos();
+        EventCircuitBreaker breaker = new EventCircuitBreaker(slowEvent, 2, Duration.ofSeconds(60), Duration.ofSeconds(1),
+            nanos::get, messageBus(), EventLoggerStdOut.INSTANCE);
+
+        breaker.keepAlive();
+        assertEquals(EventCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.keepAlive();
+        assertEquals(EventCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void hangingKeepAliveCountsAsFailure() throws Exception {
+        FlakyEvent hangingEvent = new FlakyEvent(messageBus());
+        hangingEvent.hang = new CountDownLatch(1);
+        EventCircuitBreaker breaker = new EventCircuitBreaker(hangingEvent, 1, Duration.ofSeconds(60), Duration.ofSeconds(1),
+            nanos::get, messageBus(), EventLoggerStdOut.INSTANCE);
+
+        Thread hangingCall = new Thread(breaker::keepAlive);
+        hangingCall.start();
+        assertTrue(hangingEvent.entered.await(10, TimeUnit.SECONDS));
+
+        breaker.keepAlive();
+        assertEquals("no second keep-alive next to a hanging one", 1, hangingEvent.calls);
+        assertEquals(EventCircuitBreaker.State.CLOSED, breaker.getState());
+
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        breaker.keepAlive();
+        assertEquals("hanging call past slow call threshold counts as failure", EventCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, hangingEvent.calls);
+        assertEquals(2, breaker.getSkippedCalls());
+
+        hangingEvent.hang.countDown();
+        hangingCall.join(10_000);
+        assertEquals(EventCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals("counted once", 1, messages.size());
+    }
+
+    @Test
+    public void hangingProbeOpensAgainWithoutSlowCallThreshold() throws Exception {
+        FlakyEvent flakyEvent = new FlakyEvent(messageBus());
+        flakyEvent.failing = true;
+        EventCircuitBreaker breaker = new EventCircuitBreaker(flakyEvent, 1, Duration.ofSeconds(60), Duration.ZERO,
+            nanos::get, messageBus(), EventLoggerStdOut.INSTANCE);
+        CustomEvent customEvent = CustomEvent.createFromLine("PT0S|probe");
+
+        assertThrows(EventSchedulerRuntimeException.class, breaker::keepAlive);
+        assertEquals(EventCircuitBreaker.State.OPEN, breaker.getState());
+
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        flakyEvent.failing = false;
+        flakyEvent.hang = new CountDownLatch(1);
+        flakyEvent.entered = new CountDownLatch(1);
+        Thread hangingProbe = new Thread(breaker::keepAlive);
+        hangingProbe.start();
+        assertTrue(flakyEvent.entered.await(10, TimeUnit.SECONDS));
+        assertEquals(EventCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.customEvent(customEvent);
+        assertEquals("skipped while the probe runs", 1, breaker.getSkippedCalls());
+
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        breaker.customEvent(customEvent);
+        assertEquals("probe running longer than the open duration failed", EventCircuitBreaker.State.OPEN, breaker.getState());
+
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        breaker.customEvent(customEvent);
+        assertEquals("next probe succeeds", EventCircuitBreaker.State.CLOSED, breaker.getState());
+
+        flakyEvent.hang.countDown();
+        hangingProbe.join(10_000);
+        assertEquals(EventCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(
+            Arrays.asList("circuit-breaker OPEN", "circuit-breaker HALF_OPEN", "circuit-breaker OPEN", "circuit-breaker HALF_OPEN", "circuit-breaker CLOSED"),
+            messages.stream().map(EventMessage::getMessage).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void stateChangeIsSentWithoutHoldingTheLock() {
+        FlakyEvent flakyEvent = new FlakyEvent(messageBus());
+        flakyEvent.failing = true;
+        AtomicBoolean sentHoldingLock = new AtomicBoolean(false);
+        EventCircuitBreaker[] breaker = new EventCircuitBreaker[1];
+        EventMessageBus lockCheckingBus = new EventMessageBusSimple() {
+            @Override
+            public void send(EventMessage message) {
+                sentHoldingLock.compareAndSet(false, Thread.holdsLock(breaker[0]));
+                messages.add(message);
+            }
+        };
+        breaker[0] = new EventCircuitBreaker(flakyEvent, 1, Duration.ofSeconds(60), Duration.ZERO,
+            nanos::get, lockCheckingBus, EventLoggerStdOut.INSTANCE);
+
+        assertThrows(EventSchedulerRuntimeException.class, breaker[0]::keepAlive);
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+        assertThrows(EventSchedulerRuntimeException.class, breaker[0]::keepAlive);
+
+        assertEquals(3, messages.size());
+        assertFalse(sentHoldingLock.get());
+    }
+
+    private EventMessageBus messageBus() {
+        return new EventMessageBusSimple() {
+            @Override
+            public void send(EventMessage message) {
+                messages.add(message);
+            }
+        };
+    }
+
+    private static void assertThrows(Class<? extends Exception> expected, Runnable runnable) {
+        try {
+            runnable.run();
+            fail("expected " + expected.getSimpleName());
+        } catch (Exception e) {
+            assertEquals(expected, e.getClass());
+        }
+    }
+
+    private class FlakyEvent extends EventAdapter<EventContext> {
+        boolean failing;
+        long callNanos;
+        volatile int calls;
+        CountDownLatch hang;
+        volatile CountDownLatch entered = new CountDownLatch(1);
+
+        FlakyEvent(EventMessageBus messageBus) {
+            super(EventConfig.builder().name("flaky").build().toContext(), messageBus, EventLoggerStdOut.INSTANCE);
+        }
+
+        @Override
+        public void keepAlive() {
+            calls++;
+            entered.countDown();
+            if (hang != null) {
+                try {
+                    hang.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            nanos.addAndGet(callNanos);
+            if (failing) {
+                throw new EventSchedulerRuntimeException("endpoint down");
+            }
+        }
+
+        @Override
+        public EventCheck check() {
+            return new EventCheck("flaky", getClass().getName(), EventStatus.SUCCESS, "all fine");
+        }
+    }
+}
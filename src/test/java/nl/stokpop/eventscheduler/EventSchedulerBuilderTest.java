@@ -15,6 +15,8 @@
  */
 package nl.stokpop.eventscheduler;
 
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.Event;
 import nl.stokpop.eventscheduler.api.config.EventConfig;
 import nl.stokpop.eventscheduler.api.config.EventSchedulerConfig;
 import nl.stokpop.eventscheduler.api.config.TestConfig;
@@ -24,6 +26,14 @@ import org.junit.Test;
 
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class EventSchedulerBuilderTest {
 
@@ -98,6 +108,18 @@ public class EventSchedulerBuilderTest {
         eventScheduler.startSession();
     }
 
+    @Test(expected = CustomEvent.ScheduleEventWrongFormat.class)
+    public void wrongScheduleFailsBuild() {
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .testConfig(TestConfig.builder().build())
+            .build();
+
+        new EventSchedulerBuilderInternal()
+            .setEventSchedulerContext(config.toContext(EventLoggerStdOut.INSTANCE))
+            .setCustomEvents("PT1M|scale-down\nPT3X|bad-duration")
+            .build();
+    }
+
     @Test(expected = EventSchedulerRuntimeException.class)
     public void testUniqueEventNameCheck() {
         EventSchedulerConfig config = EventSchedulerConfig.builder()
@@ -109,4 +131,49 @@ public class EventSchedulerBuilderTest {
         builder.setEventSchedulerContext(config.toContext(EventLoggerStdOut.INSTANCE));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void parallelEventCreationKeepsConfigOrder() {
+        EventSchedulerConfig.EventSchedulerConfigBuilder configBuilder = EventSchedulerConfig.builder()
+            .testConfig(TestConfig.builder().build())
+            .eventCreationParallelism(4);
+        List<String> names = IntStream.range(0, 16).mapToObj(i -> "Event" + i).collect(Collectors.toList());
+        names.forEach(name -> configBuilder.eventConfig(EventConfig.builder()
+            .name(name)
+            .eventFactory("nl.stokpop.eventscheduler.event.EventFactoryDefault")
+            .build()));
+
+        List<Event> createdEvents = new ArrayList<>();
+        new EventSchedulerBuilderInternal()
+            .setEventSchedulerContext(configBuilder.build().toContext(EventLoggerStdOut.INSTANCE))
+            .setEventBroadcasterFactory((events, logger) -> {
+                createdEvents.addAll(events);
+                return new EventBroadcasterDefault(events, logger);
+            })
+            .build();
+
+        assertEquals(names, createdEvents.stream().map(Event::getName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void eventCreationErrorsAreAggregated() {
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .testConfig(TestConfig.builder().build())
+            .eventCreationParallelism(2)
+            .eventConfig(EventConfig.builder().name("good").eventFactory("nl.stokpop.eventscheduler.event.EventFactoryDefault").build())
+            .eventConfig(EventConfig.builder().name("bad1").eventFactory("nl.stokpop.NotThere1").build())
+            .eventConfig(EventConfig.builder().name("bad2").eventFactory("nl.stokpop.NotThere2").build())
+            .build();
+
+        try {
+            new EventSchedulerBuilderInternal()
+                .setEventSchedulerContext(config.toContext(EventLoggerStdOut.INSTANCE))
+                .build();
+            fail("expected EventSchedulerRuntimeException");
+        } catch (EventSchedulerRuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Failed to create 2 of 3 events"));
+            assertTrue(e.getMessage(), e.getMessage().contains("bad1") && e.getMessage().contains("bad2"));
+            assertEquals(1, e.getSuppressed().length);
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ package nl.stokpop.eventscheduler;
 import nl.stokpop.eventscheduler.api.CustomEvent;
 import nl.stokpop.eventscheduler.api.EventGenerator;
 import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
+import nl.stokpop.eventscheduler.api.ScheduledCustomEvent;
 import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
 import nl.stokpop.eventscheduler.generator.EventGeneratorDefault;
 import nl.stokpop.eventscheduler.generator.EventGeneratorFactoryDefault;
@@ -25,12 +26,19 @@ import nl.stokpop.eventscheduler.log.CountErrorsEventLogger;
 import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
 public class EventSchedulerEngineTest {
@@ -60,7 +68,8 @@ public class EventSchedulerEngineTest {
     }
 
     @Test
-    public void runMultipleEventsWithExceptions() throws InterruptedException {
+    public void runMultipleEventsWithExceptions() {
+        SimulationExecutor simulation = new SimulationExecutor(9);
 
         List<CustomEvent> events = new ArrayList<>();
         events.add(CustomEvent.createFromLine("PT0.1S|my-event(phase 1)"));
@@ -70,7 +79,7 @@ public class EventSchedulerEngineTest {
         events.add(CustomEvent.createFromLine("PT0.5S|my-event(phase 5)"));
 
         CountErrorsEventLogger countErrorsEventLogger = CountErrorsEventLogger.of(EventLoggerStdOut.INSTANCE);
-        EventSchedulerEngine engine = new EventSchedulerEngine(countErrorsEventLogger);
+        EventSchedulerEngine engine = new EventSchedulerEngine(countErrorsEventLogger, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
 
         EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
         // expect 5 calls, two will throw an Exception, see if flow continues
@@ -84,7 +93,7 @@ public class EventSchedulerEngineTest {
         engine.startCustomEventScheduler(events, eventBroadcaster);
 
         // check if all events are called at 100, 200, 300, 400 and 500 ms
-        Thread.sleep(600);
+        simulation.advanceBy(Duration.ofMillis(600));
 
         engine.shutdownThreadsNow();
 
@@ -93,4 +102,433 @@ public class EventSchedulerEngineTest {
         assertEquals("two errors expected in logger", 2, countErrorsEventLogger.errorCount());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void addCancelAndRescheduleWhileRunning() {
+        SimulationExecutor simulation = new SimulationExecutor(8);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+
+        CustomEvent scriptEvent = CustomEvent.createFromLine("PT10S|script-event");
+        engine.startCustomEventScheduler(Collections.singletonList(scriptEvent), eventBroadcaster);
+
+        ScheduledCustomEvent scriptScheduled = engine.customEventSchedule().get(0);
+        ScheduledCustomEvent added = engine.addCustomEvent(CustomEvent.createFromLine("PT0.1S|added-event"));
+        ScheduledCustomEvent cancelled = engine.addCustomEvent(CustomEvent.createFromLine("PT0.1S|cancelled-event"));
+
+        assertEquals(3, engine.customEventSchedule().size());
+        assertEquals("ordered by fire-at", "script-event", engine.customEventSchedule().get(2).getCustomEvent().getName());
+
+        assertTrue(engine.cancelCustomEvent(cancelled.getId()));
+        assertFalse("second cancel should report false", engine.cancelCustomEvent(cancelled.getId()));
+
+        Optional<ScheduledCustomEvent> rescheduled = engine.rescheduleCustomEvent(scriptScheduled.getId(), Duration.ofMillis(200));
+        assertTrue(rescheduled.isPresent());
+        assertEquals(scriptScheduled.getId(), rescheduled.get().getId());
+        assertEquals(Duration.ofMillis(200), rescheduled.get().getCustomEvent().getDuration());
+
+        simulation.advanceBy(Duration.ofMillis(400));
+
+        assertTrue("all events fired", engine.customEventSchedule().isEmpty());
+        assertFalse("fired event cannot be cancelled", engine.cancelCustomEvent(added.getId()));
+        assertFalse("fired event cannot be rescheduled", engine.rescheduleCustomEvent(added.getId(), Duration.ofSeconds(1)).isPresent());
+
+        engine.shutdownThreadsNow();
+
+        verify(eventBroadcaster, times(1)).broadcastCustomEvent(added.getCustomEvent());
+        verify(eventBroadcaster, times(1)).broadcastCustomEvent(rescheduled.get().getCustomEvent());
+        verify(eventBroadcaster, never()).broadcastCustomEvent(cancelled.getCustomEvent());
+        verify(eventBroadcaster, never()).broadcastCustomEvent(scriptEvent);
+    }
+
+    @Test
+    public void rescheduleKeepsSeriesAndLeavesStartedRunnerAlone() {
+        SimulationExecutor simulation = new SimulationExecutor(7);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
+
+        List<String> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getName() + "@" + simulation.now().getSeconds()))
+            .when(eventBroadcaster).broadcastCustomEvent(any());
+
+        engine.startCustomEventScheduler(Collections.singletonList(CustomEvent.createFromLine("PT10S;every=PT10S;count=3|repeat")), eventBroadcaster);
+        ScheduledCustomEvent once = engine.addCustomEvent(CustomEvent.createFromLine("PT50S|once"));
+        long repeatId = engine.customEventSchedule().get(0).getId();
+
+        simulation.advanceBy(Duration.ofSeconds(10));
+        // the second occurrence moves from 20 to 25 seconds, the series keeps its count of three
+        assertTrue(engine.rescheduleCustomEvent(repeatId, Duration.ofSeconds(25)).isPresent());
+        simulation.advanceBy(Duration.ofSeconds(35));
+        assertEquals(Arrays.asList("repeat@10", "repeat@25", "repeat@35"), fired);
+
+        simulation.beforeNextTask(() ->
+            assertFalse("a started runner cannot be rescheduled", engine.rescheduleCustomEvent(once.getId(), Duration.ofSeconds(60)).isPresent()));
+        simulation.advanceBy(Duration.ofSeconds(25));
+
+        assertEquals(Arrays.asList("repeat@10", "repeat@25", "repeat@35", "once@50"), fired);
+        assertEquals(0, engine.customEventSchedule().size());
+
+        engine.shutdownThreadsNow();
+    }
+
+    @Test(expected = EventSchedulerRuntimeException.class)
+    public void addCustomEventWithoutRunningScheduler() {
+        new EventSchedulerEngine(EventLoggerStdOut.INSTANCE).addCustomEvent(CustomEvent.createFromLine("PT1S|too-early"));
+    }
+
+    @Test
+    public void pauseAndResumeKeepsSpacing() {
+        SimulationExecutor simulation = new SimulationExecutor(1);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+
+        CustomEvent first = CustomEvent.createFromLine("PT0.2S|first");
+        CustomEvent second = CustomEvent.createFromLine("PT0.4S|second");
+        List<CustomEvent> events = new ArrayList<>();
+        events.add(first);
+        events.add(second);
+        engine.startCustomEventScheduler(events, eventBroadcaster);
+
+        assertTrue(engine.pauseCustomEvents());
+        assertFalse(engine.pauseCustomEvents());
+        ScheduledCustomEvent addedWhilePaused = engine.addCustomEvent(CustomEvent.createFromLine("PT0.1S|added"));
+
+        simulation.advanceBy(Duration.ofMillis(500));
+        verify(eventBroadcaster, never()).broadcastCustomEvent(any());
+        assertEquals(3, engine.customEventSchedule().size());
+
+        assertTrue(engine.resumeCustomEvents());
+        assertFalse(engine.isCustomEventsPaused());
+
+        simulation.advanceBy(Duration.ofMillis(300));
+        verify(eventBroadcaster, times(1)).broadcastCustomEvent(addedWhilePaused.getCustomEvent());
+        verify(eventBroadcaster, times(1)).broadcastCustomEvent(first);
+        verify(eventBroadcaster, never()).broadcastCustomEvent(second);
+
+        simulation.advanceBy(Duration.ofMillis(100));
+        verify(eventBroadcaster, times(1)).broadcastCustomEvent(second);
+
+        engine.shutdownThreadsNow();
+    }
+
+    @Test
+    public void virtualTimeRunsScheduleInOrderWithoutWaiting() {
+        SimulationExecutor simulation = new SimulationExecutor(10);
+        SchedulerTime schedulerTime = new SchedulerTime(simulation, Double.POSITIVE_INFINITY);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, schedulerTime, simulation.executorFactory());
+
+        List<String> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getName()))
+            .when(eventBroadcaster).broadcastCustomEventAndWait(any());
+
+        List<CustomEvent> events = new ArrayList<>();
+        events.add(CustomEvent.createFromLine("PT60M|last"));
+        events.add(CustomEvent.createFromLine("PT1M|first"));
+        events.add(CustomEvent.createFromLine("PT30M|middle"));
+
+        long start = schedulerTime.nanoTime();
+        engine.startCustomEventScheduler(events, eventBroadcaster);
+        simulation.advanceBy(Duration.ZERO);
+        engine.shutdownThreadsNow();
+
+        assertEquals(Arrays.asList("first", "middle", "last"), fired);
+        assertEquals("virtual clock moved to the last event", Duration.ofMinutes(60).toNanos(), schedulerTime.nanoTime() - start);
+        assertEquals("no ticker time has passed", Duration.ZERO, simulation.now());
+    }
+
+    @Test
+    public void keepAliveFollowsSpeedFactor() {
+        SimulationExecutor simulation = new SimulationExecutor(14);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 60.0), simulation.executorFactory());
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+
+        engine.startKeepAliveThread("speed", Duration.ofSeconds(30), eventBroadcaster, null);
+        // 30 seconds of schedule time take half a second
+        simulation.advanceBy(Duration.ofSeconds(2));
+        engine.shutdownThreadsNow();
+
+        verify(eventBroadcaster, times(5)).broadcastKeepAlive();
+    }
+
+    @Test
+    public void keepAliveFollowsVirtualTimeline() {
+        SimulationExecutor simulation = new SimulationExecutor(15);
+        SchedulerTime schedulerTime = new SchedulerTime(simulation, Double.POSITIVE_INFINITY);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, schedulerTime, simulation.executorFactory());
+
+        long start = schedulerTime.nanoTime();
+        List<String> calls = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> calls.add("keep-alive@" + Duration.ofNanos(schedulerTime.nanoTime() - start).getSeconds()))
+            .when(eventBroadcaster).broadcastKeepAlive();
+        doAnswer(invocation -> calls.add(((CustomEvent) invocation.getArgument(0)).getName() + "@" + Duration.ofNanos(schedulerTime.nanoTime() - start).getSeconds()))
+            .when(eventBroadcaster).broadcastCustomEventAndWait(any());
+
+        engine.startKeepAliveThread("virtual", Duration.ofSeconds(30), eventBroadcaster, null);
+        List<CustomEvent> events = new ArrayList<>();
+        events.add(CustomEvent.createFromLine("PT1M|first"));
+        events.add(CustomEvent.createFromLine("PT2M30S|last"));
+        engine.startCustomEventScheduler(events, eventBroadcaster);
+        simulation.advanceBy(Duration.ZERO);
+        engine.shutdownThreadsNow();
+
+        assertEquals(Arrays.asList("keep-alive@0", "keep-alive@30", "keep-alive@60", "first@60",
+            "keep-alive@90", "keep-alive@120", "keep-alive@150", "last@150"), calls);
+        assertEquals("no ticker time has passed", Duration.ZERO, simulation.now());
+    }
+
+    @Test
+    public void pullsLargeScheduleLazilyInOrder() {
+        SimulationExecutor simulation = new SimulationExecutor(3);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
+
+        List<String> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getName()))
+            .when(eventBroadcaster).broadcastCustomEvent(any());
+
+        int eventCount = EventSchedulerEngine.CUSTOM_EVENT_PULL_WINDOW * 3;
+        AtomicInteger pulled = new AtomicInteger(0);
+        Iterator<CustomEvent> lazyEvents = new Iterator<CustomEvent>() {
+            @Override
+            public boolean hasNext() {
+                return pulled.get() < eventCount;
+            }
+
+            @Override
+            public CustomEvent next() {
+                int index = pulled.getAndIncrement();
+                return CustomEvent.createFromLine("PT" + (index + 1) + "S|event-" + index);
+            }
+        };
+
+        engine.startCustomEventScheduler(lazyEvents, eventBroadcaster);
+        assertEquals(EventSchedulerEngine.CUSTOM_EVENT_PULL_WINDOW, pulled.get());
+
+        for (int second = 0; second < eventCount; second++) {
+            simulation.advanceBy(Duration.ofSeconds(1));
+            assertTrue(engine.customEventSchedule().size() <= EventSchedulerEngine.CUSTOM_EVENT_PULL_WINDOW);
+        }
+
+        assertEquals(eventCount, fired.size());
+        assertEquals("event-0", fired.get(0));
+        assertEquals("event-" + (eventCount - 1), fired.get(eventCount - 1));
+        assertEquals(0, engine.customEventSchedule().size());
+
+        engine.shutdownThreadsNow();
+    }
+
+    @Test
+    public void recurringEventIsReArmedAsOneEntry() {
+        SimulationExecutor simulation = new SimulationExecutor(5);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
+
+        List<Duration> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getDuration()))
+            .when(eventBroadcaster).broadcastCustomEvent(any());
+
+        engine.startCustomEventScheduler(Collections.singletonList(CustomEvent.createFromLine("PT10S;every=PT10S;count=4|toggle")), eventBroadcaster);
+        ScheduledCustomEvent infinite = engine.addCustomEvent(CustomEvent.createFromLine("PT5S;every=PT20S|forever"));
+
+        simulation.advanceBy(Duration.ofSeconds(30));
+        assertEquals("one entry per recurring event", 2, engine.customEventSchedule().size());
+        assertEquals(Duration.ofSeconds(40), engine.customEventSchedule().get(0).getCustomEvent().getDuration());
+        assertEquals(Duration.ofSeconds(45), engine.customEventSchedule().get(1).getCustomEvent().getDuration());
+
+        assertTrue(engine.cancelCustomEvent(infinite.getId()));
+        simulation.advanceBy(Duration.ofSeconds(60));
+
+        assertEquals(Arrays.asList(Duration.ofSeconds(5), Duration.ofSeconds(10), Duration.ofSeconds(20), Duration.ofSeconds(25),
+            Duration.ofSeconds(30), Duration.ofSeconds(40)), fired);
+        assertEquals(0, engine.customEventSchedule().size());
+
+        engine.shutdownThreadsNow();
+    }
+
+    @Test
+    public void pauseAndResumeWhileRunnerStartsFiresOnce() {
+        pauseAndResumeWhileRunnerStarts(false);
+    }
+
+    @Test
+    public void pauseAndResumeWhileRunnerStartsFiresOnceWhenCoalescing() {
+        pauseAndResumeWhileRunnerStarts(true);
+    }
+
+    private static void pauseAndResumeWhileRunnerStarts(boolean coalesce) {
+        SimulationExecutor simulation = new SimulationExecutor(6);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory(), coalesce);
+
+        List<String> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getName() + "@" + simulation.now().getSeconds()))
+            .when(eventBroadcaster).broadcastCustomEvent(any());
+
+        List<CustomEvent> events = new ArrayList<>();
+        events.add(CustomEvent.createFromLine("PT1S;every=PT2S;count=2|repeat"));
+        events.add(CustomEvent.createFromLine("PT5S|once"));
+        engine.startCustomEventScheduler(events, eventBroadcaster);
+        long onceId = engine.customEventSchedule().get(1).getId();
+
+        // the runner for the first occurrence has started, but has not claimed its entry yet
+        simulation.beforeNextTask(() -> {
+            assertTrue(engine.pauseCustomEvents());
+            assertTrue(engine.resumeCustomEvents());
+        });
+        simulation.advanceBy(Duration.ofSeconds(4));
+        assertEquals(Arrays.asList("repeat@1", "repeat@3"), fired);
+
+        simulation.beforeNextTask(() -> {
+            assertTrue(engine.pauseCustomEvents());
+            assertFalse("a started runner cannot be cancelled", engine.cancelCustomEvent(onceId));
+            assertTrue(engine.resumeCustomEvents());
+        });
+        simulation.advanceBy(Duration.ofSeconds(6));
+
+        assertEquals(Arrays.asList("repeat@1", "repeat@3", "once@5"), fired);
+        assertEquals(0, engine.customEventSchedule().size());
+        assertEquals(0, simulation.pendingTaskCount());
+
+        engine.shutdownThreadsNow();
+    }
+
+    @Test
+    public void jitterIsReplayableFromSeed() {
+        List<Duration> firstRun = fireTimesWithJitter(12);
+        assertEquals(firstRun, fireTimesWithJitter(12));
+        assertEquals(5, firstRun.size());
+        for (int i = 0; i < firstRun.size(); i++) {
+            Duration planned = Duration.ofSeconds(i + 1);
+            assertTrue("jitter within bounds: " + firstRun.get(i), firstRun.get(i).compareTo(planned) >= 0
+                && firstRun.get(i).compareTo(planned.plusMillis(500)) <= 0);
+        }
+    }
+
+    private static List<Duration> fireTimesWithJitter(long seed) {
+        SimulationExecutor simulation = new SimulationExecutor(seed);
+        SchedulerTime schedulerTime = new SchedulerTime(simulation, 1.0, new Random(seed));
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, schedulerTime, simulation.executorFactory());
+
+        List<Duration> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(simulation.now()))
+            .when(eventBroadcaster).broadcastCustomEvent(any());
+
+        engine.startCustomEventScheduler(Collections.singletonList(CustomEvent.createFromLine("PT1S;every=PT1S;count=5;jitter=PT0.5S|jitter")), eventBroadcaster);
+        simulation.advanceBy(Duration.ofSeconds(10));
+        engine.shutdownThreadsNow();
+        return fired;
+    }
+
+    @Test
+    public void coalescesEventsDueAtSameInstant() {
+        SimulationExecutor simulation = new SimulationExecutor(2);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory(), true);
+
+        List<String> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getName()))
+            .when(eventBroadcaster).broadcastCustomEvent(any());
+        doAnswer(invocation -> fired.add(EventSchedulerUtils.customEventNames(invocation.getArgument(0))))
+            .when(eventBroadcaster).broadcastCustomEvents(any());
+
+        List<CustomEvent> events = new ArrayList<>();
+        events.add(CustomEvent.createFromLine("PT1S|a"));
+        events.add(CustomEvent.createFromLine("PT1S|b"));
+        events.add(CustomEvent.createFromLine("PT2S|c"));
+        events.add(CustomEvent.createFromLine("PT1S;every=PT1S;count=2|repeat"));
+        events.add(CustomEvent.createFromLine("PT3S|single"));
+        engine.startCustomEventScheduler(events, eventBroadcaster);
+
+        simulation.advanceBy(Duration.ofSeconds(3));
+
+        assertEquals(Arrays.asList("a,b,repeat", "repeat,c", "single"), fired);
+        verify(eventBroadcaster, times(2)).broadcastCustomEvents(any());
+        assertEquals(0, engine.customEventSchedule().size());
+
+        engine.shutdownThreadsNow();
+    }
+
+    @Test
+    public void coalescesEventsInVirtualTime() {
+        SimulationExecutor simulation = new SimulationExecutor(11);
+        SchedulerTime schedulerTime = new SchedulerTime(simulation, Double.POSITIVE_INFINITY);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, schedulerTime, simulation.executorFactory(), true);
+
+        List<String> fired = new ArrayList<>();
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+        doAnswer(invocation -> fired.add(((CustomEvent) invocation.getArgument(0)).getName()))
+            .when(eventBroadcaster).broadcastCustomEventAndWait(any());
+        doAnswer(invocation -> fired.add(EventSchedulerUtils.customEventNames(invocation.getArgument(0))))
+            .when(eventBroadcaster).broadcastCustomEventsAndWait(any());
+
+        List<CustomEvent> events = new ArrayList<>();
+        events.add(CustomEvent.createFromLine("PT10M|scale-down"));
+        events.add(CustomEvent.createFromLine("PT1M|first"));
+        events.add(CustomEvent.createFromLine("PT10M|change-config"));
+        engine.startCustomEventScheduler(events, eventBroadcaster);
+        simulation.advanceBy(Duration.ZERO);
+        engine.shutdownThreadsNow();
+
+        assertEquals(Arrays.asList("first", "scale-down,change-config"), fired);
+    }
+
+    @Test
+    public void failingSourceStopsPullingAndIsReported() {
+        SimulationExecutor simulation = new SimulationExecutor(4);
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE, new SchedulerTime(simulation, 1.0), simulation.executorFactory());
+        EventBroadcaster eventBroadcaster = mock(EventBroadcaster.class);
+
+        int eventCount = EventSchedulerEngine.CUSTOM_EVENT_PULL_WINDOW + 1;
+        AtomicInteger pulled = new AtomicInteger(0);
+        Iterator<CustomEvent> failingEvents = new Iterator<CustomEvent>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public CustomEvent next() {
+                int index = pulled.getAndIncrement();
+                if (index == eventCount) {
+                    throw new IllegalStateException("broken schedule file");
+                }
+                return CustomEvent.createFromLine("PT" + (index + 1) + "S|event-" + index);
+            }
+        };
+
+        engine.startCustomEventScheduler(failingEvents, eventBroadcaster);
+        assertNull(engine.customEventSourceFailure());
+
+        simulation.advanceBy(Duration.ofSeconds(3));
+        assertEquals("broken schedule file", engine.customEventSourceFailure().getMessage());
+        int pulledAtFailure = pulled.get();
+
+        simulation.advanceBy(Duration.ofSeconds(3));
+        assertEquals("no more pulls after the failure", pulledAtFailure, pulled.get());
+
+        engine.shutdownThreadsNow();
+        assertNotNull("failure is kept for the check results", engine.customEventSourceFailure());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failingSourceAtStartIsThrown() {
+        EventSchedulerEngine engine = new EventSchedulerEngine(EventLoggerStdOut.INSTANCE);
+        try {
+            engine.startCustomEventScheduler(new Iterator<CustomEvent>() {
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public CustomEvent next() {
+                    throw new IllegalStateException("cannot read schedule");
+                }
+            }, mock(EventBroadcaster.class));
+        } finally {
+            engine.shutdownThreadsNow();
+        }
+    }
+}
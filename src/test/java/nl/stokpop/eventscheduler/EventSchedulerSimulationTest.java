@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.EventAdapter;
+import nl.stokpop.eventscheduler.api.EventFactory;
+import nl.stokpop.eventscheduler.api.EventLogger;
+import nl.stokpop.eventscheduler.api.config.EventConfig;
+import nl.stokpop.eventscheduler.api.config.EventContext;
+import nl.stokpop.eventscheduler.api.config.EventSchedulerConfig;
+import nl.stokpop.eventscheduler.api.config.TestConfig;
+import nl.stokpop.eventscheduler.api.message.EventMessage;
+import nl.stokpop.eventscheduler.api.message.EventMessageBus;
+import nl.stokpop.eventscheduler.event.EventFactoryProvider;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+
+/**
+ * Steps through a session in simulated time, without threads or sleeps.
+ */
+public class EventSchedulerSimulationTest {
+
+    private static final String SCHEDULE =
+        "PT10S|restart\n" +
+        "PT10S|scale-down\n" +
+        "PT65S|heapdump";
+
+    @Test
+    public void stepThroughSession() {
+        List<String> timeline = runSession(42);
+
+        assertEquals(Arrays.asList(
+            "PT0S go beforeTest",
+            "PT0S wait beforeTest",
+            "PT5S go startTest",
+            "PT5S wait startTest",
+            "PT5S go keepAlive",
+            "PT5S wait keepAlive"),
+            timeline.subList(0, 6));
+
+        assertEquals(3, timeline.stream().filter(line -> line.startsWith("PT15S go custom")).count()
+            + timeline.stream().filter(line -> line.startsWith("PT1M10S go custom")).count());
+        assertTrue(timeline.contains("PT35S go keepAlive"));
+        assertTrue(timeline.contains("PT1M5S go keepAlive"));
+        assertFalse("no keep-alive after stop", timeline.contains("PT1M35S go keepAlive"));
+        assertEquals("PT1M20S wait afterTest", timeline.get(timeline.size() - 1));
+    }
+
+    @Test
+    public void sameSeedReplaysSameRun() {
+        assertEquals(runSession(7), runSession(7));
+    }
+
+    private List<String> runSession(long seed) {
+        SimulationExecutor simulation = new SimulationExecutor(seed);
+        List<String> timeline = new ArrayList<>();
+        EventLogger logger = EventLoggerStdOut.INSTANCE;
+
+        EventFactory<EventContext> eventFactory = (context, messageBus, eventLogger) -> new RecordingEvent(context, messageBus, eventLogger, simulation, timeline);
+        EventFactoryProvider provider = Mockito.mock(EventFactoryProvider.class);
+        Mockito.when(provider.factoryByClassName(any())).thenReturn(Optional.of(eventFactory));
+
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .testConfig(TestConfig.builder().build())
+            .keepAliveIntervalInSeconds(30)
+            .eventConfig(EventConfig.builder().name("go").build())
+            .eventConfig(EventConfig.builder().name("wait").isReadyForStartParticipant(true).build())
+            .build();
+
+        EventMessageBus messageBus = new EventMessageBusSimple();
+        EventScheduler scheduler = new EventSchedulerBuilderInternal()
+            .setEventSchedulerContext(config.toContext(logger))
+            .setCustomEvents(SCHEDULE)
+            .setLogger(logger)
+            .setEventFactoryProvider(provider)
+            .setEventMessageBus(messageBus)
+            .setEventBroadcasterFactory((events, broadcastLogger) -> new EventBroadcasterAsync(events, broadcastLogger, simulation.newExecutor()))
+            .setEventSchedulerEngine(new EventSchedulerEngine(logger, new SchedulerTime(simulation, 1.0), simulation.executorFactory()))
+            .build();
+
+        scheduler.startSession();
+        simulation.advanceBy(Duration.ofSeconds(5));
+        assertTrue("startTest waits for the Go! message", timeline.stream().noneMatch(line -> line.endsWith("startTest")));
+
+        messageBus.send(EventMessage.builder().pluginName("wait").message("Go!").build());
+        simulation.advanceBy(Duration.ofSeconds(75));
+        scheduler.stopSession();
+        simulation.advanceBy(Duration.ofSeconds(60));
+
+        assertEquals("all tasks are gone after stop", 0, simulation.pendingTaskCount());
+        return timeline;
+    }
+
+    private static class RecordingEvent extends EventAdapter<EventContext> {
+        private final SimulationExecutor simulation;
+        private final List<String> timeline;
+
+        RecordingEvent(EventContext context, EventMessageBus messageBus, EventLogger logger, SimulationExecutor simulation, List<String> timeline) {
+            super(context, messageBus, logger);
+            this.simulation = simulation;
+            this.timeline = timeline;
+        }
+
+        private void record(String call) {
+            timeline.add(simulation.now() + " " + eventContext.getName() + " " + call);
+        }
+
+        @Override
+        public void beforeTest() {
+            record("beforeTest");
+        }
+
+        @Override
+        public void startTest() {
+            record("startTest");
+        }
+
+        @Override
+        public void afterTest() {
+            record("afterTest");
+        }
+
+        @Override
+        public void keepAlive() {
+            record("keepAlive");
+        }
+
+        @Override
+        public void customEvent(CustomEvent customEvent) {
+            record("custom " + customEvent.getName());
+        }
+    }
+}
@@ -19,6 +19,7 @@ import nl.stokpop.eventscheduler.api.*;
 import nl.stokpop.eventscheduler.api.config.*;
 import nl.stokpop.eventscheduler.api.message.EventMessage;
 import nl.stokpop.eventscheduler.api.message.EventMessageBus;
+import nl.stokpop.eventscheduler.api.message.SchedulerSignal;
 import nl.stokpop.eventscheduler.event.EventFactoryProvider;
 import nl.stokpop.eventscheduler.exception.EventCheckFailureException;
 import nl.stokpop.eventscheduler.exception.handler.KillSwitchException;
@@ -26,9 +27,16 @@ import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -368,10 +376,11 @@ public class EventSchedulerTest
         scheduler.abortSession();
 
         // should be called only one time, also for multiple starts in a row
-        Mockito.verify(eventSchedulerEngine, times(1)).startCustomEventScheduler(any(), any());
+        Mockito.verify(eventSchedulerEngine, times(1)).startCustomEventScheduler(any(Iterator.class), any());
 
         // should be called once in stop, not also in abort
-        Mockito.verify(eventSchedulerEngine, times(1)).shutdownThreadsNow();
+        Mockito.verify(eventSchedulerEngine, times(1)).stopTimeline(any());
+        Mockito.verify(eventSchedulerEngine, never()).shutdownThreadsNow();
 
     }
 
@@ -394,7 +403,8 @@ public class EventSchedulerTest
     }
 
     @Test
-    public void testKillSwitch() throws InterruptedException {
+    public void testKillSwitch() {
+        SimulationExecutor simulation = new SimulationExecutor(13);
 
         EventLogger testLogger = EventLoggerStdOut.INSTANCE_DEBUG;
 
@@ -448,17 +458,167 @@ public class EventSchedulerTest
             .setEventMessageBus(eventMessageBus)
             .setLogger(testLogger)
             .setEventFactoryProvider(provider)
+            .setEventSchedulerEngine(new EventSchedulerEngine(testLogger, new SchedulerTime(simulation, 1.0), simulation.executorFactory()))
+            .setEventBroadcasterFactory((events, logger) -> new EventBroadcasterAsync(events, logger, simulation.newExecutor()))
             .build();
 
         scheduler.addKillSwitch(schedulerExceptionHandler);
 
         scheduler.startSession();
 
-        // expect KillSwitchException from keep-alive call, and callback
-        Thread.sleep(10);
+        // expect KillSwitchException from the first keep-alive call, and callback
+        simulation.advanceBy(Duration.ZERO);
 
         assertFalse(checkCallbacks.abortCalled);
         assertTrue(checkCallbacks.killCalled);
 
     }
+
+    @Test
+    public void killSignalViaMessageBusIsHandledRightAway() throws InterruptedException {
+        EventLogger testLogger = EventLoggerStdOut.INSTANCE;
+
+        EventConfig eventConfig = EventConfig.builder()
+            .name("watcher")
+            .testConfig(TestConfig.builder().build())
+            .build();
+
+        EventMessageBusSimple eventMessageBus = new EventMessageBusSimple();
+        Event watcher = new EventAdapter<EventContext>(eventConfig.toContext(), eventMessageBus, testLogger) {};
+
+        EventFactoryProvider provider = Mockito.mock(EventFactoryProvider.class);
+        @SuppressWarnings("unchecked")
+        EventFactory<EventContext> eventFactory = Mockito.mock(EventFactory.class);
+        Mockito.when(eventFactory.create(any(), any(), any())).thenReturn(watcher);
+        Mockito.when(provider.factoryByClassName(any())).thenReturn(Optional.of(eventFactory));
+
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .keepAliveIntervalInSeconds(30)
+            .eventConfig(eventConfig)
+            .build();
+
+        CountDownLatch killed = new CountDownLatch(1);
+        AtomicLong killedAtNanos = new AtomicLong();
+        AtomicReference<Thread> killedOnThread = new AtomicReference<>();
+        StringBuilder killReason = new StringBuilder();
+        SchedulerExceptionHandler handler = new SchedulerExceptionHandler() {
+            @Override
+            public void kill(String message) {
+                killedAtNanos.set(System.nanoTime());
+                killedOnThread.set(Thread.currentThread());
+                killReason.append(message);
+                killed.countDown();
+            }
+
+            @Override
+            public void abort(String message) {
+                fail("abort not expected");
+            }
+        };
+
+        EventScheduler scheduler = new EventSchedulerBuilderInternal()
+            .setEventSchedulerContext(config.toContext(testLogger))
+            .setEventMessageBus(eventMessageBus)
+            .setSchedulerExceptionHandler(handler)
+            .setLogger(testLogger)
+            .setEventFactoryProvider(provider)
+            .build();
+
+        scheduler.startSession();
+
+        AtomicLong sentAtNanos = new AtomicLong();
+        Thread sender = new Thread(() -> {
+            sentAtNanos.set(System.nanoTime());
+            eventMessageBus.send(SchedulerSignal.kill("watcher", "SUT is melting"));
+        });
+        sender.start();
+
+        assertTrue("kill should be handled well before the next keep-alive", killed.await(5, TimeUnit.SECONDS));
+        // generous bound for a loaded machine, the next keep-alive is 30 seconds away
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(killedAtNanos.get() - sentAtNanos.get());
+        assertTrue("kill signal latency too high: " + latencyMillis + " ms", latencyMillis < 1000);
+        assertNotSame("kill should be handled on its own thread", sender, killedOnThread.get());
+        assertTrue(killedOnThread.get().getName(), killedOnThread.get().getName().startsWith("Event-Signal-Thread-"));
+        assertEquals("watcher: SUT is melting", killReason.toString());
+
+        scheduler.abortSession();
+    }
+
+    @Test
+    public void signalHandlerThatAbortsFromEventThreadIsNotInterrupted() throws InterruptedException {
+        EventLogger testLogger = EventLoggerStdOut.INSTANCE;
+
+        EventConfig eventConfig = EventConfig.builder()
+            .name("watcher")
+            .testConfig(TestConfig.builder().build())
+            .build();
+
+        EventMessageBusSimple eventMessageBus = new EventMessageBusSimple();
+        CountDownLatch sent = new CountDownLatch(1);
+        AtomicBoolean abortTestDone = new AtomicBoolean(false);
+        Event watcher = new EventAdapter<EventContext>(eventConfig.toContext(), eventMessageBus, testLogger) {
+            @Override
+            public void keepAlive() {
+                if (sent.getCount() > 0) {
+                    sent.countDown();
+                    // sent from the keep-alive call on a broadcaster thread
+                    eventMessageBus.send(SchedulerSignal.abort("watcher", "SUT is melting"));
+                }
+            }
+
+            @Override
+            public void abortTest() {
+                try {
+                    Thread.sleep(200);
+                    abortTestDone.set(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+
+        EventFactoryProvider provider = Mockito.mock(EventFactoryProvider.class);
+        @SuppressWarnings("unchecked")
+        EventFactory<EventContext> eventFactory = Mockito.mock(EventFactory.class);
+        Mockito.when(eventFactory.create(any(), any(), any())).thenReturn(watcher);
+        Mockito.when(provider.factoryByClassName(any())).thenReturn(Optional.of(eventFactory));
+
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .keepAliveIntervalInSeconds(30)
+            .eventConfig(eventConfig)
+            .build();
+
+        AtomicReference<EventScheduler> scheduler = new AtomicReference<>();
+        CountDownLatch handled = new CountDownLatch(1);
+        AtomicBoolean abortTestDoneInHandler = new AtomicBoolean(false);
+        SchedulerExceptionHandler handler = new SchedulerExceptionHandler() {
+            @Override
+            public void kill(String message) {
+                fail("kill not expected");
+            }
+
+            @Override
+            public void abort(String message) {
+                // an interrupted abortSession stops waiting for the abortTest calls
+                scheduler.get().abortSession();
+                abortTestDoneInHandler.set(abortTestDone.get());
+                handled.countDown();
+            }
+        };
+
+        scheduler.set(new EventSchedulerBuilderInternal()
+            .setEventSchedulerContext(config.toContext(testLogger))
+            .setEventMessageBus(eventMessageBus)
+            .setSchedulerExceptionHandler(handler)
+            .setLogger(testLogger)
+            .setEventFactoryProvider(provider)
+            .build());
+
+        scheduler.get().startSession();
+
+        assertTrue("keep-alive should send the abort signal", sent.await(5, TimeUnit.SECONDS));
+        assertTrue("abort handler should finish", handled.await(5, TimeUnit.SECONDS));
+        assertTrue("abort handler should not be interrupted by its own abort", abortTestDoneInHandler.get());
+        assertTrue(scheduler.get().isSessionStopped());
+    }
 }
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.EventAdapter;
+import nl.stokpop.eventscheduler.api.TraceRecordType;
+import nl.stokpop.eventscheduler.api.config.EventConfig;
+import nl.stokpop.eventscheduler.api.config.EventContext;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import nl.stokpop.eventscheduler.trace.BinaryTraceRecorder;
+import nl.stokpop.eventscheduler.trace.TraceRecord;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventTracingTest {
+
+    @Test
+    public void batchOfCustomEventsIsRecordedPerName() {
+        BinaryTraceRecorder recorder = BinaryTraceRecorder.inMemory(16);
+        EventTracing tracing = new EventTracing(new EventAdapter<EventContext>(EventConfig.builder().name("traced").build().toContext(), null, EventLoggerStdOut.INSTANCE) {}, recorder);
+
+        tracing.customEvents(Arrays.asList(CustomEvent.createFromLine("PT1S|scale-down"), CustomEvent.createFromLine("PT1S|change-config")));
+
+        List<TraceRecord> records = recorder.createReader().records();
+        assertEquals(Arrays.asList("EVENT_CALL_START scale-down", "EVENT_CALL_START change-config", "EVENT_CALL_END scale-down", "EVENT_CALL_END change-config"),
+            records.stream().map(r -> r.getType() + " " + r.getDetail()).collect(Collectors.toList()));
+        assertEquals("traced", records.get(0).getEventName());
+    }
+}
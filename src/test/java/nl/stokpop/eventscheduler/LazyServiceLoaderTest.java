@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.EventFactory;
+import nl.stokpop.eventscheduler.api.EventGeneratorFactory;
+import nl.stokpop.eventscheduler.event.EventFactoryDefault;
+import nl.stokpop.eventscheduler.event.EventFactoryProvider;
+import nl.stokpop.eventscheduler.generator.EventGeneratorFactoryDefault;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LazyServiceLoaderTest {
+
+    private static final String FACTORY_CLASS_NAME = EventFactoryDefault.class.getName();
+
+    @Test
+    public void findAndCache() {
+        LazyServiceLoader<EventFactory> loader = LazyServiceLoader.of(EventFactory.class, null);
+
+        Optional<EventFactory> factory = loader.find(FACTORY_CLASS_NAME);
+        assertTrue(factory.isPresent());
+        assertTrue(factory.get() instanceof EventFactoryDefault);
+
+        assertSame("same class loader should give cached loader", loader, LazyServiceLoader.of(EventFactory.class, null));
+        assertNotSame("each find should create a new instance", factory.get(), loader.find(FACTORY_CLASS_NAME).get());
+
+        assertFalse(loader.find("nl.stokpop.NotExisting").isPresent());
+        assertFalse(loader.find(null).isPresent());
+    }
+
+    @Test
+    public void factoryPerProvider() {
+        EventFactoryProvider provider = EventFactoryProvider.createInstanceFromClasspath();
+        EventFactory factory = provider.factoryByClassName(FACTORY_CLASS_NAME).get();
+
+        assertSame(factory, provider.factoryByClassName(FACTORY_CLASS_NAME).get());
+        assertNotSame("a new build should get its own factory",
+            factory, EventFactoryProvider.createInstanceFromClasspath().factoryByClassName(FACTORY_CLASS_NAME).get());
+    }
+
+    @Test
+    public void cachePerClassLoader() {
+        ClassLoader classLoader = new URLClassLoader(new URL[]{}, Thread.currentThread().getContextClassLoader());
+
+        LazyServiceLoader<EventGeneratorFactory> loader = LazyServiceLoader.of(EventGeneratorFactory.class, null);
+        LazyServiceLoader<EventGeneratorFactory> otherLoader = LazyServiceLoader.of(EventGeneratorFactory.class, classLoader);
+
+        assertNotSame(loader, otherLoader);
+        assertTrue(otherLoader.providerNames().contains(EventGeneratorFactoryDefault.class.getName()));
+    }
+
+    @Test
+    public void discoverFromServiceFilesDoesNotInstantiate() {
+        Set<String> providers =
+            LazyServiceLoader.discoverFromServiceFiles(EventFactory.class, Thread.currentThread().getContextClassLoader());
+
+        assertTrue(providers.contains(FACTORY_CLASS_NAME));
+    }
+
+    @Test
+    public void cacheDoesNotKeepClassLoader() throws Exception {
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{}, Thread.currentThread().getContextClassLoader());
+        LazyServiceLoader<EventFactory> loader = LazyServiceLoader.of(EventFactory.class, classLoader);
+        assertTrue(loader.find(FACTORY_CLASS_NAME).isPresent());
+
+        WeakReference<ClassLoader> reference = new WeakReference<>(classLoader);
+        classLoader.close();
+        classLoader = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("cached loader should not keep its class loader alive", reference.get());
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.config.EventConfig;
+import nl.stokpop.eventscheduler.api.config.EventSchedulerConfig;
+import nl.stokpop.eventscheduler.api.config.TestConfig;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+
+/**
+ * Small scheduler that is compiled to a native executable in {@link NativeImageTest}.
+ */
+public class NativeImageSample {
+
+    public static final String DONE_MESSAGE = "native image sample done";
+
+    public static void main(String[] args) {
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .testConfig(TestConfig.builder().testRunId("native-image").build())
+            .scheduleScript("PT0S|sample-event(native sample)|setting=1")
+            .eventConfig(EventConfig.builder()
+                .name("sample")
+                .eventFactory("nl.stokpop.eventscheduler.event.EventFactoryDefault")
+                .build())
+            .build();
+
+        EventScheduler scheduler = EventSchedulerBuilder.of(config, EventLoggerStdOut.INSTANCE);
+        scheduler.startSession();
+        scheduler.stopSession();
+        scheduler.checkResults();
+
+        System.out.println(DONE_MESSAGE);
+        // do not wait for idle broadcaster threads to time out
+        System.exit(0);
+    }
+}
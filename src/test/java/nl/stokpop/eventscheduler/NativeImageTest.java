@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Builds and runs a native executable of {@link NativeImageSample}.
+ *
+ * Takes minutes and needs GraalVM with native-image, so it only runs with
+ * -Deventscheduler.nativeImageTest=true, e.g. via: ./gradlew nativeImageTest
+ */
+public class NativeImageTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void buildAndRunNativeSample() throws Exception {
+        Assume.assumeTrue("native image test not enabled", Boolean.getBoolean("eventscheduler.nativeImageTest"));
+        Path nativeImage = findNativeImage();
+        Assume.assumeTrue("native-image not found", nativeImage != null);
+
+        Path executable = temporaryFolder.getRoot().toPath().resolve("native-sample");
+
+        List<String> buildOutput = run(Arrays.asList(nativeImage.toString(),
+            "--no-fallback",
+            "-cp", System.getProperty("java.class.path"),
+            NativeImageSample.class.getName(),
+            executable.toString()), 15);
+        assertTrue(String.join("\n", buildOutput), Files.isExecutable(executable));
+
+        List<String> output = run(Arrays.asList(executable.toString()), 1);
+        assertTrue(String.join("\n", output), output.contains(NativeImageSample.DONE_MESSAGE));
+    }
+
+    private static Path findNativeImage() {
+        String executable = System.getProperty("os.name").toLowerCase().contains("win") ? "native-image.cmd" : "native-image";
+        String graalHome = System.getenv("GRAALVM_HOME");
+        if (graalHome != null && Files.isExecutable(Paths.get(graalHome, "bin", executable))) {
+            return Paths.get(graalHome, "bin", executable);
+        }
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        return Arrays.stream(path.split(File.pathSeparator))
+            .map(dir -> Paths.get(dir, executable))
+            .filter(Files::isExecutable)
+            .findFirst()
+            .orElse(null);
+    }
+
+    private static List<String> run(List<String> command, int timeoutMinutes) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        List<String> output;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            output = reader.lines().collect(Collectors.toList());
+        }
+        assertTrue("timeout for " + command, process.waitFor(timeoutMinutes, TimeUnit.MINUTES));
+        assertEquals(String.join("\n", output), 0, process.exitValue());
+        return output;
+    }
+}
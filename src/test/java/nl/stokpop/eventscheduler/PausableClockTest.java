@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class PausableClockTest {
+
+    @Test
+    public void pausedTimeIsNotCounted() {
+        AtomicLong nanos = new AtomicLong(1_000);
+        PausableClock clock = new PausableClock(nanos::get);
+        clock.start();
+
+        nanos.addAndGet(100);
+        assertEquals(100, clock.elapsedNanos());
+
+        assertTrue(clock.pause());
+        assertFalse(clock.pause());
+        nanos.addAndGet(500);
+        assertTrue(clock.isPaused());
+        assertEquals("clock stands still while paused", 100, clock.elapsedNanos());
+
+        assertTrue(clock.resume());
+        assertFalse(clock.resume());
+        nanos.addAndGet(50);
+        assertEquals(150, clock.elapsedNanos());
+    }
+}
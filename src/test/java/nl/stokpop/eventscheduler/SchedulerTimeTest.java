@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SchedulerTimeTest {
+
+    @Test
+    public void speedFactorScalesTickerTime() {
+        AtomicLong nanos = new AtomicLong(5_000);
+        SchedulerTime time = new SchedulerTime(nanos::get, 60);
+
+        nanos.addAndGet(1_000);
+        assertEquals(5_000 + 60_000, time.nanoTime());
+        assertEquals(1_000, time.toTickerNanos(60_000));
+        assertFalse(time.isVirtual());
+    }
+
+    @Test
+    public void virtualTimeOnlyMovesWhenAdvanced() {
+        AtomicLong nanos = new AtomicLong(5_000);
+        SchedulerTime time = new SchedulerTime(nanos::get, Double.POSITIVE_INFINITY);
+
+        nanos.addAndGet(1_000);
+        assertTrue(time.isVirtual());
+        assertEquals(5_000, time.nanoTime());
+        assertEquals(0, time.toTickerNanos(60_000));
+
+        time.advance(3_000);
+        assertEquals(8_000, time.nanoTime());
+    }
+
+    @Test(expected = EventSchedulerRuntimeException.class)
+    public void speedFactorShouldBePositive() {
+        new SchedulerTime(System::nanoTime, 0);
+    }
+}
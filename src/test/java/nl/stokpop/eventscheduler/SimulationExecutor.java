@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler;
+
+import nl.stokpop.eventscheduler.api.Ticker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic single-threaded stand-in for the scheduler threads, for tests.
+ *
+ * Time only moves with {@link #advanceBy(Duration)}: the scheduled tasks that are due run in the
+ * calling thread in time order. Tasks that are due at the same instant run in an order that is
+ * decided by the seed, so a test can replay the exact same run. Tasks given to execute() run
+ * right away in the calling thread, so blocking broadcasts complete without extra threads.
+ *
+ * Use {@link #executorFactory()} for the EventSchedulerEngine and {@link #newExecutor()} for the
+ * EventBroadcasterAsync, and the simulation itself as Ticker.
+ */
+class SimulationExecutor implements Ticker {
+
+    private final Random random;
+    private final PriorityQueue<SimulatedTask<?>> queue = new PriorityQueue<>(
+        Comparator.comparingLong((SimulatedTask<?> t) -> t.timeNanos)
+            .thenComparingLong(t -> t.tieBreaker)
+            .thenComparingLong(t -> t.sequence));
+
+    private long nowNanos;
+    private long sequence;
+    private boolean running;
+    private Runnable beforeNextTask;
+
+    SimulationExecutor(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public long nanoTime() {
+        return nowNanos;
+    }
+
+    Duration now() {
+        return Duration.ofNanos(nowNanos);
+    }
+
+    SchedulerExecutorFactory executorFactory() {
+        return new SchedulerExecutorFactory() {
+            @Override
+            public ScheduledExecutorService createKeepAliveExecutor() {
+                return newExecutor();
+            }
+
+            @Override
+            public ScheduledExecutorService createCustomEventExecutor() {
+                return newExecutor();
+            }
+        };
+    }
+
+    /**
+     * @return a new executor view on this simulation, shutting it down only affects its own tasks
+     */
+    ScheduledExecutorService newExecutor() {
+        return new SimulatedExecutorService();
+    }
+
+    /**
+     * Move time forward and run all tasks that are due, including tasks that are scheduled
+     * by the tasks themselves within the time window.
+     * @return the number of tasks that ran
+     */
+    int advanceBy(Duration duration) {
+        if (running) {
+            throw new IllegalStateException("advanceBy cannot be called from a simulated task");
+        }
+        running = true;
+        try {
+            long endNanos = nowNanos + duration.toNanos();
+            int count = 0;
+            while (!queue.isEmpty() && queue.peek().timeNanos <= endNanos) {
+                SimulatedTask<?> task = queue.poll();
+                nowNanos = Math.max(nowNanos, task.timeNanos);
+                task.run();
+                count++;
+            }
+            nowNanos = endNanos;
+            return count;
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Run the hook when the next scheduled task has started, before the task itself runs.
+     * The started task cannot be cancelled anymore, like a task that is picked up by a pool thread.
+     */
+    void beforeNextTask(Runnable hook) {
+        this.beforeNextTask = hook;
+    }
+
+    /**
+     * @return number of scheduled tasks that did not run yet
+     */
+    int pendingTaskCount() {
+        return queue.size();
+    }
+
+    private <V> SimulatedTask<V> enqueue(SimulatedExecutorService owner, Callable<V> callable, long delayNanos, long periodNanos) {
+        SimulatedTask<V> task = new SimulatedTask<>(owner, callable, nowNanos + Math.max(0, delayNanos), periodNanos, random.nextLong(), sequence++);
+        queue.add(task);
+        return task;
+    }
+
+    private final class SimulatedTask<V> implements ScheduledFuture<V>, Runnable {
+        private final SimulatedExecutorService owner;
+        private final Callable<V> callable;
+        private final long periodNanos;
+        private final long sequence;
+        private long timeNanos;
+        private long tieBreaker;
+        private boolean cancelled;
+        private boolean started;
+        private boolean done;
+        private V result;
+        private Throwable failure;
+
+        private SimulatedTask(SimulatedExecutorService owner, Callable<V> callable, long timeNanos, long periodNanos, long tieBreaker, long sequence) {
+            this.owner = owner;
+            this.callable = callable;
+            this.timeNanos = timeNanos;
+            this.periodNanos = periodNanos;
+            this.tieBreaker = tieBreaker;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            Runnable hook = beforeNextTask;
+            if (hook != null) {
+                beforeNextTask = null;
+                hook.run();
+            }
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                // like ScheduledThreadPoolExecutor: a failing periodic task is not repeated
+                failure = t;
+                done = true;
+                return;
+            }
+            if (periodNanos > 0 && !cancelled && !owner.shutdown) {
+                started = false;
+                timeNanos += periodNanos;
+                tieBreaker = random.nextLong();
+                queue.add(this);
+            }
+            else {
+                done = true;
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(timeNanos - nowNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // a started one-shot task runs to completion, a started periodic task is not repeated
+            if (done || cancelled || (started && periodNanos == 0)) {
+                return false;
+            }
+            cancelled = true;
+            queue.remove(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        @Override
+        public V get() throws ExecutionException {
+            if (!isDone()) {
+                throw new IllegalStateException("simulated task is not done, advance the simulation first");
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws ExecutionException {
+            return get();
+        }
+    }
+
+    private final class SimulatedExecutorService extends AbstractExecutorService implements ScheduledExecutorService {
+
+        private boolean shutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            checkNotShutdown();
+            command.run();
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            checkNotShutdown();
+            return enqueue(this, Executors.callable(command), unit.toNanos(delay), 0);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            checkNotShutdown();
+            return enqueue(this, callable, unit.toNanos(delay), 0);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            checkNotShutdown();
+            if (period <= 0) {
+                throw new IllegalArgumentException("period should be above 0");
+            }
+            return enqueue(this, Executors.callable(command), unit.toNanos(initialDelay), unit.toNanos(period));
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            // tasks take no simulated time, so fixed delay equals fixed rate
+            return scheduleAtFixedRate(command, initialDelay, delay, unit);
+        }
+
+        private void checkNotShutdown() {
+            if (shutdown) {
+                throw new RejectedExecutionException("simulated executor is shut down");
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            List<Runnable> notRun = new ArrayList<>();
+            queue.removeIf(task -> {
+                if (task.owner == this) {
+                    task.cancelled = true;
+                    notRun.add(task);
+                    return true;
+                }
+                return false;
+            });
+            return notRun;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown && queue.stream().noneMatch(task -> task.owner == this);
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return isTerminated();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static nl.stokpop.eventscheduler.EventSchedulerUtils.hasValue;
+import static nl.stokpop.eventscheduler.api.CustomEvent.ScheduleEventWrongFormat;
+import static org.junit.Assert.*;
+
+public class CustomEventLineParserTest {
+
+    private static final List<String> LINES = Arrays.asList(
+        null, "", "   ", "PT1S", "PT1S|", "PT1S||", "||", "|", "|name", " |name", "PT1S|name|", "PT1S|name||",
+        "PT1S|name| |", "PT1S|name|x|", "PT1S|name|x|y", "PT1S|name|x||y", "  PT13S|eventname( )|settings  =  0; foo= bar\n",
+        "PT1M|change-backend-delay(set to extreme delay: 100%)|delay=PT10M", "PT1M|name(description|x", "PT1M|name(no close",
+        "PT1M|a)b(c", "PT1M|(only description)", "PT1M|na#me(de$scr😀iption)", "pt1h2m3.5s|lower", "P2DT3H|days",
+        "P1D|day", "PT0S|zero", "PT-1S|negative", "-PT1S|negative", "+PT1S|plus", "PT1.S|fraction", "PT.5S|fraction",
+        "PT1.1234567891S|fraction", "PT1,5S|comma", "PT|time", "P|empty", "P1DT|time", "PT1M1H|order", "PT1S1S|twice",
+        "PT1 S|space", "PT9223372036854775807S|max", "PT9223372036854775808S|overflow", "P106751991167301D|overflow",
+        "PT1X|name", "1S|name", "PT1M;every=PT10S;count=3|repeat", "PT1M ; every=PT10S |repeat", "PT1M;|repeat",
+        "PT1M;count=3|repeat", "PTX;every=PT1S|repeat", "PT1M;every=PT1S|(bad|x");
+
+    private static final String WRONG_FORMAT = ScheduleEventWrongFormat.class.getName() + ": ";
+
+    /**
+     * The lines that deliberately give another outcome than the baseline parser, with the start of the new outcome.
+     * <ul>
+     *     <li>a missing ')', or a ')' before the '(', gives a ScheduleEventWrongFormat (caused by the EventSchedulerRuntimeException
+     *     of the baseline) instead of an EventSchedulerRuntimeException or StringIndexOutOfBoundsException</li>
+     *     <li>a repeat spec after ';' in the duration part is parsed (recurring custom events), instead of failing as duration</li>
+     * </ul>
+     */
+    private static final Map<String, String> DELIBERATE_DIFFERENCES = new HashMap<>();
+
+    static {
+        DELIBERATE_DIFFERENCES.put("PT1M|name(description|x", WRONG_FORMAT + "closing parentheses ')' is missing in 'name(description' from line");
+        DELIBERATE_DIFFERENCES.put("PT1M|name(no close", WRONG_FORMAT + "closing parentheses ')' is missing in 'name(no close' from line");
+        DELIBERATE_DIFFERENCES.put("PT1M|a)b(c", WRONG_FORMAT + "closing parentheses ')' is missing in 'a)b(c' from line");
+        DELIBERATE_DIFFERENCES.put("PT1M;every=PT1S|(bad|x", WRONG_FORMAT + "closing parentheses ')' is missing in '(bad' from line");
+        DELIBERATE_DIFFERENCES.put("PT1M;every=PT10S;count=3|repeat", "ScheduleEvent repeat(repeat-PT1M) [fire-at=PT1M repeat=every=PT10S;count=3]");
+        DELIBERATE_DIFFERENCES.put("PT1M ; every=PT10S |repeat", "ScheduleEvent repeat(repeat-PT1M) [fire-at=PT1M repeat=every=PT10S]");
+        DELIBERATE_DIFFERENCES.put("PT1M;|repeat", WRONG_FORMAT + "repeat spec should be key=value");
+        DELIBERATE_DIFFERENCES.put("PT1M;count=3|repeat", WRONG_FORMAT + "repeat spec needs an every=interval");
+        DELIBERATE_DIFFERENCES.put("PTX;every=PT1S|repeat", WRONG_FORMAT + "Failed to parse duration: [PTX] from line");
+    }
+
+    @Test
+    public void sameResultsAndErrorsAsSplitParser() {
+        for (String line : LINES) {
+            String baseline = outcome(() -> baselineCreateFromLine(line));
+            String parsed = outcome(() -> CustomEventLineParser.parse(line));
+            String difference = DELIBERATE_DIFFERENCES.get(line);
+            if (difference == null) {
+                assertEquals("line: [" + line + "]", baseline, parsed);
+            }
+            else {
+                assertNotEquals("line: [" + line + "] is listed as difference", baseline, parsed);
+                assertTrue("line: [" + line + "] gives: " + parsed, parsed.startsWith(difference));
+            }
+        }
+        assertTrue("all differences are checked", LINES.containsAll(DELIBERATE_DIFFERENCES.keySet()));
+    }
+
+    @Test
+    public void parseSimpleDuration() {
+        assertEquals(Duration.parse("P2DT3H4M5.006S"), CustomEventLineParser.parseSimpleDuration("P2DT3H4M5.006S", 0, 14));
+        assertEquals(Duration.ofMinutes(90), CustomEventLineParser.parseSimpleDuration("|PT90M|", 1, 6));
+        assertNull("signs are left to Duration.parse", CustomEventLineParser.parseSimpleDuration("PT-1S", 0, 5));
+    }
+
+    private static String outcome(Supplier<CustomEvent> parse) {
+        try {
+            CustomEvent event = parse.get();
+            return event + " name=" + event.getName() + " description=" + event.getDescription() + " settings=" + event.getSettings()
+                + " duration=" + event.getDuration() + " repeat=" + event.getRepeat();
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage()
+                + (e.getCause() == null ? "" : " caused by " + e.getCause().getClass().getName() + ": " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * CustomEvent.createFromLine and extractNameAndDescription from before the single pass parser, verbatim as reference.
+     */
+    private static CustomEvent baselineCreateFromLine(String line) {
+
+        if (line == null || line.trim().isEmpty()) {
+            throw new ScheduleEventWrongFormat("empty line: [" + line + "]");
+        }
+
+        if (!line.contains("|")) {
+            throw new ScheduleEventWrongFormat("line should contain at least a duration and event name, separated by '|': [" + line + "]");
+        }
+
+        List<String> elements = Arrays.stream(line.split("\\|"))
+                .map(String::trim)
+                .collect(Collectors.toList());
+
+        if (!(elements.size() == 2 || elements.size() == 3)) {
+            throw new ScheduleEventWrongFormat("Wrong number of elements in line, expected 'duration|name(description)|setting' " +
+                    "where (description) and settings are optional: [" + line + "]");
+        }
+        
+        Duration duration;
+        String textDuration = elements.get(0);
+        String nameWithDescription = elements.get(1).trim();
+
+        String[] nameAndDescriptionPair = baselineExtractNameAndDescription(nameWithDescription);
+        String name = nameAndDescriptionPair[0];
+        String description = nameAndDescriptionPair[1];
+
+        try {
+            duration = Duration.parse(textDuration);
+        } catch (Exception e) {
+            throw new ScheduleEventWrongFormat("Failed to parse duration: [" + textDuration + "] from line: [" + line + "]", e);
+        }
+        
+        if (elements.size() == 2) {
+            return new CustomEvent(duration, name, description);
+        }
+        else {
+            String settings = elements.get(2);
+            return new CustomEvent(duration, name, description, settings);
+        }
+    }
+
+    private static final Pattern nonAlphaNumsPattern = Pattern.compile("[^A-Za-z0-9\\- %+=:]");
+
+     static String[] baselineExtractNameAndDescription(String nameWithDescription) {
+        if (!hasValue(nameWithDescription)) return new String[] { "" , "" };
+        if (!nameWithDescription.contains("(")) {
+            return new String[] { nameWithDescription, "" };
+        }
+        int indexOpen = nameWithDescription.indexOf("(");
+        int indexClose = nameWithDescription.lastIndexOf(")");
+        if (indexClose == -1) { throw new EventSchedulerRuntimeException("closing parentheses ')' is missing in '" + nameWithDescription + "'"); }
+
+        String name = nameWithDescription.substring(0, indexOpen).trim();
+        String description = nameWithDescription.substring(indexOpen + 1, indexClose).trim();
+
+        String sanitizedName = nonAlphaNumsPattern.matcher(name).replaceAll("_");
+        String sanitizedDescription = nonAlphaNumsPattern.matcher(description).replaceAll("_");
+        
+        return new String[] { sanitizedName, sanitizedDescription };
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class CustomEventPayloadTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void viewsShareBytesWithoutCopy() {
+        byte[] bytes = { 1, 2, 3 };
+        CustomEventPayload payload = CustomEventPayload.of(bytes);
+
+        ByteBuffer first = payload.asByteBuffer();
+        ByteBuffer second = payload.asByteBuffer();
+        assertEquals(1, first.get());
+        assertEquals("each view has its own position", 0, second.position());
+
+        bytes[2] = 42;
+        assertEquals(42, second.get(2));
+        assertEquals(3, payload.size());
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void viewsAreReadOnly() {
+        CustomEventPayload.of(new byte[] { 1 }).asByteBuffer().put((byte) 2);
+    }
+
+    @Test
+    public void loadsFromBase64AndFiles() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, "stub mappings".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("stub mappings", text(CustomEventPayload.fromBase64("c3R1YiBtYXBwaW5ncw==")));
+        assertEquals("stub mappings", text(CustomEventPayload.fromFile(file)));
+        assertEquals("stub mappings", text(CustomEventPayload.map(file)));
+    }
+
+    @Test
+    public void payloadIsKeptByCopies() {
+        CustomEventPayload payload = CustomEventPayload.of(new byte[] { 1 });
+        CustomEvent event = CustomEvent.createFromLine("PT1M;every=PT1M|stubs").withPayload(payload);
+
+        assertTrue(event.hasPayload());
+        assertSame(payload, event.withDuration(Duration.ofMinutes(2)).getPayload());
+        assertFalse(CustomEvent.createFromLine("PT1M|stubs").hasPayload());
+        assertTrue(event.toString().contains("payload=1 bytes"));
+    }
+
+    private static String text(CustomEventPayload payload) {
+        ByteBuffer bytes = payload.asByteBuffer();
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.get(copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.api;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class CustomEventSettingsTest {
+
+    @Test
+    public void keyValues() {
+        CustomEventSettings settings = CustomEventSettings.parse("server=x; port = 1567;delay=PT2S;debug=TRUE;empty");
+
+        assertFalse(settings.isJson());
+        assertEquals(Arrays.asList("server", "port", "delay", "debug", "empty"), new ArrayList<>(settings.keys()));
+        assertEquals("x", settings.getString("server"));
+        assertEquals(1567, settings.getInt("port", 0));
+        assertEquals(Duration.ofSeconds(2), settings.getDuration("delay", null));
+        assertTrue(settings.getBoolean("debug", false));
+        assertEquals("", settings.getString("empty"));
+        assertEquals(42, settings.getInt("missing", 42));
+    }
+
+    @Test
+    public void jsonIsh() {
+        CustomEventSettings settings = CustomEventSettings.parse(
+            "{ 'replicas':1, \"ratio\": 0.5, name: 'demo', nested: { 'on': true, 'off': null }, 'hosts': ['a', \"b\"], 'text': 'a\\'b' }");
+
+        assertTrue(settings.isJson());
+        assertEquals(Long.valueOf(1), settings.getValue("replicas"));
+        assertEquals(1, settings.getInt("replicas", 0));
+        assertEquals(0.5, settings.getDouble("ratio", 0), 0.0);
+        assertEquals("demo", settings.getString("name"));
+        assertTrue(settings.getSettings("nested").getBoolean("on", false));
+        assertTrue(settings.getSettings("nested").has("off"));
+        assertNull(settings.getSettings("nested").getValue("off"));
+        assertEquals(Arrays.asList("a", "b"), settings.getList("hosts"));
+        assertEquals("a'b", settings.getString("text"));
+        assertSame(CustomEventSettings.EMPTY, settings.getSettings("missing"));
+    }
+
+    @Test
+    public void jsonIshWithoutCommas() {
+        CustomEventSettings settings = CustomEventSettings.parse("{ server:'myserver' replicas:2 tags: [ 'first' 'second' ] }");
+
+        assertEquals("myserver", settings.getString("server"));
+        assertEquals(2, settings.getInt("replicas", 0));
+        assertEquals(Arrays.asList("first", "second"), settings.getList("tags"));
+    }
+
+    @Test
+    public void otherFormatsGiveEmptySettings() {
+        assertTrue(CustomEventSettings.parse(null).isEmpty());
+        assertTrue(CustomEventSettings.parse("heapdump-now").isEmpty());
+        assertTrue(CustomEventSettings.parse("{}").isJson());
+    }
+
+    @Test(expected = CustomEvent.ScheduleEventWrongFormat.class)
+    public void brokenJson() {
+        CustomEventSettings.parse("{ 'replicas':1 ");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongType() {
+        CustomEventSettings.parse("port=abc").getInt("port", 0);
+    }
+
+    @Test
+    public void parseFailureIsCached() {
+        CustomEvent event = CustomEvent.createFromLine("PT1M;every=PT1M|scale-down|{ 'replicas':1 ");
+
+        Throwable firstFailure = parseFailure(event);
+        assertSame("not parsed again", firstFailure, parseFailure(event));
+        assertSame("recurrences share the parse failure", firstFailure, parseFailure(event.withDuration(Duration.ofMinutes(2))));
+    }
+
+    private static Throwable parseFailure(CustomEvent event) {
+        try {
+            event.getParsedSettings();
+            fail("expected ScheduleEventWrongFormat");
+            return null;
+        } catch (CustomEvent.ScheduleEventWrongFormat e) {
+            return e.getCause();
+        }
+    }
+
+    @Test
+    public void parsedOnceAndShared() throws Exception {
+        CustomEvent event = CustomEvent.createFromLine("PT1M;every=PT1M|scale-down|{ 'replicas':1 }");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<CustomEventSettings>> receivers = Collections.nCopies(16, event::getParsedSettings);
+            CustomEventSettings first = event.getParsedSettings();
+            for (Future<CustomEventSettings> settings : executor.invokeAll(receivers)) {
+                assertSame(first, settings.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSame("recurrences share the parsed settings", event.getParsedSettings(),
+            event.withDuration(Duration.ofMinutes(2)).getParsedSettings());
+    }
+}
@@ -18,6 +18,9 @@ package nl.stokpop.eventscheduler.api;
 import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.Optional;
+
 import static org.junit.Assert.*;
 
 public class CustomEventTest {
@@ -139,5 +142,40 @@ public class CustomEventTest {
         CustomEvent.extractNameAndDescription("my-name( x  ");
     }
 
+    @Test
+    public void createFromLineWithRepeat() {
+        CustomEvent event = CustomEvent.createFromLine("PT1M; every=PT10S; count=6; until=PT2M; jitter=PT1S|toggle-delay|delay=PT2S");
+
+        assertEquals(Duration.ofMinutes(1), event.getDuration());
+        assertEquals("toggle-delay", event.getName());
+        assertEquals("delay=PT2S", event.getSettings());
+        assertTrue(event.isRecurring());
+        assertEquals(new CustomEventRepeat(Duration.ofSeconds(10), 6, Duration.ofMinutes(2), Duration.ofSeconds(1)), event.getRepeat());
+        assertFalse(CustomEvent.createFromLine("PT1M|once").isRecurring());
+    }
+
+    @Test
+    public void repeatStopsAtCountOrUntil() {
+        CustomEventRepeat repeat = new CustomEventRepeat(Duration.ofSeconds(10), 3, Duration.ofSeconds(25), null);
+
+        assertEquals(Optional.of(Duration.ofSeconds(15)), repeat.fireAt(Duration.ofSeconds(5), 1));
+        assertEquals(Optional.of(Duration.ofSeconds(25)), repeat.fireAt(Duration.ofSeconds(5), 2));
+        assertFalse(repeat.fireAt(Duration.ofSeconds(5), 3).isPresent());
+        assertFalse(repeat.fireAt(Duration.ofSeconds(10), 2).isPresent());
+    }
+
+    @Test(expected = CustomEvent.ScheduleEventWrongFormat.class)
+    public void createFromLineRepeatWithoutInterval() {
+        CustomEvent.createFromLine("PT1M;count=3|name");
+    }
+
+    @Test(expected = CustomEvent.ScheduleEventWrongFormat.class)
+    public void createFromLineRepeatUnknownKey() {
+        CustomEvent.createFromLine("PT1M;every=PT1S;times=3|name");
+    }
 
-}
\ No newline at end of file
+    @Test(expected = CustomEvent.ScheduleEventWrongFormat.class)
+    public void createFromLineRepeatZeroInterval() {
+        CustomEvent.createFromLine("PT1M;every=PT0S|name");
+    }
+}
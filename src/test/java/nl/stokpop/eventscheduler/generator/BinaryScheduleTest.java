@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventPayload;
+import nl.stokpop.eventscheduler.api.EventGenerator;
+import nl.stokpop.eventscheduler.api.EventGeneratorFactory;
+import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryScheduleTest {
+
+    private static final String SCRIPT =
+        "PT10S;every=PT5S;count=3;jitter=PT1S|toggle(toggle delay)|delay=PT2S\n" +
+        "PT30S|heapdump\n" +
+        "PT30S|heapdump(second heapdump)\n" +
+        "PT1M;every=PT1M;until=PT1H|scale-down|{ 'replicas':1 }";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void writeAndMapRoundTrip() throws IOException {
+        List<CustomEvent> events = ScheduleScriptParser.parse(SCRIPT);
+        Path file = write(events);
+
+        BinaryScheduleReader reader = BinaryScheduleReader.open(file);
+
+        assertEquals(events.size(), reader.size());
+        assertEquals(Duration.ofSeconds(30).toNanos(), reader.fireAtNanos(1));
+        int index = 0;
+        for (CustomEvent event : reader) {
+            CustomEvent expected = events.get(index++);
+            assertEquals(expected.toString(), event.toString());
+            assertEquals(expected.getDescription(), event.getDescription());
+            assertEquals(expected.getSettings(), event.getSettings());
+            assertEquals(expected.getRepeat(), event.getRepeat());
+        }
+        assertEquals(events.size(), index);
+        assertNull(reader.get(1).getSettings());
+        assertSame("strings are shared", reader.get(1).getName(), reader.get(2).getName());
+    }
+
+    @Test
+    public void payloadsAreViewsOnTheMappedFile() throws IOException {
+        CustomEventPayload stubs = CustomEventPayload.of("{ 'mappings': [] }".getBytes(StandardCharsets.UTF_8));
+        CustomEventPayload blob = CustomEventPayload.of(new byte[] { 0, 1, 2, (byte) 255 });
+        Path file = write(Arrays.asList(
+            CustomEvent.createFromLine("PT10S|stubs").withPayload(stubs),
+            CustomEvent.createFromLine("PT20S|no-payload"),
+            CustomEvent.createFromLine("PT30S|blob").withPayload(blob),
+            CustomEvent.createFromLine("PT40S|stubs-again").withPayload(stubs)));
+
+        BinaryScheduleReader reader = BinaryScheduleReader.open(file);
+
+        assertEquals(stubs.asByteBuffer(), reader.get(0).getPayload().asByteBuffer());
+        assertNull(reader.get(1).getPayload());
+        ByteBuffer blobBytes = reader.get(2).getPayload().asByteBuffer();
+        assertTrue(blobBytes.isReadOnly());
+        assertEquals(4, blobBytes.remaining());
+        assertEquals((byte) 255, blobBytes.get(3));
+        assertSame("payloads are shared", reader.get(0).getPayload(), reader.get(3).getPayload());
+    }
+
+    @Test
+    public void selectableAsGeneratorFactory() throws IOException {
+        Path file = write(ScheduleScriptParser.parse(SCRIPT));
+
+        EventGeneratorFactory factory = EventGeneratorFactoryProvider
+            .createInstanceFromClasspath(EventLoggerStdOut.INSTANCE_DEBUG)
+            .find("nl.stokpop.eventscheduler.generator.EventGeneratorFactoryBinary");
+        EventGeneratorProperties properties = new EventGeneratorProperties(
+            "@generatorFactoryClass=nl.stokpop.eventscheduler.generator.EventGeneratorFactoryBinary\n"
+                + "scheduleFile=" + file);
+        EventGenerator generator = factory.create(properties, EventLoggerStdOut.INSTANCE_DEBUG);
+
+        Iterator<CustomEvent> events = generator.generateLazily();
+        assertEquals("toggle", events.next().getName());
+        assertEquals(4, generator.generate().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void eventsOutOfOrderAreRejected() throws IOException {
+        try (BinaryScheduleWriter writer = BinaryScheduleWriter.create(temporaryFolder.newFile().toPath())) {
+            writer.add(CustomEvent.createFromLine("PT1M|late"));
+            writer.add(CustomEvent.createFromLine("PT10S|early"));
+        }
+    }
+
+    @Test(expected = EventSchedulerRuntimeException.class)
+    public void otherFileIsRejected() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, SCRIPT.getBytes());
+        BinaryScheduleReader.open(file);
+    }
+
+    @Test(expected = EventSchedulerRuntimeException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        Path file = write(ScheduleScriptParser.parse(SCRIPT));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        BinaryScheduleReader.open(file);
+    }
+
+    private Path write(List<CustomEvent> events) throws IOException {
+        Path file = temporaryFolder.newFile("schedule.bin").toPath();
+        try (BinaryScheduleWriter writer = BinaryScheduleWriter.create(file)) {
+            for (CustomEvent event : events) {
+                writer.add(event);
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.CustomEventPayload;
+import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompactScheduleTest {
+
+    @Test
+    public void storesEventsInFireAtOrderAndRecreatesThem() {
+        List<CustomEvent> events = Arrays.asList(
+            CustomEvent.createFromLine("PT1M|scale-down|{ 'replicas':1 }"),
+            CustomEvent.createFromLine("PT10S;every=PT5S;count=3|toggle(toggle delay)|delay=PT2S"),
+            CustomEvent.createFromLine("PT0.000000001S|first"),
+            CustomEvent.createFromLine("PT1M|scale-up(same time, added later)|{ 'replicas':1 }"));
+
+        CompactSchedule schedule = CompactSchedule.of(events);
+
+        assertEquals(4, schedule.size());
+        assertEquals(1, schedule.fireAtNanos(0));
+        assertEquals(Duration.ofSeconds(10).toNanos(), schedule.fireAtNanos(1));
+
+        List<CustomEvent> recreated = new ArrayList<>();
+        schedule.forEach(recreated::add);
+        assertEquals(Arrays.asList(events.get(2).toString(), events.get(1).toString(), events.get(0).toString(), events.get(3).toString()),
+            Arrays.asList(recreated.get(0).toString(), recreated.get(1).toString(), recreated.get(2).toString(), recreated.get(3).toString()));
+        assertEquals("first-PT0.000000001S", recreated.get(0).getDescription());
+        assertEquals("toggle delay", recreated.get(1).getDescription());
+        assertEquals(events.get(1).getRepeat(), recreated.get(1).getRepeat());
+        assertNull(recreated.get(0).getSettings());
+        assertSame("settings are shared", recreated.get(2).getSettings(), recreated.get(3).getSettings());
+        assertEquals(recreated.get(3).toString(), schedule.asList().get(3).toString());
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        CompactSchedule.Builder builder = CompactSchedule.builder();
+        for (int i = 100; i > 0; i--) {
+            builder.add(CustomEvent.createFromLine("PT" + i + "S|event"));
+        }
+        CompactSchedule schedule = builder.build();
+
+        assertEquals(100, schedule.size());
+        assertEquals(Duration.ofSeconds(1), schedule.get(0).getDuration());
+        assertEquals(Duration.ofSeconds(100), schedule.get(99).getDuration());
+    }
+
+    @Test
+    public void sharesPayloadsWithoutCopy() {
+        CustomEventPayload payload = CustomEventPayload.of(new byte[] { 1, 2, 3 });
+        CompactSchedule schedule = CompactSchedule.of(Arrays.asList(
+            CustomEvent.createFromLine("PT20S|stub-mappings").withPayload(payload),
+            CustomEvent.createFromLine("PT10S|no-payload"),
+            CustomEvent.createFromLine("PT30S|stub-mappings").withPayload(payload)));
+
+        assertNull(schedule.get(0).getPayload());
+        assertSame(payload, schedule.get(1).getPayload());
+        assertSame(payload, schedule.get(2).getPayload());
+    }
+
+    @Test
+    public void defaultGeneratorStreamsScriptIntoSortedSchedule() {
+        String script = "PT1M|scale-down\n\n@comment\nPT10S|first(one)|a=1\r\nPT1M|scale-up\rPT5S|earliest\n";
+        EventGeneratorDefault generator = new EventGeneratorDefault(
+            new EventGeneratorProperties(Collections.singletonMap(EventGeneratorDefault.EVENT_SCHEDULE_TAG, script)),
+            EventLoggerStdOut.INSTANCE);
+
+        List<String> lazily = new ArrayList<>();
+        generator.generateLazily().forEachRemaining(event -> lazily.add(event.toString()));
+
+        List<String> sorted = new ArrayList<>();
+        generator.generate().stream()
+            .sorted(Comparator.comparing(CustomEvent::getDuration))
+            .forEach(event -> sorted.add(event.toString()));
+
+        assertEquals("same events and order as the sorted list, same fire-at time keeps script order", sorted, lazily);
+        assertEquals(4, generator.compile().size());
+    }
+}
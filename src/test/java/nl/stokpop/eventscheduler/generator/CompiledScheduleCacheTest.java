@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.api.EventGenerator;
+import nl.stokpop.eventscheduler.api.EventGeneratorProperties;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CompiledScheduleCacheTest {
+
+    private static final String SCRIPT =
+        "PT1M|scale-down|{ 'replicas':1 }\n" +
+        "PT10S;every=PT5S;count=3;jitter=PT1S|toggle(toggle delay)|delay=PT2S\n" +
+        "PT30S|heapdump";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @After
+    public void clearCache() {
+        CompiledScheduleCache.clearInMemory();
+    }
+
+    @Test
+    public void unchangedScheduleIsCompiledOnce() throws IOException {
+        Path cacheDir = temporaryFolder.newFolder("schedules").toPath();
+        AtomicInteger compileCount = new AtomicInteger(0);
+
+        List<CustomEvent> first = cachedGenerator(cacheDir, compileCount, SCRIPT).generate();
+        List<CustomEvent> second = cachedGenerator(cacheDir, compileCount, SCRIPT).generate();
+
+        assertEquals(1, compileCount.get());
+        assertEquals(first.toString(), second.toString());
+        assertEquals("sorted in fire-at order", Duration.ofSeconds(10), first.get(0).getDuration());
+
+        // a new JVM only has the disk cache
+        CompiledScheduleCache.clearInMemory();
+        List<CustomEvent> fromDisk = cachedGenerator(cacheDir, compileCount, SCRIPT).generate();
+
+        assertEquals(1, compileCount.get());
+        assertEquals(first.toString(), fromDisk.toString());
+        assertEquals(first.get(0).getRepeat(), fromDisk.get(0).getRepeat());
+        assertEquals("toggle delay", fromDisk.get(0).getDescription());
+        assertNull(fromDisk.get(1).getSettings());
+
+        cachedGenerator(cacheDir, compileCount, SCRIPT + "\nPT2M|scale-up").generate();
+        assertEquals("changed script is compiled again", 2, compileCount.get());
+    }
+
+    @Test
+    public void contentHashDependsOnInputBoundaries() {
+        assertNotEquals(CompiledScheduleCache.contentHash("ab", "c"), CompiledScheduleCache.contentHash("a", "bc"));
+        assertEquals(CompiledScheduleCache.contentHash("a", "bc"), CompiledScheduleCache.contentHash("a", "bc"));
+    }
+
+    private static EventGenerator cachedGenerator(Path cacheDir, AtomicInteger compileCount, String script) {
+        EventGenerator generator = new EventGeneratorDefault(
+            new EventGeneratorProperties(Collections.singletonMap(EventGeneratorDefault.EVENT_SCHEDULE_TAG, script)),
+            EventLoggerStdOut.INSTANCE) {
+            @Override
+            CompactSchedule compile() {
+                compileCount.incrementAndGet();
+                return super.compile();
+            }
+        };
+        return new CompiledScheduleCache(cacheDir, EventLoggerStdOut.INSTANCE).cached(generator, EventGeneratorDefault.class.getName(), script);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.generator;
+
+import nl.stokpop.eventscheduler.api.CustomEvent;
+import nl.stokpop.eventscheduler.exception.ScheduleParseException;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ScheduleScriptParserTest {
+
+    @Test
+    public void parsesChunksIntoFireAtOrder() {
+        StringBuilder script = new StringBuilder("@generatorFactoryClass=ignored\n\n");
+        for (int i = 2000; i > 0; i--) {
+            script.append("PT").append(i).append("S|event-").append(i).append('\n');
+        }
+        script.append("PT1S|same-time-second");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        List<CustomEvent> events = ScheduleScriptParser.parse(script.toString(), pool, 256);
+        pool.shutdown();
+
+        assertEquals(2001, events.size());
+        assertEquals("event-1", events.get(0).getName());
+        assertEquals("same time keeps script order", "same-time-second", events.get(1).getName());
+        assertEquals(Duration.ofSeconds(2000), events.get(2000).getDuration());
+    }
+
+    @Test
+    public void reportsAllWrongLinesWithLineNumbers() {
+        StringBuilder script = new StringBuilder();
+        for (int i = 1; i <= 1000; i++) {
+            if (i == 3) {
+                script.append("PT3X|bad-duration\n");
+            }
+            else if (i == 500) {
+                script.append("no-separator\n");
+            }
+            else if (i == 700) {
+                script.append("PT1S|a)b(c\n");
+            }
+            else if (i == 1000) {
+                script.append("PT1S|name(no close");
+            }
+            else {
+                script.append("PT").append(i).append("S|event\n");
+            }
+        }
+
+        try {
+            ScheduleScriptParser.parse(script.toString(), ForkJoinPool.commonPool(), 128);
+            fail("expected ScheduleParseException");
+        } catch (ScheduleParseException e) {
+            List<Integer> lineNumbers = e.getLineErrors().stream()
+                .map(ScheduleParseException.LineError::getLineNumber)
+                .collect(Collectors.toList());
+            assertEquals(Arrays.asList(3, 500, 700, 1000), lineNumbers);
+            assertTrue(e.getMessage(), e.getMessage().startsWith("4 wrong lines in schedule:\nline 3: Failed to parse duration: [PT3X]"));
+            assertEquals("no-separator", e.getLineErrors().get(1).getLine());
+        }
+    }
+
+    @Test
+    public void sameLineTerminatorsAsBufferedReader() {
+        String[] terminators = { "\n", "\r\n", "\r" };
+        StringBuilder script = new StringBuilder();
+        for (int i = 1; i <= 600; i++) {
+            script.append(i == 400 ? "PT3X|bad-duration" : "PT" + i + "S|event-" + i).append(terminators[i % 3]);
+        }
+        long readerLines = new BufferedReader(new StringReader(script.toString())).lines().count();
+
+        try {
+            ScheduleScriptParser.parse(script.toString(), ForkJoinPool.commonPool(), 64);
+            fail("expected ScheduleParseException");
+        } catch (ScheduleParseException e) {
+            assertEquals(1, e.getLineErrors().size());
+            assertEquals("line numbers as counted by BufferedReader", 400, e.getLineErrors().get(0).getLineNumber());
+            assertEquals("PT3X|bad-duration", e.getLineErrors().get(0).getLine());
+        }
+
+        String valid = script.toString().replace("PT3X|bad-duration", "PT400S|event-400");
+        List<CustomEvent> events = ScheduleScriptParser.parse(valid, ForkJoinPool.commonPool(), 64);
+        assertEquals(readerLines, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals("event-" + (i + 1), events.get(i).getName());
+        }
+    }
+}
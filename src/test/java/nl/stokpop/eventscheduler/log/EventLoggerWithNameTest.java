@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.log;
+
+import nl.stokpop.eventscheduler.api.EventLogger;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class EventLoggerWithNameTest {
+
+    @Test
+    public void prefixIsAdded() {
+        List<String> lines = new ArrayList<>();
+        EventLogger logger = new EventLoggerWithName("myEvent", "nl.stokpop.MyEventFactory", new CollectLogger(lines, true));
+
+        logger.info("hello");
+        logger.debug("debug %s", "world");
+
+        assertEquals(2, lines.size());
+        assertEquals("[myEvent] [MyEventFactory] hello", lines.get(0));
+        assertEquals("[myEvent] [MyEventFactory] debug world", lines.get(1));
+    }
+
+    @Test
+    public void debugDisabledDoesNotCreateMessage() {
+        List<String> lines = new ArrayList<>();
+        EventLogger logger = new EventLoggerWithName("myEvent", "MyEventFactory", new CollectLogger(lines, false));
+
+        AtomicInteger supplierCalls = new AtomicInteger();
+        logger.debug(() -> "expensive " + supplierCalls.incrementAndGet());
+        logger.debug("not formatted %s", new Object() {
+            @Override
+            public String toString() {
+                supplierCalls.incrementAndGet();
+                return "expensive";
+            }
+        });
+
+        assertEquals("no message should be created when debug is disabled", 0, supplierCalls.get());
+        assertEquals(0, lines.size());
+    }
+
+    private static class CollectLogger implements EventLogger {
+
+        private final List<String> lines;
+        private final boolean debug;
+
+        CollectLogger(List<String> lines, boolean debug) {
+            this.lines = lines;
+            this.debug = debug;
+        }
+
+        @Override
+        public void info(String message) {
+            lines.add(message);
+        }
+
+        @Override
+        public void warn(String message) {
+            lines.add(message);
+        }
+
+        @Override
+        public void error(String message) {
+            lines.add(message);
+        }
+
+        @Override
+        public void error(String message, Throwable throwable) {
+            lines.add(message);
+        }
+
+        @Override
+        public void debug(String message) {
+            if (debug) lines.add(message);
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return debug;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.processor;
+
+import nl.stokpop.eventscheduler.LazyServiceLoader;
+import nl.stokpop.eventscheduler.api.EventFactory;
+import nl.stokpop.eventscheduler.exception.EventSchedulerRuntimeException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FactoryRegistryProcessorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String SAMPLE_FACTORY =
+        "package sample;\n" +
+        "import nl.stokpop.eventscheduler.api.*;\n" +
+        "import nl.stokpop.eventscheduler.api.config.EventContext;\n" +
+        "import nl.stokpop.eventscheduler.api.message.EventMessageBus;\n" +
+        "@RegisterFactory\n" +
+        "public class SampleEventFactory implements EventFactory<EventContext> {\n" +
+        "    public Event create(EventContext context, EventMessageBus messageBus, EventLogger logger) { return null; }\n" +
+        "    @RegisterFactory\n" +
+        "    public static class Nested implements EventFactory<EventContext> {\n" +
+        "        public Event create(EventContext context, EventMessageBus messageBus, EventLogger logger) { return null; }\n" +
+        "    }\n" +
+        "}\n";
+
+    private static final String OTHER_SAMPLE_FACTORY =
+        "package sample;\n" +
+        "import nl.stokpop.eventscheduler.api.*;\n" +
+        "import nl.stokpop.eventscheduler.api.config.EventContext;\n" +
+        "import nl.stokpop.eventscheduler.api.message.EventMessageBus;\n" +
+        "@RegisterFactory\n" +
+        "public class OtherEventFactory implements EventFactory<EventContext> {\n" +
+        "    public Event create(EventContext context, EventMessageBus messageBus, EventLogger logger) { return null; }\n" +
+        "}\n";
+
+    private static final String INVALID_FACTORY =
+        "package sample;\n" +
+        "@nl.stokpop.eventscheduler.api.RegisterFactory\n" +
+        "public class NotAFactory {}\n";
+
+    @Test
+    public void generateRegistry() throws Exception {
+        Path output = temporaryFolder.newFolder("classes").toPath();
+
+        assertTrue("compile should succeed", compile(SAMPLE_FACTORY, "SampleEventFactory", output).isEmpty());
+
+        assertTrue(Files.exists(output.resolve("sample/EventSchedulerFactoryRegistry.class")));
+
+        Path reflectConfig = output.resolve(FactoryRegistryProcessor.NATIVE_IMAGE_DIR + "sample/reflect-config.json");
+        String reflectConfigJson = new String(Files.readAllBytes(reflectConfig), StandardCharsets.UTF_8);
+        assertTrue(reflectConfigJson, reflectConfigJson.contains("\"name\": \"sample.EventSchedulerFactoryRegistry\""));
+        assertTrue(reflectConfigJson, reflectConfigJson.contains("\"name\": \"sample.SampleEventFactory\""));
+        assertTrue(reflectConfigJson, reflectConfigJson.contains("\"name\": \"sample.SampleEventFactory$Nested\""));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { output.toUri().toURL() }, getClass().getClassLoader())) {
+            LazyServiceLoader<EventFactory> loader = LazyServiceLoader.of(EventFactory.class, classLoader);
+
+            // there is no META-INF/services file for the sample factories and no register() call: found via the generated registry
+            Optional<EventFactory> factory = loader.find("sample.SampleEventFactory");
+            assertTrue(factory.isPresent());
+            assertEquals("sample.SampleEventFactory", factory.get().getClass().getName());
+            assertTrue(loader.find("sample.SampleEventFactory$Nested").isPresent());
+            assertFalse(loader.find("sample.NotExisting").isPresent());
+        }
+    }
+
+    @Test
+    public void rejectPackageSplitOverJarsWithRegistries() throws Exception {
+        Path output = temporaryFolder.newFolder("first").toPath();
+        Path otherOutput = temporaryFolder.newFolder("second").toPath();
+        assertTrue("compile should succeed", compile(SAMPLE_FACTORY, "SampleEventFactory", output).isEmpty());
+        assertTrue("compile should succeed", compile(OTHER_SAMPLE_FACTORY, "OtherEventFactory", otherOutput).isEmpty());
+
+        URL[] jars = { output.toUri().toURL(), otherOutput.toUri().toURL() };
+        try (URLClassLoader classLoader = new URLClassLoader(jars, getClass().getClassLoader())) {
+            LazyServiceLoader<EventFactory> loader = LazyServiceLoader.of(EventFactory.class, classLoader);
+            try {
+                loader.find("sample.OtherEventFactory");
+                fail("expected split package to be rejected");
+            } catch (EventSchedulerRuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("package 'sample' is split over multiple jars"));
+            }
+        }
+    }
+
+    @Test
+    public void registryDoesNotKeepClassLoader() throws Exception {
+        Path output = temporaryFolder.newFolder("discarded").toPath();
+        assertTrue("compile should succeed", compile(SAMPLE_FACTORY, "SampleEventFactory", output).isEmpty());
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] { output.toUri().toURL() }, getClass().getClassLoader());
+        classLoader.loadClass("sample.EventSchedulerFactoryRegistry").getMethod("register").invoke(null);
+        assertTrue(LazyServiceLoader.of(EventFactory.class, classLoader).find("sample.SampleEventFactory").isPresent());
+
+        WeakReference<ClassLoader> reference = new WeakReference<>(classLoader);
+        classLoader.close();
+        classLoader = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("registered registry should not keep its class loader alive", reference.get());
+    }
+
+    @Test
+    public void reportInvalidFactory() throws Exception {
+        Path output = temporaryFolder.newFolder("invalid").toPath();
+
+        List<Diagnostic<? extends JavaFileObject>> errors = compile(INVALID_FACTORY, "NotAFactory", output);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage(null).contains("should implement one of"));
+    }
+
+    private List<Diagnostic<? extends JavaFileObject>> compile(String source, String className, Path output) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("tests need a JDK", compiler);
+
+        Path sourceFile = temporaryFolder.newFolder().toPath().resolve(className + ".java");
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-d", output.toString());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(new File(sourceFile.toString()))));
+            task.setProcessors(Collections.singletonList(new FactoryRegistryProcessor()));
+            task.call();
+        }
+        diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .forEach(d -> System.out.println("compile error: " + d.getMessage(null)));
+        return diagnostics.getDiagnostics().stream()
+            .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2021 Peter Paul Bakker, Stokpop Software Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.stokpop.eventscheduler.trace;
+
+import nl.stokpop.eventscheduler.EventScheduler;
+import nl.stokpop.eventscheduler.EventSchedulerBuilder;
+import nl.stokpop.eventscheduler.api.TraceRecordType;
+import nl.stokpop.eventscheduler.api.config.EventConfig;
+import nl.stokpop.eventscheduler.api.config.EventSchedulerConfig;
+import nl.stokpop.eventscheduler.api.config.TestConfig;
+import nl.stokpop.eventscheduler.log.EventLoggerStdOut;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BinaryTraceRecorderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void recordInMemoryAndDrop() {
+        BinaryTraceRecorder recorder = BinaryTraceRecorder.inMemory(2);
+
+        recorder.record(TraceRecordType.BROADCAST_START, null, "keepAlive", 0);
+        recorder.record(TraceRecordType.BROADCAST_END, null, "keepAlive", 0);
+        recorder.record(TraceRecordType.MESSAGE, "plugin", "Go!", 0);
+
+        assertEquals(2, recorder.getRecordCount());
+        assertEquals(1, recorder.getDroppedRecordCount());
+
+        List<TraceRecord> records = recorder.createReader().records();
+        assertEquals(2, records.size());
+        assertEquals(TraceRecordType.BROADCAST_START, records.get(0).getType());
+        assertEquals("keepAlive", records.get(0).getDetail());
+        assertNull(records.get(0).getEventName());
+        assertEquals(Thread.currentThread().getName(), records.get(0).getThreadName());
+    }
+
+    @Test
+    public void recordMappedFileWithRollOver() throws Exception {
+        Path traceFile = temporaryFolder.getRoot().toPath().resolve("trace.bin");
+        BinaryTraceRecorder recorder = BinaryTraceRecorder.mappedFile(traceFile, 4, 10);
+
+        for (int i = 0; i < 10; i++) {
+            recorder.record(TraceRecordType.EVENT_CALL_START, "event, \"quoted\"", "keepAlive", i);
+        }
+        recorder.record(TraceRecordType.CUSTOM_EVENT, null, "scale-down", 600_000);
+        recorder.flush();
+
+        TraceReader reader = TraceReader.open(traceFile);
+        List<TraceRecord> records = reader.records();
+        assertEquals(11, records.size());
+        assertEquals(9, records.get(9).getValue());
+        assertEquals("scale-down", records.get(10).getDetail());
+
+        StringWriter csv = new StringWriter();
+        reader.exportCsv(csv);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(12, lines.length);
+        assertTrue(lines[1].contains("\"event, \"\"quoted\"\"\""));
+
+        StringWriter chrome = new StringWriter();
+        reader.exportChromeTrace(chrome);
+        assertTrue(chrome.toString().startsWith("{\"displayTimeUnit\""));
+        assertTrue(chrome.toString().contains("\"name\":\"scale-down\",\"cat\":\"customEvent\",\"ph\":\"i\""));
+        assertTrue(chrome.toString().contains("\"name\":\"event, \\\"quoted\\\" keepAlive\""));
+    }
+
+    @Test
+    public void mapNextSegmentAheadAndClose() throws Exception {
+        Path traceFile = temporaryFolder.getRoot().toPath().resolve("ahead.bin");
+        BinaryTraceRecorder recorder = BinaryTraceRecorder.mappedFile(traceFile, 2, 10);
+        assertEquals(2, recorder.mappedSegmentCount());
+
+        recorder.record(TraceRecordType.MESSAGE, null, "one", 0);
+        recorder.record(TraceRecordType.MESSAGE, null, "two", 0);
+        assertEquals(2, recorder.mappedSegmentCount());
+        recorder.record(TraceRecordType.MESSAGE, null, "three", 0);
+        assertEquals("first record of a segment maps the next one", 3, recorder.mappedSegmentCount());
+
+        recorder.close();
+        recorder.record(TraceRecordType.MESSAGE, null, "after close", 0);
+        assertEquals(1, recorder.getDroppedRecordCount());
+        recorder.close();
+
+        assertEquals(3, TraceReader.open(traceFile).records().size());
+        assertEquals(3, recorder.createReader().records().size());
+    }
+
+    @Test
+    public void boundedNameTable() {
+        BinaryTraceRecorder recorder = BinaryTraceRecorder.inMemory(BinaryTraceRecorder.MAX_NAMES + 10);
+
+        for (int i = 0; i < BinaryTraceRecorder.MAX_NAMES + 10; i++) {
+            recorder.record(TraceRecordType.MESSAGE, null, "message " + i, 0);
+        }
+
+        List<TraceRecord> records = recorder.createReader().records();
+        assertEquals("message 0", records.get(0).getDetail());
+        assertEquals(BinaryTraceRecorder.MORE_NAMES, records.get(records.size() - 1).getDetail());
+    }
+
+    @Test
+    public void traceSchedulerSession() {
+        String factoryClassName = "nl.stokpop.eventscheduler.event.EventFactoryDefault";
+
+        EventSchedulerConfig config = EventSchedulerConfig.builder()
+            .testConfig(TestConfig.builder().build())
+            .eventConfig(EventConfig.builder().name("myEvent1").eventFactory(factoryClassName).build())
+            .eventConfig(EventConfig.builder().name("myEvent2").eventFactory(factoryClassName).build())
+            .build();
+
+        BinaryTraceRecorder recorder = BinaryTraceRecorder.inMemory(1024);
+
+        EventScheduler scheduler = EventSchedulerBuilder.of(config, EventLoggerStdOut.INSTANCE, null, recorder);
+        scheduler.startSession();
+        scheduler.stopSession();
+        scheduler.checkResults();
+
+        List<TraceRecord> records = recorder.createReader().records();
+
+        long beforeTestCalls = records.stream()
+            .filter(r -> r.getType() == TraceRecordType.EVENT_CALL_START && "beforeTest".equals(r.getDetail()))
+            .count();
+        assertEquals(2, beforeTestCalls);
+
+        long afterTestBroadcastEnds = records.stream()
+            .filter(r -> r.getType() == TraceRecordType.BROADCAST_END && "afterTest".equals(r.getDetail()))
+            .count();
+        assertEquals(1, afterTestBroadcastEnds);
+
+        long checkCallsAfterSession = records.stream()
+            .filter(r -> r.getType() == TraceRecordType.EVENT_CALL_END && "check".equals(r.getDetail()))
+            .count();
+        assertEquals("checks after the session are recorded", 2, checkCallsAfterSession);
+        recorder.close();
+    }
+}